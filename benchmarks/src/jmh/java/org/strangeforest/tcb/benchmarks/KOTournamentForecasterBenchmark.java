@@ -0,0 +1,59 @@
+package org.strangeforest.tcb.benchmarks;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.strangeforest.tcb.dataload.*;
+import org.strangeforest.tcb.stats.model.core.*;
+import org.strangeforest.tcb.stats.model.forecast.*;
+
+import static java.lang.Math.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class KOTournamentForecasterBenchmark {
+
+	@Param({"R32", "R128"})
+	private KOResult baseResult;
+
+	@Param({"false", "true"})
+	private boolean drawLuck;
+
+	private List<Map<String, Object>> matches;
+
+	@Setup
+	public void setUp() {
+		int drawSize = 1 << (KOResult.W.ordinal() - baseResult.ordinal());
+		int seedSpacing = 4;
+		matches = new ArrayList<>(drawSize / 2);
+		for (int entry = 1; entry < drawSize; entry += 2) {
+			Map<String, Object> match = new HashMap<>();
+			match.put("player1_id", entry);
+			match.put("player2_id", entry + 1);
+			match.put("round", baseResult.name());
+			match.put("player1_seed", (entry - 1) % seedSpacing == 0 ? (entry - 1) / seedSpacing + 1 : null);
+			match.put("player2_seed", null);
+			matches.add(match);
+		}
+	}
+
+	@Benchmark
+	public Object forecast() {
+		TournamentMatchPredictor predictor = new EloTournamentMatchPredictor();
+		return new KOTournamentForecaster(predictor, 1, matches, baseResult, false, drawLuck, false).forecast();
+	}
+
+	private static final class EloTournamentMatchPredictor extends TournamentMatchPredictor {
+
+		EloTournamentMatchPredictor() {
+			super(null, LocalDate.now(), 1, 1, Surface.HARD, false, TournamentLevel.ATP_250, 3);
+		}
+
+		@Override public double getWinProbability(int playerId1, int playerId2, Round round) {
+			return 1.0 / (1.0 + pow(10.0, (playerId1 - playerId2) / 100.0));
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package org.strangeforest.tcb.benchmarks;
+
+import java.util.concurrent.*;
+import java.util.function.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import static org.strangeforest.tcb.stats.model.prediction.MatchDataUtil.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MatchDataUtilBenchmark {
+
+	@Param({"3", "5"})
+	private short bestOf;
+
+	private DoubleUnaryOperator setTransformer;
+	private DoubleUnaryOperator mixedTransformer;
+	private double probability;
+
+	@Setup
+	public void setUp() {
+		setTransformer = probabilityTransformer(true, false, bestOf);
+		mixedTransformer = probabilityTransformer(false, true, bestOf);
+		probability = 0.62;
+	}
+
+	@Benchmark
+	public double matchFromSetProbability() {
+		return setTransformer.applyAsDouble(probability);
+	}
+
+	@Benchmark
+	public double matchFromMixedProbability() {
+		return mixedTransformer.applyAsDouble(probability);
+	}
+
+	@Benchmark
+	public DoubleUnaryOperator probabilityTransformerLookup() {
+		return probabilityTransformer(true, false, bestOf);
+	}
+}
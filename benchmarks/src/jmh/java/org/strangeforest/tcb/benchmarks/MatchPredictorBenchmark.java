@@ -0,0 +1,71 @@
+package org.strangeforest.tcb.benchmarks;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.strangeforest.tcb.stats.model.core.*;
+import org.strangeforest.tcb.stats.model.prediction.*;
+
+import static org.strangeforest.tcb.benchmarks.SyntheticData.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MatchPredictorBenchmark {
+
+	private static final int PLAYER_ID_1 = 1;
+	private static final int PLAYER_ID_2 = 2;
+
+	@Param({"300", "1000"})
+	private int matches;
+
+	private MatchHistory history1;
+	private MatchHistoryView matchData1;
+	private MatchHistoryView matchData2;
+	private RankingData rankingData1;
+	private RankingData rankingData2;
+	private PlayerData playerData1;
+	private PlayerData playerData2;
+	private PredictionConfig config;
+
+	@Setup
+	public void setUp() {
+		history1 = new MatchHistory(matchData(PLAYER_ID_1, PLAYER_ID_2, matches, 1L));
+		matchData1 = history1.before(DATE, null, false, null);
+		matchData2 = new MatchHistory(matchData(PLAYER_ID_2, PLAYER_ID_1, matches, 2L)).before(DATE, null, false, null);
+		rankingData1 = rankingData(5);
+		rankingData2 = rankingData(12);
+		playerData1 = new PlayerData("R", "2");
+		playerData2 = new PlayerData("L", "1");
+		config = PredictionConfig.defaultConfig();
+	}
+
+	@Benchmark
+	public MatchHistoryView matchHistoryCutoff() {
+		return history1.before(DATE.minusDays(90), 30, false, Round.QF);
+	}
+
+	@Benchmark
+	public MatchPrediction recentFormPredictor() {
+		return new RecentFormMatchPredictor(
+			matchData1, matchData2, rankingData1, rankingData2, playerData1, playerData2,
+			DATE, DATE, Surface.HARD, TournamentLevel.MASTERS, Round.QF, config
+		).predictMatch();
+	}
+
+	@Benchmark
+	public MatchPrediction winningPctPredictor() {
+		return new WinningPctMatchPredictor(
+			matchData1, matchData2, rankingData1, rankingData2, playerData1, playerData2,
+			DATE, DATE, Surface.HARD, TournamentLevel.MASTERS, Round.QF, 10, (short)3, config
+		).predictMatch();
+	}
+
+	@Benchmark
+	public MatchPrediction h2hPredictor() {
+		return new H2HMatchPredictor(
+			matchData1, matchData2, PLAYER_ID_1, PLAYER_ID_2, DATE, DATE,
+			Surface.HARD, TournamentLevel.MASTERS, 10, Round.QF, (short)3, config
+		).predictMatch();
+	}
+}
@@ -0,0 +1,74 @@
+package org.strangeforest.tcb.benchmarks;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.strangeforest.tcb.model.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OutcomeBenchmark {
+
+	@Param({"0.6", "0.7"})
+	private double pServe;
+
+	@Param({"0.35"})
+	private double pReturn;
+
+	private static final int BATCH_SIZE = 1000;
+
+	private double[] batchPServe;
+	private double[] batchPReturn;
+	private int[] batchBestOf;
+	private double[] batchPWin;
+
+	@Setup
+	public void setUp() {
+		batchPServe = new double[BATCH_SIZE];
+		batchPReturn = new double[BATCH_SIZE];
+		batchBestOf = new int[BATCH_SIZE];
+		batchPWin = new double[BATCH_SIZE];
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			batchPServe[i] = pServe + (i % 10) * 0.01;
+			batchPReturn[i] = pReturn + (i % 7) * 0.01;
+			batchBestOf[i] = i % 2 == 0 ? 3 : 5;
+		}
+	}
+
+	@Benchmark
+	public double gameOutcome() {
+		return new GameOutcome(pServe).pWin();
+	}
+
+	@Benchmark
+	public double setOutcome() {
+		return new SetOutcome(pServe, pReturn).pWin();
+	}
+
+	@Benchmark
+	public double bestOf3MatchOutcome() {
+		return new MatchOutcome(pServe, pReturn, 3).pWin();
+	}
+
+	@Benchmark
+	public double bestOf5MatchOutcome() {
+		return new MatchOutcome(pServe, pReturn, 5).pWin();
+	}
+
+	@Benchmark
+	public double bestOf5MatchOutcomeTable() {
+		return new MatchOutcomeTable(pServe, pReturn, 5).pWin();
+	}
+
+	@Benchmark
+	public double bestOf5MatchOutcomeGrid() {
+		return MatchOutcomeGrid.getDEFAULT().pWin(pServe, pReturn, 5);
+	}
+
+	@Benchmark
+	public double[] matchOutcomeBatch() {
+		MatchOutcomeBatch.pWin(batchPServe, batchPReturn, batchBestOf, batchPWin);
+		return batchPWin;
+	}
+}
@@ -0,0 +1,45 @@
+package org.strangeforest.tcb.benchmarks;
+
+import java.time.*;
+import java.util.*;
+
+import org.strangeforest.tcb.stats.model.core.*;
+import org.strangeforest.tcb.stats.model.prediction.*;
+
+abstract class SyntheticData {
+
+	static final LocalDate DATE = LocalDate.of(2018, 9, 1);
+
+	private static final TournamentLevel[] LEVELS = {TournamentLevel.GRAND_SLAM, TournamentLevel.MASTERS, TournamentLevel.ATP_500, TournamentLevel.ATP_250};
+	private static final Surface[] SURFACES = {Surface.HARD, Surface.CLAY, Surface.GRASS};
+	private static final Round[] ROUNDS = {Round.R64, Round.R32, Round.R16, Round.QF, Round.SF, Round.F};
+	private static final String[] HANDS = {"R", "L"};
+	private static final String[] BACKHANDS = {"1", "2"};
+
+	static List<MatchData> matchData(int playerId, int opponentId, int matches, long seed) {
+		Random random = new Random(seed);
+		List<MatchData> matchData = new ArrayList<>(matches);
+		for (int i = matches; i > 0; i--) {
+			LocalDate date = DATE.minusDays(3 * i);
+			TournamentLevel level = LEVELS[random.nextInt(LEVELS.length)];
+			int opponent = random.nextInt(10) == 0 ? opponentId : 1000 + random.nextInt(500);
+			boolean won = random.nextDouble() < 0.6;
+			int wonSets = level.getBestOf() / 2 + 1;
+			int lostSets = random.nextInt(wonSets);
+			matchData.add(new MatchData(
+				date, random.nextInt(100), i, false, level, SURFACES[random.nextInt(SURFACES.length)], ROUNDS[random.nextInt(ROUNDS.length)],
+				opponent, 1 + random.nextInt(300), 1500 + random.nextInt(700), HANDS[random.nextInt(HANDS.length)], BACKHANDS[random.nextInt(BACKHANDS.length)], random.nextInt(20) == 0 ? "Q" : null,
+				won ? 1 : 0, won ? 0 : 1, won ? wonSets : lostSets, won ? lostSets : wonSets
+			));
+		}
+		return matchData;
+	}
+
+	static RankingData rankingData(int rank) {
+		RankingData rankingData = new RankingData();
+		rankingData.setRank(rank);
+		rankingData.setRankPoints(10000 / rank);
+		rankingData.setEloRating(2500 - 5 * rank);
+		return rankingData;
+	}
+}
@@ -372,9 +372,9 @@ CREATE TABLE player_in_progress_result (
 	player_id INTEGER REFERENCES player (player_id) ON DELETE CASCADE,
 	base_result tournament_event_result,
 	result tournament_event_result,
-	probability REAL NOT NULL,
-	avg_draw_probability REAL,
-	no_draw_probability REAL,
+	probability DOUBLE PRECISION NOT NULL,
+	avg_draw_probability DOUBLE PRECISION,
+	no_draw_probability DOUBLE PRECISION,
 	PRIMARY KEY (in_progress_event_id, player_id, base_result, result)
 );
 
@@ -0,0 +1,5 @@
+ALTER TABLE player_in_progress_result ALTER COLUMN probability TYPE DOUBLE PRECISION;
+ALTER TABLE player_in_progress_result ALTER COLUMN avg_draw_probability TYPE DOUBLE PRECISION;
+ALTER TABLE player_in_progress_result ALTER COLUMN no_draw_probability TYPE DOUBLE PRECISION;
+
+DROP FUNCTION IF EXISTS load_player_in_progress_result(INTEGER, INTEGER, TEXT, TEXT, REAL, REAL, REAL);
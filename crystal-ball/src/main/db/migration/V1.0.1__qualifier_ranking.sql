@@ -0,0 +1,20 @@
+CREATE OR REPLACE VIEW qualifier_ranking_v AS
+WITH qualifier_match AS (
+	SELECT e.season, e.level, m.winner_rank AS rank, adjust_atp_rank_points(m.winner_rank_points, m.date) AS rank_points, m.winner_elo_rating AS elo_rating
+	FROM match m
+	INNER JOIN tournament_event e USING (tournament_event_id)
+	WHERE m.winner_entry = 'Q'
+	UNION ALL
+	SELECT e.season, e.level, m.loser_rank, adjust_atp_rank_points(m.loser_rank_points, m.date), m.loser_elo_rating
+	FROM match m
+	INNER JOIN tournament_event e USING (tournament_event_id)
+	WHERE m.loser_entry = 'Q'
+)
+SELECT season, level, count(*) AS matches, sum(rank) AS rank_sum, count(rank) AS rank_count, sum(rank_points) AS rank_points_sum, count(rank_points) AS rank_points_count,
+	sum(elo_rating) AS elo_rating_sum, count(elo_rating) AS elo_rating_count
+FROM qualifier_match
+GROUP BY season, level;
+
+CREATE MATERIALIZED VIEW qualifier_ranking AS SELECT * FROM qualifier_ranking_v;
+
+CREATE UNIQUE INDEX ON qualifier_ranking (season, level);
@@ -27,6 +27,7 @@ REFRESH MATERIALIZED VIEW player_surface_stats;
 REFRESH MATERIALIZED VIEW player_stats;
 REFRESH MATERIALIZED VIEW player_h2h;
 REFRESH MATERIALIZED VIEW title_difficulty;
+REFRESH MATERIALIZED VIEW qualifier_ranking;
 
 REFRESH MATERIALIZED VIEW player_win_streak;
 REFRESH MATERIALIZED VIEW player_level_win_streak;
@@ -0,0 +1,124 @@
+package org.strangeforest.tcb.model
+
+abstract class DiffOutcomeTable protected constructor(
+	private val maxItems: Int,
+	private val itemsDiff: Int,
+	private val foldStep: Int,
+	private val pItemWin: (Int) -> Double,
+	private val pDeuce: (Double, Double) -> Double = ::pDeuce
+) {
+
+	private val size = maxItems + 1
+	private val table = DoubleArray(size * size)
+
+	init {
+		for (items1 in maxItems downTo 0) {
+			for (items2 in maxItems downTo 0) {
+				table[index(items1, items2)] = if (items1 == maxItems || items2 == maxItems)
+					pFinalStep(items1, items2, pItemWin, pDeuce)
+				else {
+					val p = pItemWin(items1 + items2 + 1)
+					p * table[index(items1 + 1, items2)] + (1 - p) * table[index(items1, items2 + 1)]
+				}
+			}
+		}
+	}
+
+	fun pWin(): Double {
+		return table[0]
+	}
+
+	fun pWin(items1: Int, items2: Int): Double {
+		if (items1 < 0 || items2 < 0)
+			throw IllegalArgumentException("Invalid score: $items1-$items2")
+		if (items1 >= maxItems && items1 - items2 >= itemsDiff)
+			return 1.0
+		if (items2 >= maxItems && items2 - items1 >= itemsDiff)
+			return 0.0
+		// Fold scores beyond maxItems back into the table, foldStep preserves the serve rotation
+		var i1 = items1
+		var i2 = items2
+		while (i1 > maxItems || i2 > maxItems) {
+			i1 -= foldStep
+			i2 -= foldStep
+		}
+		return table[index(i1, i2)]
+	}
+
+	// Final score probabilities, maxItems-maxItems holds the probability of reaching the continuation (deuce, advantage set, tie-break) whose outcome is pContinuationWin()
+	fun pScores(): DoubleArray {
+		val scoreSize = maxItems + 2
+		val pScores = DoubleArray(scoreSize * scoreSize)
+		pScores[0] = 1.0
+		for (items1 in 0..maxItems) {
+			for (items2 in 0..maxItems) {
+				val index = scoreIndex(items1, items2)
+				val p = pScores[index]
+				if (p == 0.0 || isFinal(items1, items2) || isContinuation(items1, items2))
+					continue
+				pScores[index] = 0.0
+				val pItem = pItemWin(items1 + items2 + 1)
+				pScores[index + scoreSize] += p * pItem
+				pScores[index + 1] += p * (1 - pItem)
+			}
+		}
+		return pScores
+	}
+
+	fun pContinuationWin(): Double {
+		val nextItem = 2 * maxItems + 1
+		return pDeuce(pItemWin(nextItem), pItemWin(nextItem + 1))
+	}
+
+	fun scoreIndex(items1: Int, items2: Int): Int {
+		if (items1 < 0 || items2 < 0 || items1 > maxItems + 1 || items2 > maxItems + 1)
+			throw IllegalArgumentException("Invalid score: $items1-$items2")
+		return items1 * (maxItems + 2) + items2
+	}
+
+	private fun isFinal(items1: Int, items2: Int): Boolean {
+		return (items1 >= maxItems && items1 - items2 >= itemsDiff) || (items2 >= maxItems && items2 - items1 >= itemsDiff)
+	}
+
+	private fun isContinuation(items1: Int, items2: Int): Boolean {
+		return items1 == maxItems && items2 == maxItems
+	}
+
+	private fun index(items1: Int, items2: Int): Int {
+		return items1 * size + items2
+	}
+
+	private fun pFinalStep(items1: Int, items2: Int, pItemWin: (Int) -> Double, pDeuce: (Double, Double) -> Double): Double {
+		val nextItem = items1 + items2 + 1
+		if (items1 == maxItems) {
+			val diff = items1 - items2
+			return if (diff >= itemsDiff)
+				1.0
+			else when (diff) {
+				0 -> pDeuce(pItemWin(nextItem), pItemWin(nextItem + 1))
+				1 -> {
+					val p = pItemWin(nextItem)
+					p + (1 - p) * pDeuce(pItemWin(nextItem + 1), pItemWin(nextItem + 2))
+				}
+				else -> throw IllegalStateException()
+			}
+		}
+		else {
+			val diff = items2 - items1
+			return if (diff >= itemsDiff)
+				0.0
+			else when (diff) {
+				1 -> {
+					val p = pItemWin(nextItem)
+					p * pDeuce(pItemWin(nextItem + 1), pItemWin(nextItem + 2))
+				}
+				else -> throw IllegalStateException()
+			}
+		}
+	}
+}
+
+internal fun pDeuce(p1: Double, p2: Double): Double {
+	val p12 = p1 * p2
+	return p12 / (1.0 - p1 - p2 + 2 * p12)
+}
@@ -0,0 +1,7 @@
+package org.strangeforest.tcb.model
+
+class GameOutcomeTable(
+	pServe: Double
+)
+	: DiffOutcomeTable(4, 2, 1, { pServe }
+)
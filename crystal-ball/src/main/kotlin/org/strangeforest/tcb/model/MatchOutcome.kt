@@ -6,5 +6,5 @@ class MatchOutcome @JvmOverloads constructor(
 	bestOf: Int,
 	finalSetTieBreaker: Boolean = finalSetTieBreaker(bestOf)
 )
-	: DiffOutcome(maxSets(bestOf), 1, { setNo -> SetOutcome(pServe, pReturn, finalSetTieBreaker || setNo < maxSets(bestOf)).pWin() }
+	: DiffOutcome(maxSets(bestOf), 1, { setNo -> SetOutcome(pServe, pReturn, tieBreak(setNo, bestOf, finalSetTieBreaker)).pWin() }
 )
@@ -0,0 +1,127 @@
+package org.strangeforest.tcb.model
+
+import java.util.concurrent.*
+
+object MatchOutcomeBatch {
+
+	private const val SPLIT_THRESHOLD = 1024
+
+	@JvmStatic fun pWin(pServe: DoubleArray, pReturn: DoubleArray, bestOf: IntArray, pWin: DoubleArray) {
+		val size = pServe.size
+		if (pReturn.size != size || bestOf.size != size || pWin.size < size)
+			throw IllegalArgumentException("Array sizes do not match: $size, ${pReturn.size}, ${bestOf.size}, ${pWin.size}")
+		if (size <= SPLIT_THRESHOLD)
+			BatchEvaluator().pWin(pServe, pReturn, bestOf, pWin, 0, size)
+		else
+			ForkJoinPool.commonPool().invoke(BatchTask(pServe, pReturn, bestOf, pWin, 0, size))
+	}
+
+	private class BatchTask(
+		private val pServe: DoubleArray,
+		private val pReturn: DoubleArray,
+		private val bestOf: IntArray,
+		private val pWin: DoubleArray,
+		private val from: Int,
+		private val to: Int
+	) : RecursiveAction() {
+
+		override fun compute() {
+			if (to - from <= SPLIT_THRESHOLD)
+				BatchEvaluator().pWin(pServe, pReturn, bestOf, pWin, from, to)
+			else {
+				val middle = (from + to) ushr 1
+				invokeAll(BatchTask(pServe, pReturn, bestOf, pWin, from, middle), BatchTask(pServe, pReturn, bestOf, pWin, middle, to))
+			}
+		}
+	}
+}
+
+internal class BatchEvaluator {
+
+	private val table = DoubleArray(64)
+
+	// Direct-mapped cache of set probabilities keyed by (pServe, pReturn), shared by entries with equal inputs
+	private val cachedPServe = DoubleArray(CACHE_SIZE) { Double.NaN }
+	private val cachedPReturn = DoubleArray(CACHE_SIZE) { Double.NaN }
+	private val cachedPSet = DoubleArray(CACHE_SIZE)
+	private val cachedPNoTBSet = DoubleArray(CACHE_SIZE)
+
+	fun pWin(pServe: DoubleArray, pReturn: DoubleArray, bestOf: IntArray, pWin: DoubleArray, from: Int, to: Int) {
+		for (i in from until to)
+			pWin[i] = pWin(pServe[i], pReturn[i], bestOf[i])
+	}
+
+	fun pWin(pServe: Double, pReturn: Double, bestOf: Int): Double {
+		val slot = cacheSlot(pServe, pReturn)
+		if (cachedPServe[slot] != pServe || cachedPReturn[slot] != pReturn) {
+			val pServeGame = pGame(pServe)
+			val pReturnGame = pGame(pReturn)
+			cachedPSet[slot] = pSet(pServeGame, pReturnGame, pTieBreak(pServe, pReturn))
+			cachedPNoTBSet[slot] = pSet(pServeGame, pReturnGame, Double.NaN)
+			cachedPServe[slot] = pServe
+			cachedPReturn[slot] = pReturn
+		}
+		return pMatch(cachedPSet[slot], cachedPNoTBSet[slot], bestOf, finalSetTieBreaker(bestOf))
+	}
+
+	fun pGame(p: Double): Double {
+		val q = 1.0 - p
+		val p4 = p * p * p * p
+		return p4 * (1.0 + 4.0 * q + 10.0 * q * q) + 20.0 * p * p * p * q * q * q * pDeuce(p, p)
+	}
+
+	fun pTieBreak(pServe: Double, pReturn: Double): Double {
+		return pDiff(7, 2, { p1, p2 -> pDeuce(p1, p2) }) { pointNo -> if (pointNo / 2 % 2 == 0) pServe else pReturn }
+	}
+
+	fun pSet(pServeGame: Double, pReturnGame: Double, pTieBreak: Double): Double {
+		val tieBreak = !pTieBreak.isNaN()
+		return pDiff(6, 2, { p1, p2 -> if (tieBreak) pTieBreak else pDeuce(p1, p2) }) { gameNo -> if (gameNo % 2 == 0) pServeGame else pReturnGame }
+	}
+
+	fun pMatch(pSet: Double, pNoTBSet: Double, bestOf: Int, finalSetTieBreaker: Boolean): Double {
+		return pDiff(maxSets(bestOf), 1, { p1, p2 -> pDeuce(p1, p2) }) { setNo -> if (tieBreak(setNo, bestOf, finalSetTieBreaker)) pSet else pNoTBSet }
+	}
+
+	// Same backward recursion as DiffOutcomeTable, over the reused table and without capturing lambdas
+	private inline fun pDiff(maxItems: Int, itemsDiff: Int, pDeuce: (Double, Double) -> Double, pItemWin: (Int) -> Double): Double {
+		val size = maxItems + 1
+		for (items1 in maxItems downTo 0) {
+			for (items2 in maxItems downTo 0) {
+				val nextItem = items1 + items2 + 1
+				table[items1 * size + items2] = if (items1 == maxItems) {
+					when (items1 - items2) {
+						in itemsDiff..maxItems -> 1.0
+						0 -> pDeuce(pItemWin(nextItem), pItemWin(nextItem + 1))
+						else -> {
+							val p = pItemWin(nextItem)
+							p + (1 - p) * pDeuce(pItemWin(nextItem + 1), pItemWin(nextItem + 2))
+						}
+					}
+				}
+				else if (items2 == maxItems) {
+					if (items2 - items1 >= itemsDiff)
+						0.0
+					else {
+						val p = pItemWin(nextItem)
+						p * pDeuce(pItemWin(nextItem + 1), pItemWin(nextItem + 2))
+					}
+				}
+				else {
+					val p = pItemWin(nextItem)
+					p * table[(items1 + 1) * size + items2] + (1 - p) * table[items1 * size + items2 + 1]
+				}
+			}
+		}
+		return table[0]
+	}
+
+	private fun cacheSlot(pServe: Double, pReturn: Double): Int {
+		val hash = java.lang.Double.hashCode(pServe) * 31 + java.lang.Double.hashCode(pReturn)
+		return (hash xor (hash ushr 16)) and (CACHE_SIZE - 1)
+	}
+
+	companion object {
+		private const val CACHE_SIZE = 256
+	}
+}
@@ -0,0 +1,142 @@
+package org.strangeforest.tcb.model
+
+import java.io.*
+import java.nio.file.*
+
+class MatchOutcomeGrid private constructor(
+	val steps: Int,
+	private val grid: FloatArray
+) {
+
+	private val size = steps + 1
+
+	fun pWin(pServe: Double, pReturn: Double, bestOf: Int): Double {
+		return pWin(pServe, pReturn, bestOf, finalSetTieBreaker(bestOf))
+	}
+
+	fun pWin(pServe: Double, pReturn: Double, bestOf: Int, finalSetTieBreaker: Boolean): Double {
+		return interpolate(formatOffset(bestOf, finalSetTieBreaker), pServe, pReturn)
+	}
+
+	fun pWin(pServe: DoubleArray, pReturn: DoubleArray, bestOf: Int, pWin: DoubleArray) {
+		pWin(pServe, pReturn, bestOf, finalSetTieBreaker(bestOf), pWin)
+	}
+
+	fun pWin(pServe: DoubleArray, pReturn: DoubleArray, bestOf: Int, finalSetTieBreaker: Boolean, pWin: DoubleArray) {
+		if (pServe.size != pReturn.size || pServe.size > pWin.size)
+			throw IllegalArgumentException("Array sizes do not match: ${pServe.size}, ${pReturn.size}, ${pWin.size}")
+		val offset = formatOffset(bestOf, finalSetTieBreaker)
+		for (i in pServe.indices)
+			pWin[i] = interpolate(offset, pServe[i], pReturn[i])
+	}
+
+	fun write(output: OutputStream) {
+		val data = DataOutputStream(BufferedOutputStream(output))
+		data.writeInt(MAGIC)
+		data.writeInt(steps)
+		for (p in grid)
+			data.writeFloat(p)
+		data.flush()
+	}
+
+	private fun interpolate(offset: Int, pServe: Double, pReturn: Double): Double {
+		if (!(pServe in 0.0..1.0 && pReturn in 0.0..1.0))
+			throw IllegalArgumentException("Invalid probabilities: $pServe, $pReturn")
+		val x = pServe * steps
+		val y = pReturn * steps
+		val i = Math.min(x.toInt(), steps - 1)
+		val j = Math.min(y.toInt(), steps - 1)
+		val dx = x - i
+		val dy = y - j
+		val p = cubic(
+			row(offset, i - 1, j, dy),
+			row(offset, i, j, dy),
+			row(offset, i + 1, j, dy),
+			row(offset, i + 2, j, dy),
+			dx
+		)
+		return if (p < 0.0) 0.0 else if (p > 1.0) 1.0 else p
+	}
+
+	private fun row(offset: Int, i: Int, j: Int, dy: Double): Double {
+		val index = offset + clamp(i) * size
+		return cubic(
+			grid[index + clamp(j - 1)].toDouble(),
+			grid[index + j].toDouble(),
+			grid[index + j + 1].toDouble(),
+			grid[index + clamp(j + 2)].toDouble(),
+			dy
+		)
+	}
+
+	private fun clamp(i: Int): Int {
+		return if (i < 0) 0 else if (i > steps) steps else i
+	}
+
+	private fun formatOffset(bestOf: Int, finalSetTieBreaker: Boolean): Int {
+		return format(bestOf, finalSetTieBreaker) * size * size
+	}
+
+	companion object {
+
+		const val DEFAULT_STEPS = 200
+		const val RESOURCE = "/org/strangeforest/tcb/model/match-outcome-grid.bin"
+		private const val MAGIC = 0x4d4f4731
+		private const val FORMATS = 4
+
+		@JvmStatic val DEFAULT: MatchOutcomeGrid by lazy {
+			val input = MatchOutcomeGrid::class.java.getResourceAsStream(RESOURCE)
+			input?.use { read(it) } ?: compute(DEFAULT_STEPS)
+		}
+
+		@JvmStatic fun compute(steps: Int): MatchOutcomeGrid {
+			if (steps <= 0)
+				throw IllegalArgumentException("Invalid steps: $steps")
+			val size = steps + 1
+			val grid = FloatArray(FORMATS * size * size)
+			for (i in 0..steps) {
+				val pServe = i.toDouble() / steps
+				for (j in 0..steps) {
+					val pReturn = j.toDouble() / steps
+					for (bestOf in intArrayOf(3, 5)) {
+						for (finalSetTieBreaker in booleanArrayOf(false, true)) {
+							val index = format(bestOf, finalSetTieBreaker) * size * size + i * size + j
+							val pWin = MatchOutcomeTable(pServe, pReturn, bestOf, finalSetTieBreaker).pWin()
+							// Certain serve and return in opposite directions never end a tie-break, so these corners are undefined and taken as even
+							grid[index] = (if (pWin.isNaN()) 0.5 else pWin).toFloat()
+						}
+					}
+				}
+			}
+			return MatchOutcomeGrid(steps, grid)
+		}
+
+		@JvmStatic fun read(input: InputStream): MatchOutcomeGrid {
+			val data = DataInputStream(BufferedInputStream(input))
+			if (data.readInt() != MAGIC)
+				throw IOException("Invalid match outcome grid format")
+			val steps = data.readInt()
+			val size = steps + 1
+			val grid = FloatArray(FORMATS * size * size)
+			for (i in grid.indices)
+				grid[i] = data.readFloat()
+			return MatchOutcomeGrid(steps, grid)
+		}
+
+		private fun format(bestOf: Int, finalSetTieBreaker: Boolean): Int {
+			return (maxSets(bestOf) - 2) * 2 + if (finalSetTieBreaker) 1 else 0
+		}
+	}
+}
+
+// Catmull-Rom spline through p1 and p2
+private fun cubic(p0: Double, p1: Double, p2: Double, p3: Double, t: Double): Double {
+	return p1 + 0.5 * t * (p2 - p0 + t * (2.0 * p0 - 5.0 * p1 + 4.0 * p2 - p3 + t * (3.0 * (p1 - p2) + p3 - p0)))
+}
+
+fun main(args: Array<String>) {
+	val file = Paths.get(args[0])
+	Files.createDirectories(file.parent)
+	val steps = if (args.size > 1) args[1].toInt() else MatchOutcomeGrid.DEFAULT_STEPS
+	Files.newOutputStream(file).use { MatchOutcomeGrid.compute(steps).write(it) }
+}
@@ -0,0 +1,70 @@
+package org.strangeforest.tcb.model
+
+import com.github.benmanes.caffeine.cache.*
+
+data class PointProbabilities(val pServe: Double, val pReturn: Double)
+
+class MatchOutcomeSolver @JvmOverloads constructor(
+	private val grid: MatchOutcomeGrid = MatchOutcomeGrid.DEFAULT
+) {
+
+	val cache: Cache<Long, PointProbabilities> = Caffeine.newBuilder()
+		.maximumSize(CACHE_SIZE)
+		.recordStats()
+		.build()
+
+	@JvmOverloads
+	fun solve(pMatch: Double, bestOf: Int, pServePrior: Double = DEFAULT_SERVE_PRIOR, finalSetTieBreaker: Boolean = finalSetTieBreaker(bestOf)): PointProbabilities {
+		if (!(pMatch in 0.0..1.0))
+			throw IllegalArgumentException("Invalid match probability: $pMatch")
+		if (!(pServePrior > 0.0 && pServePrior < 1.0))
+			throw IllegalArgumentException("Invalid serve prior: $pServePrior")
+		val matchQuantum = Math.round(pMatch * QUANTA)
+		val priorQuantum = Math.round(pServePrior * QUANTA)
+		val key = ((matchQuantum * (QUANTA + 1) + priorQuantum) * 8 + bestOf) * 2 + if (finalSetTieBreaker) 1 else 0
+		return cache.get(key) {
+			findEdge(matchQuantum.toDouble() / QUANTA, bestOf, priorQuantum.toDouble() / QUANTA, finalSetTieBreaker)
+		}!!
+	}
+
+	// Finds the point edge d where pServe = prior + d and pReturn = 1 - prior + d, using secant steps safeguarded by bisection
+	private fun findEdge(pMatch: Double, bestOf: Int, prior: Double, finalSetTieBreaker: Boolean): PointProbabilities {
+		var lo = Math.max(-prior, prior - 1.0)
+		var hi = Math.min(1.0 - prior, prior)
+		val f = { d: Double -> grid.pWin(prior + d, 1.0 - prior + d, bestOf, finalSetTieBreaker) - pMatch }
+		if (f(lo) >= 0.0)
+			return PointProbabilities(prior + lo, 1.0 - prior + lo)
+		if (f(hi) <= 0.0)
+			return PointProbabilities(prior + hi, 1.0 - prior + hi)
+		var d0 = 0.0
+		var f0 = f(d0)
+		var d1 = if (f0 < 0.0) INITIAL_STEP else -INITIAL_STEP
+		var f1 = f(d1)
+		for (i in 1..MAX_ITERATIONS) {
+			if (Math.abs(f1) < TOLERANCE)
+				break
+			if (f1 < 0.0)
+				lo = d1
+			else
+				hi = d1
+			var d = if (f1 != f0) d1 - f1 * (d1 - d0) / (f1 - f0) else Double.NaN
+			if (!(d > lo && d < hi))
+				d = (lo + hi) / 2.0
+			d0 = d1
+			f0 = f1
+			d1 = d
+			f1 = f(d1)
+		}
+		return PointProbabilities(prior + d1, 1.0 - prior + d1)
+	}
+
+	companion object {
+
+		const val DEFAULT_SERVE_PRIOR = 0.64
+		private const val QUANTA = 10000L
+		private const val CACHE_SIZE = 10000L
+		private const val INITIAL_STEP = 0.01
+		private const val TOLERANCE = 1E-9
+		private const val MAX_ITERATIONS = 100
+	}
+}
@@ -0,0 +1,71 @@
+package org.strangeforest.tcb.model
+
+class MatchOutcomeTable private constructor(
+	private val bestOf: Int,
+	private val finalSetTieBreaker: Boolean,
+	private val tables: ScoreTables
+)
+	: DiffOutcomeTable(maxSets(bestOf), 1, 1, { setNo -> tables.set(tieBreak(setNo, bestOf, finalSetTieBreaker), false).pWin() }
+) {
+
+	@JvmOverloads constructor(
+		pServe: Double,
+		pReturn: Double,
+		bestOf: Int,
+		finalSetTieBreaker: Boolean = finalSetTieBreaker(bestOf)
+	) : this(bestOf, finalSetTieBreaker, ScoreTables(pServe, pReturn))
+
+	fun pWin(sets1: Int, sets2: Int, games1: Int, games2: Int, serve: Boolean): Double {
+		val pSet = setTable(sets1, sets2, games1, games2, serve).pWin(games1, games2)
+		return pWinAfterSet(sets1, sets2, pSet)
+	}
+
+	fun pWin(sets1: Int, sets2: Int, games1: Int, games2: Int, points1: Int, points2: Int, serve: Boolean): Double {
+		val pSet = if (games1 == 6 && games2 == 6 && isTieBreak(sets1, sets2)) {
+			val pointNo = points1 + points2 + 1
+			tables.tieBreak((pointNo / 2 % 2 == 0) == serve).pWin(points1, points2)
+		}
+		else {
+			val pGame = tables.game(serve).pWin(points1, points2)
+			val set = setTable(sets1, sets2, games1, games2, serve)
+			pGame * set.pWin(games1 + 1, games2) + (1 - pGame) * set.pWin(games1, games2 + 1)
+		}
+		return pWinAfterSet(sets1, sets2, pSet)
+	}
+
+	private fun pWinAfterSet(sets1: Int, sets2: Int, pSet: Double): Double {
+		return pSet * pWin(sets1 + 1, sets2) + (1 - pSet) * pWin(sets1, sets2 + 1)
+	}
+
+	private fun setTable(sets1: Int, sets2: Int, games1: Int, games2: Int, serve: Boolean): SetOutcomeTable {
+		val gameNo = games1 + games2 + 1
+		return tables.set(isTieBreak(sets1, sets2), (gameNo % 2 == 0) != serve)
+	}
+
+	private fun isTieBreak(sets1: Int, sets2: Int): Boolean {
+		return tieBreak(sets1 + sets2 + 1, bestOf, finalSetTieBreaker)
+	}
+
+	private class ScoreTables(pServe: Double, pReturn: Double) {
+
+		private val serveGame = GameOutcomeTable(pServe)
+		private val returnGame = GameOutcomeTable(pReturn)
+		private val sets = arrayOf(
+			SetOutcomeTable(pServe, pReturn, false, false), SetOutcomeTable(pServe, pReturn, false, true),
+			SetOutcomeTable(pServe, pReturn, true, false), SetOutcomeTable(pServe, pReturn, true, true)
+		)
+		private val tieBreaks = arrayOf(TieBreakOutcomeTable(pServe, pReturn, false), TieBreakOutcomeTable(pServe, pReturn, true))
+
+		fun game(serve: Boolean): GameOutcomeTable {
+			return if (serve) serveGame else returnGame
+		}
+
+		fun set(tieBreak: Boolean, serveFirst: Boolean): SetOutcomeTable {
+			return sets[(if (tieBreak) 2 else 0) + if (serveFirst) 1 else 0]
+		}
+
+		fun tieBreak(serveFirst: Boolean): TieBreakOutcomeTable {
+			return tieBreaks[if (serveFirst) 1 else 0]
+		}
+	}
+}
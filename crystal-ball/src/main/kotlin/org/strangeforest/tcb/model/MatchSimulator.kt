@@ -0,0 +1,60 @@
+package org.strangeforest.tcb.model
+
+import java.util.*
+import java.util.concurrent.*
+
+data class MatchSimulation(val matches: Int, val won: Int) {
+
+	val pWin: Double
+		get() = won.toDouble() / matches
+
+	val standardError: Double
+		get() = Math.sqrt(pWin * (1.0 - pWin) / matches)
+}
+
+class MatchSimulator @JvmOverloads constructor(
+	private val model: PointModel,
+	private val bestOf: Int,
+	private val finalSetTieBreaker: Boolean = finalSetTieBreaker(bestOf),
+	private val serveFirst: Boolean = true
+) {
+
+	fun simulate(matches: Int, seed: Long): MatchSimulation {
+		if (matches <= 0)
+			throw IllegalArgumentException("Invalid match count: $matches")
+		val won = ForkJoinPool.commonPool().invoke(SimulationTask(SplittableRandom(seed), matches))
+		return MatchSimulation(matches, won)
+	}
+
+	// Random generators are split while the task tree is built, so results depend only on the seed and not on scheduling
+	private inner class SimulationTask(private val random: SplittableRandom, private val matches: Int) : RecursiveTask<Int>() {
+
+		override fun compute(): Int {
+			if (matches <= SPLIT_THRESHOLD)
+				return simulate(random, matches)
+			val half = matches / 2
+			val left = SimulationTask(random.split(), half)
+			val right = SimulationTask(random, matches - half)
+			left.fork()
+			return right.compute() + left.join()
+		}
+	}
+
+	private fun simulate(random: SplittableRandom, matches: Int): Int {
+		val state = MatchState(bestOf, finalSetTieBreaker)
+		var won = 0
+		for (i in 1..matches) {
+			state.reset(serveFirst)
+			do {
+				val pointWon = random.nextDouble() < model.pWin(state)
+			} while (!state.point(pointWon))
+			if (state.isWon())
+				won++
+		}
+		return won
+	}
+
+	companion object {
+		private const val SPLIT_THRESHOLD = 10000
+	}
+}
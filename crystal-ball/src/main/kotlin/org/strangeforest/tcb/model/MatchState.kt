@@ -0,0 +1,94 @@
+package org.strangeforest.tcb.model
+
+class MatchState(val bestOf: Int, val finalSetTieBreaker: Boolean) {
+
+	var sets1: Int = 0
+		private set
+	var sets2: Int = 0
+		private set
+	var games1: Int = 0
+		private set
+	var games2: Int = 0
+		private set
+	var points1: Int = 0
+		private set
+	var points2: Int = 0
+		private set
+	var serve: Boolean = true
+		private set
+	var tieBreak: Boolean = false
+		private set
+	var pointCount: Int = 0
+		private set
+	var streak: Int = 0
+		private set
+
+	private val maxSets = maxSets(bestOf)
+	private var tieBreakServe: Boolean = false
+
+	fun reset(serveFirst: Boolean) {
+		sets1 = 0
+		sets2 = 0
+		games1 = 0
+		games2 = 0
+		points1 = 0
+		points2 = 0
+		serve = serveFirst
+		tieBreak = false
+		pointCount = 0
+		streak = 0
+	}
+
+	fun isWon(): Boolean {
+		return sets1 == maxSets
+	}
+
+	fun point(won: Boolean): Boolean {
+		pointCount++
+		if (won) {
+			points1++
+			streak = if (streak > 0) streak + 1 else 1
+		}
+		else {
+			points2++
+			streak = if (streak < 0) streak - 1 else -1
+		}
+		if (tieBreak) {
+			if ((points1 >= 7 || points2 >= 7) && Math.abs(points1 - points2) >= 2)
+				return game(points1 > points2)
+			// Tie-break serve changes after the first point and then after every two points
+			if ((points1 + points2) % 2 == 1)
+				serve = !serve
+			return false
+		}
+		if ((points1 >= 4 || points2 >= 4) && Math.abs(points1 - points2) >= 2)
+			return game(points1 > points2)
+		return false
+	}
+
+	private fun game(won: Boolean): Boolean {
+		points1 = 0
+		points2 = 0
+		if (won) games1++ else games2++
+		if (tieBreak) {
+			tieBreak = false
+			serve = !tieBreakServe
+			return set(won)
+		}
+		serve = !serve
+		if ((games1 >= 6 || games2 >= 6) && Math.abs(games1 - games2) >= 2)
+			return set(games1 > games2)
+		if (games1 == 6 && games2 == 6 && tieBreak(sets1 + sets2 + 1, bestOf, finalSetTieBreaker)) {
+			tieBreak = true
+			tieBreakServe = serve
+		}
+		return false
+	}
+
+	private fun set(won: Boolean): Boolean {
+		games1 = 0
+		games2 = 0
+		if (won) sets1++ else sets2++
+		return sets1 == maxSets || sets2 == maxSets
+	}
+}
@@ -16,4 +16,6 @@ fun finalSetTieBreaker(bestOf: Int): Boolean {
 	}
 }
 
-
+fun tieBreak(setNo: Int, bestOf: Int, finalSetTieBreaker: Boolean): Boolean {
+	return finalSetTieBreaker || setNo < bestOf
+}
@@ -0,0 +1,13 @@
+package org.strangeforest.tcb.model
+
+interface PointModel {
+
+	fun pWin(state: MatchState): Double
+}
+
+class IIDPointModel(private val pServe: Double, private val pReturn: Double) : PointModel {
+
+	override fun pWin(state: MatchState): Double {
+		return if (state.serve) pServe else pReturn
+	}
+}
@@ -0,0 +1,23 @@
+package org.strangeforest.tcb.model
+
+class SetOutcomeTable @JvmOverloads constructor(
+	pServe: Double,
+	pReturn: Double,
+	tieBreak: Boolean = true,
+	serveFirst: Boolean = false
+)
+	: DiffOutcomeTable(6, 2, 1, setItemWin(pServe, pReturn, serveFirst), setDeuce(pServe, pReturn, tieBreak)
+)
+
+private fun setItemWin(pServe: Double, pReturn: Double, serveFirst: Boolean): (Int) -> Double {
+	val pServeGame = GameOutcomeTable(pServe).pWin()
+	val pReturnGame = GameOutcomeTable(pReturn).pWin()
+	return { gameNo -> if ((gameNo + if (serveFirst) 1 else 0) % 2 == 0) pServeGame else pReturnGame }
+}
+
+private fun setDeuce(pServe: Double, pReturn: Double, tieBreak: Boolean): (Double, Double) -> Double {
+	if (!tieBreak)
+		return ::pDeuce
+	val pTieBreak = TieBreakOutcomeTable(pServe, pReturn).pWin()
+	return { _, _ -> pTieBreak }
+}
@@ -0,0 +1,9 @@
+package org.strangeforest.tcb.model
+
+class TieBreakOutcomeTable @JvmOverloads constructor(
+	pServe: Double,
+	pReturn: Double,
+	serveFirst: Boolean = true
+)
+	: DiffOutcomeTable(7, 2, 2, { pointNo -> if ((pointNo + if (serveFirst) 0 else 2) / 2 % 2 == 0) pServe else pReturn }
+)
@@ -0,0 +1,46 @@
+package org.strangeforest.tcb.model
+
+import java.util.*
+
+import org.assertj.core.data.*
+import org.junit.*
+
+import org.assertj.core.api.Assertions.*
+
+class MatchOutcomeBatchTest {
+
+	private val offset = Offset.offset(1E-12)
+
+	@Test
+	fun testBatchIsSameAsMatchOutcome() {
+		val pServe = doubleArrayOf(0.65, 0.7, 0.55)
+		val pReturn = doubleArrayOf(0.35, 0.4, 0.3)
+		val bestOf = intArrayOf(3, 5, 5)
+		val pWin = DoubleArray(3)
+
+		MatchOutcomeBatch.pWin(pServe, pReturn, bestOf, pWin)
+
+		for (i in pServe.indices)
+			assertThat(pWin[i]).isCloseTo(MatchOutcome(pServe[i], pReturn[i], bestOf[i]).pWin(), offset)
+	}
+
+	@Test
+	fun testLargeBatchWithRepeatedInputs() {
+		val size = 10000
+		val random = Random(0L)
+		val pServe = DoubleArray(size) { 0.5 + random.nextInt(20) * 0.01 }
+		val pReturn = DoubleArray(size) { 0.25 + random.nextInt(20) * 0.01 }
+		val bestOf = IntArray(size) { if (random.nextBoolean()) 3 else 5 }
+		val pWin = DoubleArray(size)
+
+		MatchOutcomeBatch.pWin(pServe, pReturn, bestOf, pWin)
+
+		for (i in 0 until size)
+			assertThat(pWin[i]).isCloseTo(MatchOutcomeTable(pServe[i], pReturn[i], bestOf[i]).pWin(), offset)
+	}
+
+	@Test(expected = IllegalArgumentException::class)
+	fun testArraySizesMustMatch() {
+		MatchOutcomeBatch.pWin(DoubleArray(2), DoubleArray(3), IntArray(2), DoubleArray(2))
+	}
+}
@@ -0,0 +1,124 @@
+package org.strangeforest.tcb.model
+
+import java.io.*
+import java.util.*
+
+import org.assertj.core.data.*
+import org.junit.*
+
+import org.assertj.core.api.Assertions.*
+
+class MatchOutcomeGridTest {
+
+	companion object {
+		private val grid = MatchOutcomeGrid.compute(MatchOutcomeGrid.DEFAULT_STEPS)
+	}
+
+	@Test
+	fun testGridPoints() {
+		val offset = Offset.offset(1E-6)
+
+		assertThat(grid.pWin(0.5, 0.5, 3)).isCloseTo(0.5, offset)
+		assertThat(grid.pWin(0.65, 0.35, 5)).isCloseTo(MatchOutcomeTable(0.65, 0.35, 5).pWin(), offset)
+		assertThat(grid.pWin(0.7, 0.4, 5, true)).isCloseTo(MatchOutcomeTable(0.7, 0.4, 5, true).pWin(), offset)
+		assertThat(grid.pWin(1.0, 1.0, 3)).isCloseTo(1.0, offset)
+		assertThat(grid.pWin(0.0, 0.0, 3)).isCloseTo(0.0, offset)
+	}
+
+	@Test
+	fun testInterpolationError() {
+		val offset = Offset.offset(1E-4)
+		val random = Random(0L)
+		for (i in 1..500) {
+			val pServe = 0.3 + 0.6 * random.nextDouble()
+			val pReturn = 0.1 + 0.5 * random.nextDouble()
+			for (bestOf in intArrayOf(3, 5)) {
+				for (finalSetTieBreaker in booleanArrayOf(false, true)) {
+					assertThat(grid.pWin(pServe, pReturn, bestOf, finalSetTieBreaker))
+						.isCloseTo(MatchOutcomeTable(pServe, pReturn, bestOf, finalSetTieBreaker).pWin(), offset)
+				}
+			}
+		}
+	}
+
+	@Test
+	fun testGridEdges() {
+		val offset = Offset.offset(1E-6)
+		val steps = grid.steps
+		for (bestOf in intArrayOf(3, 5)) {
+			for (finalSetTieBreaker in booleanArrayOf(false, true)) {
+				for (k in 0..steps * 2) {
+					val p = k.toDouble() / (steps * 2)
+					for (edge in doubleArrayOf(0.0, 1.0)) {
+						for ((pServe, pReturn) in listOf(edge to p, p to edge)) {
+							if (k % 2 == 0 || !isNearUndefinedCorner(pServe, pReturn)) {
+								val pWin = MatchOutcomeTable(pServe, pReturn, bestOf, finalSetTieBreaker).pWin()
+								if (!pWin.isNaN())
+									assertThat(grid.pWin(pServe, pReturn, bestOf, finalSetTieBreaker)).isCloseTo(pWin, offset)
+							}
+						}
+					}
+				}
+				assertThat(grid.pWin(0.0, 1.0, bestOf, finalSetTieBreaker)).isEqualTo(0.5)
+				assertThat(grid.pWin(1.0, 0.0, bestOf, finalSetTieBreaker)).isEqualTo(0.5)
+			}
+		}
+	}
+
+	@Test
+	fun testBetweenGridPoints() {
+		val steps = grid.steps
+		for (bestOf in intArrayOf(3, 5)) {
+			for (finalSetTieBreaker in booleanArrayOf(false, true)) {
+				for (i in 0 until steps) {
+					for (j in 0 until steps) {
+						val pServe = (i + 0.5) / steps
+						val pReturn = (j + 0.5) / steps
+						val inner = pServe in 0.05..0.95 && pReturn in 0.05..0.95
+						if (inner && (i + j) % 5 != 0)
+							continue
+						val pWin = grid.pWin(pServe, pReturn, bestOf, finalSetTieBreaker)
+						if (isNearUndefinedCorner(pServe, pReturn))
+							assertThat(pWin).isBetween(0.0, 1.0)
+						else
+							assertThat(pWin).isCloseTo(MatchOutcomeTable(pServe, pReturn, bestOf, finalSetTieBreaker).pWin(), Offset.offset(if (inner) 1E-4 else 2E-3))
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	fun testBatch() {
+		val pServe = doubleArrayOf(0.6, 0.65, 0.72, 0.81)
+		val pReturn = doubleArrayOf(0.4, 0.33, 0.38, 0.27)
+		val pWin = DoubleArray(pServe.size)
+
+		grid.pWin(pServe, pReturn, 5, pWin)
+
+		for (i in pServe.indices)
+			assertThat(pWin[i]).isEqualTo(grid.pWin(pServe[i], pReturn[i], 5))
+	}
+
+	@Test
+	fun testWriteRead() {
+		val output = ByteArrayOutputStream()
+		grid.write(output)
+
+		val readGrid = MatchOutcomeGrid.read(ByteArrayInputStream(output.toByteArray()))
+
+		assertThat(readGrid.steps).isEqualTo(grid.steps)
+		assertThat(readGrid.pWin(0.67, 0.36, 3)).isEqualTo(grid.pWin(0.67, 0.36, 3))
+		assertThat(readGrid.pWin(0.71, 0.29, 5, true)).isEqualTo(grid.pWin(0.71, 0.29, 5, true))
+	}
+
+	@Test(expected = IllegalArgumentException::class)
+	fun testInvalidProbability() {
+		grid.pWin(1.1, 0.3, 3)
+	}
+
+	// Match outcome is discontinuous at the undefined corners, so it is not interpolated accurately close to them
+	private fun isNearUndefinedCorner(pServe: Double, pReturn: Double): Boolean {
+		return (pServe < 0.05 && pReturn > 0.95) || (pServe > 0.95 && pReturn < 0.05)
+	}
+}
@@ -0,0 +1,62 @@
+package org.strangeforest.tcb.model
+
+import org.assertj.core.data.*
+import org.junit.*
+
+import org.assertj.core.api.Assertions.*
+
+class MatchOutcomeSolverTest {
+
+	companion object {
+		private val solver = MatchOutcomeSolver(MatchOutcomeGrid.compute(MatchOutcomeGrid.DEFAULT_STEPS))
+	}
+
+	@Test
+	fun testEqualPlayers() {
+		val points = solver.solve(0.5, 3)
+
+		assertThat(points.pServe).isCloseTo(MatchOutcomeSolver.DEFAULT_SERVE_PRIOR, Offset.offset(1E-6))
+		assertThat(points.pReturn).isCloseTo(1.0 - MatchOutcomeSolver.DEFAULT_SERVE_PRIOR, Offset.offset(1E-6))
+	}
+
+	@Test
+	fun testSolvedProbabilitiesReproduceMatchProbability() {
+		for (bestOf in intArrayOf(3, 5)) {
+			for (pMatch in doubleArrayOf(0.05, 0.3, 0.62, 0.75, 0.98)) {
+				val points = solver.solve(pMatch, bestOf, 0.62)
+
+				assertThat(points.pServe - 0.62).isCloseTo(points.pReturn - 0.38, Offset.offset(1E-12))
+				assertThat(MatchOutcomeTable(points.pServe, points.pReturn, bestOf).pWin()).isCloseTo(pMatch, Offset.offset(1E-4))
+			}
+		}
+	}
+
+	@Test
+	fun testStrongerPlayerHasHigherPointProbabilities() {
+		val weaker = solver.solve(0.6, 5)
+		val stronger = solver.solve(0.8, 5)
+
+		assertThat(stronger.pServe).isGreaterThan(weaker.pServe)
+		assertThat(stronger.pReturn).isGreaterThan(weaker.pReturn)
+		assertThat(solver.solve(0.8, 3).pServe).isGreaterThan(stronger.pServe)
+	}
+
+	@Test
+	fun testExtremes() {
+		assertThat(solver.solve(1.0, 3).pServe).isEqualTo(1.0)
+		assertThat(solver.solve(0.0, 3).pReturn).isCloseTo(0.0, Offset.offset(1E-12))
+	}
+
+	@Test
+	fun testQuantizedInputsAreCached() {
+		val hits = solver.cache.stats().hitCount()
+
+		assertThat(solver.solve(0.700001, 3)).isSameAs(solver.solve(0.7, 3))
+		assertThat(solver.cache.stats().hitCount()).isEqualTo(hits + 1)
+	}
+
+	@Test(expected = IllegalArgumentException::class)
+	fun testInvalidProbability() {
+		solver.solve(1.5, 3)
+	}
+}
@@ -0,0 +1,58 @@
+package org.strangeforest.tcb.model
+
+import org.assertj.core.data.*
+import org.junit.*
+
+import org.assertj.core.api.Assertions.*
+
+class MatchOutcomeTableTest {
+
+	private val offset = Offset.offset(1E-12)
+
+	@Test
+	fun testEqualP() {
+		val match = MatchOutcomeTable(0.5, 0.5, 5)
+
+		assertThat(match.pWin()).isEqualTo(0.5)
+		assertThat(match.pWin(1, 1, 3, 3, true)).isCloseTo(0.5, offset)
+		assertThat(match.pWin(1, 1, 6, 6, 2, 2, false)).isCloseTo(0.5, offset)
+	}
+
+	@Test
+	fun testFinalStep() {
+		val match = MatchOutcomeTable(0.8, 0.4, 3)
+
+		assertThat(match.pWin(1, 0, 6, 4, true)).isEqualTo(1.0)
+		assertThat(match.pWin(1, 0, 5, 4, 4, 0, true)).isEqualTo(1.0)
+		assertThat(match.pWin(0, 1, 4, 6, false)).isEqualTo(0.0)
+		assertThat(match.pWin(0, 1, 6, 6, 5, 7, true)).isEqualTo(0.0)
+	}
+
+	@Test
+	fun testScoreStatesAreConsistent() {
+		val match = MatchOutcomeTable(0.65, 0.35, 5)
+
+		assertThat(match.pWin(0, 0, 0, 0, false)).isCloseTo(match.pWin(), offset)
+		assertThat(match.pWin(1, 2, 0, 0, 0, 0, false)).isCloseTo(match.pWin(1, 2), offset)
+		assertThat(match.pWin(2, 1, 3, 2, 0, 0, true)).isCloseTo(match.pWin(2, 1, 3, 2, true), offset)
+		assertThat(match.pWin(1, 1, 6, 6, 0, 0, true)).isCloseTo(match.pWin(1, 1, 6, 6, true), offset)
+	}
+
+	@Test
+	fun testServeMatters() {
+		val match = MatchOutcomeTable(0.7, 0.4, 3)
+
+		assertThat(match.pWin(0, 0, 5, 4, true)).isGreaterThan(match.pWin(0, 0, 5, 4, false))
+		assertThat(match.pWin(0, 0, 6, 6, 3, 2, true)).isGreaterThan(match.pWin(0, 0, 6, 6, 3, 2, false))
+	}
+
+	@Test
+	fun testFinalSetTieBreaker() {
+		val match = MatchOutcomeTable(0.7, 0.4, 5, false)
+		val tbMatch = MatchOutcomeTable(0.7, 0.4, 5, true)
+
+		assertThat(match.pWin(1, 1, 6, 6, 0, 0, true)).isCloseTo(match.pWin(1, 1, 6, 6, true), offset)
+		assertThat(match.pWin(2, 2, 7, 7, true)).isEqualTo(match.pWin(2, 2, 6, 6, true))
+		assertThat(match.pWin(2, 2, 6, 6, true)).isNotCloseTo(tbMatch.pWin(2, 2, 6, 6, true), offset)
+	}
+}
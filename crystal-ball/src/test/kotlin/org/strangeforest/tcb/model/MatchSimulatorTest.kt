@@ -0,0 +1,115 @@
+package org.strangeforest.tcb.model
+
+import org.assertj.core.data.*
+import org.junit.*
+
+import org.assertj.core.api.Assertions.*
+
+class MatchSimulatorTest {
+
+	@Test
+	fun testIIDSimulationIsCloseToMatchOutcome() {
+		for (bestOf in intArrayOf(3, 5)) {
+			val simulation = MatchSimulator(IIDPointModel(0.62, 0.4), bestOf).simulate(200000, 1L)
+
+			assertThat(simulation.pWin).isCloseTo(MatchOutcomeTable(0.62, 0.4, bestOf).pWin(), Offset.offset(4 * simulation.standardError))
+		}
+	}
+
+	@Test
+	fun testSimulationIsReproducible() {
+		val simulator = MatchSimulator(IIDPointModel(0.6, 0.38), 3)
+
+		assertThat(simulator.simulate(50000, 7L)).isEqualTo(simulator.simulate(50000, 7L))
+	}
+
+	@Test
+	fun testCertainPointsWinMatch() {
+		val simulation = MatchSimulator(IIDPointModel(1.0, 1.0), 5).simulate(100, 1L)
+
+		assertThat(simulation.pWin).isEqualTo(1.0)
+	}
+
+	@Test
+	fun testTieBreakAndFinalSetScoring() {
+		val state = MatchState(3, false)
+		state.reset(true)
+		for (game in 1..12) {
+			for (point in 1..4)
+				state.point(game % 2 == 1)
+		}
+		assertThat(state.games1).isEqualTo(6)
+		assertThat(state.games2).isEqualTo(6)
+		assertThat(state.tieBreak).isTrue()
+		assertThat(state.serve).isTrue()
+
+		state.point(false)
+		assertThat(state.serve).isFalse()
+		state.point(false)
+		assertThat(state.serve).isFalse()
+		state.point(false)
+		assertThat(state.serve).isTrue()
+		for (point in 1..4)
+			state.point(false)
+		assertThat(state.sets2).isEqualTo(1)
+		assertThat(state.games1).isEqualTo(0)
+		assertThat(state.serve).isFalse()
+		assertThat(state.streak).isEqualTo(-11)
+	}
+
+	@Test
+	fun testAdvantageFinalSetScoring() {
+		val state = MatchState(3, false)
+		state.reset(true)
+		for (game in 1..6)
+			playGame(state, true)
+		for (game in 1..6)
+			playGame(state, false)
+		assertThat(state.sets1).isEqualTo(1)
+		assertThat(state.sets2).isEqualTo(1)
+
+		for (game in 1..12)
+			playGame(state, game % 2 == 1)
+		assertThat(state.games1).isEqualTo(6)
+		assertThat(state.games2).isEqualTo(6)
+		assertThat(state.tieBreak).isFalse()
+
+		assertThat(playGame(state, true)).isFalse()
+		assertThat(playGame(state, false)).isFalse()
+		assertThat(state.games1).isEqualTo(7)
+		assertThat(state.games2).isEqualTo(7)
+		assertThat(state.tieBreak).isFalse()
+		assertThat(playGame(state, true)).isFalse()
+		assertThat(playGame(state, true)).isTrue()
+		assertThat(state.isWon()).isTrue()
+		assertThat(state.sets1).isEqualTo(2)
+	}
+
+	@Test
+	fun testMomentumModel() {
+		val pFair = MatchOutcomeTable(0.62, 0.38, 3).pWin()
+
+		val momentum1 = MatchSimulator(momentumModel(0.02, 0.0), 3).simulate(50000, 3L)
+		val momentum2 = MatchSimulator(momentumModel(0.0, 0.02), 3).simulate(50000, 3L)
+
+		assertThat(pFair).isCloseTo(0.5, Offset.offset(1E-9))
+		assertThat(momentum1.pWin).isGreaterThan(pFair + 4 * momentum1.standardError)
+		assertThat(momentum2.pWin).isLessThan(pFair - 4 * momentum2.standardError)
+	}
+
+	private fun playGame(state: MatchState, won: Boolean): Boolean {
+		var finished = false
+		for (point in 1..4)
+			finished = state.point(won)
+		return finished
+	}
+
+	// Point win probability grows with the player's own winning streak
+	private fun momentumModel(momentum1: Double, momentum2: Double) = object : PointModel {
+		override fun pWin(state: MatchState): Double {
+			val p = if (state.serve) 0.62 else 0.38
+			val streak = Math.max(-3, Math.min(3, state.streak))
+			return p + if (streak > 0) momentum1 * streak else momentum2 * streak
+		}
+	}
+}
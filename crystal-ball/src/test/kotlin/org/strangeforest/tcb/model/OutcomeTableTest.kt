@@ -0,0 +1,152 @@
+package org.strangeforest.tcb.model
+
+import org.assertj.core.data.*
+import org.junit.*
+
+import org.assertj.core.api.Assertions.*
+
+class OutcomeTableTest {
+
+	private val offset = Offset.offset(1E-12)
+	private val ps = doubleArrayOf(0.25, 0.4, 0.5, 0.55, 0.65, 0.8)
+
+	@Test
+	fun testGameTable() {
+		for (p in ps) {
+			val game = GameOutcome(p)
+			val gameTable = GameOutcomeTable(p)
+			for (points1 in 0..4) {
+				for (points2 in 0..4)
+					assertThat(gameTable.pWin(points1, points2)).isCloseTo(game.pWin(points1, points2), offset)
+			}
+		}
+	}
+
+	@Test
+	fun testTieBreakTable() {
+		for (pServe in ps) {
+			for (pReturn in ps) {
+				val tieBreak = TieBreakOutcome(pServe, pReturn)
+				val tieBreakTable = TieBreakOutcomeTable(pServe, pReturn)
+				for (points1 in 0..7) {
+					for (points2 in 0..7)
+						assertThat(tieBreakTable.pWin(points1, points2)).isCloseTo(tieBreak.pWin(points1, points2), offset)
+				}
+			}
+		}
+	}
+
+	@Test
+	fun testSetTable() {
+		for (pServe in ps) {
+			for (pReturn in ps) {
+				for (tieBreak in listOf(true, false)) {
+					val set = SetOutcome(pServe, pReturn, tieBreak)
+					val setTable = SetOutcomeTable(pServe, pReturn, tieBreak)
+					for (games1 in 0..6) {
+						for (games2 in 0..6)
+							assertThat(setTable.pWin(games1, games2)).isCloseTo(set.pWin(games1, games2), offset)
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	fun testMatchTable() {
+		for (pServe in doubleArrayOf(0.55, 0.7)) {
+			for (pReturn in doubleArrayOf(0.3, 0.45)) {
+				for (bestOf in listOf(3, 5)) {
+					for (finalSetTieBreaker in listOf(true, false)) {
+						val match = MatchOutcome(pServe, pReturn, bestOf, finalSetTieBreaker)
+						val matchTable = MatchOutcomeTable(pServe, pReturn, bestOf, finalSetTieBreaker)
+						val maxSets = maxSets(bestOf)
+						for (sets1 in 0..maxSets) {
+							for (sets2 in 0..maxSets) {
+								if (sets1 < maxSets || sets2 < maxSets)
+									assertThat(matchTable.pWin(sets1, sets2)).isCloseTo(match.pWin(sets1, sets2), offset)
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	fun testDeuceFolding() {
+		val gameTable = GameOutcomeTable(0.75)
+		assertThat(gameTable.pWin(7, 6)).isEqualTo(gameTable.pWin(4, 3))
+		assertThat(gameTable.pWin(9, 9)).isEqualTo(gameTable.pWin(4, 4))
+		assertThat(gameTable.pWin(10, 8)).isEqualTo(1.0)
+
+		val tieBreakTable = TieBreakOutcomeTable(0.75, 0.25)
+		assertThat(tieBreakTable.pWin(9, 8)).isEqualTo(tieBreakTable.pWin(7, 6))
+		assertThat(tieBreakTable.pWin(10, 10)).isEqualTo(tieBreakTable.pWin(6, 6))
+		assertThat(tieBreakTable.pWin(8, 10)).isEqualTo(0.0)
+
+		val setTable = SetOutcomeTable(0.7, 0.4, false)
+		assertThat(setTable.pWin(8, 7)).isEqualTo(setTable.pWin(6, 5))
+		assertThat(setTable.pWin(12, 12)).isEqualTo(setTable.pWin(6, 6))
+		assertThat(setTable.pWin(9, 11)).isEqualTo(0.0)
+	}
+
+	@Test
+	fun testGameScores() {
+		val p = 0.6
+		val gameTable = GameOutcomeTable(p)
+		val pScores = gameTable.pScores()
+
+		assertThat(pScores.sum()).isCloseTo(1.0, offset)
+		assertThat(pScores[gameTable.scoreIndex(4, 0)]).isCloseTo(Math.pow(p, 4.0), offset)
+		assertThat(pScores[gameTable.scoreIndex(0, 4)]).isCloseTo(Math.pow(1 - p, 4.0), offset)
+		assertThat(pScores[gameTable.scoreIndex(4, 1)]).isCloseTo(4 * Math.pow(p, 4.0) * (1 - p), offset)
+		assertThat(pScores[gameTable.scoreIndex(5, 3)]).isCloseTo(20 * Math.pow(p, 5.0) * Math.pow(1 - p, 3.0), offset)
+		assertThat(pScores[gameTable.scoreIndex(4, 4)]).isCloseTo(40 * Math.pow(p, 4.0) * Math.pow(1 - p, 4.0), offset)
+		assertThat(pScores[gameTable.scoreIndex(5, 4)]).isEqualTo(0.0)
+		assertThat(pScores[gameTable.scoreIndex(4, 5)]).isEqualTo(0.0)
+		assertThat(gameTable.pContinuationWin()).isCloseTo(p * p / (p * p + (1 - p) * (1 - p)), offset)
+		assertThat(pWinScores(gameTable, pScores, 4)).isCloseTo(gameTable.pWin(), offset)
+	}
+
+	@Test
+	fun testSetScores() {
+		for (tieBreak in listOf(true, false)) {
+			val setTable = SetOutcomeTable(0.7, 0.4, tieBreak)
+			val pScores = setTable.pScores()
+
+			assertThat(pScores.sum()).isCloseTo(1.0, offset)
+			assertThat(pWinScores(setTable, pScores, 6)).isCloseTo(setTable.pWin(), offset)
+			assertThat(pScores[setTable.scoreIndex(6, 6)]).isGreaterThan(0.0)
+			assertThat(pScores[setTable.scoreIndex(7, 6)]).isEqualTo(0.0)
+			assertThat(pScores[setTable.scoreIndex(6, 7)]).isEqualTo(0.0)
+			assertThat(pScores[setTable.scoreIndex(7, 5)]).isGreaterThan(0.0)
+			if (tieBreak)
+				assertThat(setTable.pContinuationWin()).isCloseTo(TieBreakOutcomeTable(0.7, 0.4).pWin(), offset)
+			else
+				assertThat(setTable.pContinuationWin()).isCloseTo(setTable.pWin(6, 6), offset)
+		}
+	}
+
+	@Test
+	fun testMatchScores() {
+		val pSet = SetOutcomeTable(0.7, 0.4).pWin()
+		val matchTable = MatchOutcomeTable(0.7, 0.4, 3)
+		val pScores = matchTable.pScores()
+
+		assertThat(pScores.sum()).isCloseTo(1.0, offset)
+		assertThat(pScores[matchTable.scoreIndex(2, 0)]).isCloseTo(pSet * pSet, offset)
+		assertThat(pScores[matchTable.scoreIndex(2, 1)]).isCloseTo(2 * pSet * pSet * (1 - pSet), offset)
+		assertThat(pScores[matchTable.scoreIndex(0, 2)]).isCloseTo((1 - pSet) * (1 - pSet), offset)
+		assertThat(pWinScores(matchTable, pScores, 2)).isCloseTo(matchTable.pWin(), offset)
+	}
+
+	private fun pWinScores(table: DiffOutcomeTable, pScores: DoubleArray, maxItems: Int): Double {
+		var pWin = pScores[table.scoreIndex(maxItems, maxItems)] * table.pContinuationWin()
+		for (items1 in 0..maxItems + 1) {
+			for (items2 in 0 until items1)
+				pWin += pScores[table.scoreIndex(items1, items2)]
+		}
+		return pWin
+	}
+}
@@ -26,7 +26,7 @@ DROP FUNCTION find_in_progress_event(TEXT);
 DROP FUNCTION find_in_progress_match(INTEGER, SMALLINT);
 DROP FUNCTION load_in_progress_match(TEXT, SMALLINT, SMALLINT, SMALLINT, DATE, TEXT, BOOLEAN, TEXT, SMALLINT,
 	TEXT, TEXT, SMALLINT, TEXT, TEXT, TEXT, SMALLINT, TEXT, SMALLINT, TEXT, TEXT, SMALLINT, SMALLINT[], SMALLINT[], SMALLINT, SMALLINT[], SMALLINT[]);
-DROP FUNCTION load_player_in_progress_result(INTEGER, INTEGER, TEXT, TEXT, REAL, REAL, REAL);
+DROP FUNCTION load_player_in_progress_result(INTEGER, INTEGER, TEXT, TEXT, DOUBLE PRECISION, DOUBLE PRECISION, DOUBLE PRECISION);
 DROP FUNCTION create_player(TEXT, TEXT, DATE, TEXT);
 DROP FUNCTION fix_rank_points(DATE, DATE);
 DROP FUNCTION set_tournament_map_properties(TEXT, INTEGER, INTEGER, INTEGER[], JSON) CASCADE;
@@ -714,9 +714,9 @@ CREATE OR REPLACE FUNCTION load_player_in_progress_result(
 	p_player_id INTEGER,
 	p_base_result TEXT,
 	p_result TEXT,
-	p_probability REAL,
-	p_avg_draw_probability REAL,
-	p_no_draw_probability REAL
+	p_probability DOUBLE PRECISION,
+	p_avg_draw_probability DOUBLE PRECISION,
+	p_no_draw_probability DOUBLE PRECISION
 ) RETURNS VOID AS $$
 BEGIN
 	BEGIN
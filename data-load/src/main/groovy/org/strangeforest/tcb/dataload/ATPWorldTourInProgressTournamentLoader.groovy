@@ -21,6 +21,7 @@ import static org.strangeforest.tcb.dataload.LoaderUtil.*
 class ATPWorldTourInProgressTournamentLoader extends BaseATPWorldTourTournamentLoader {
 
 	boolean forceForecast
+	long forecastSimulations
 	EloSurfaceFactors eloSurfaceFactors
 
 	static final String LOAD_EVENT_SQL = //language=SQL
@@ -68,13 +69,18 @@ class ATPWorldTourInProgressTournamentLoader extends BaseATPWorldTourTournamentL
 
 	static final String LOAD_PLAYER_RESULT_SQL = //language=SQL
 		'{call load_player_in_progress_result(' +
-			':in_progress_event_id, :player_id, :base_result, :result, :probability, :avg_draw_probability::REAL, :no_draw_probability::REAL' +
+			':in_progress_event_id, :player_id, :base_result, :result, :probability, :avg_draw_probability::DOUBLE PRECISION, :no_draw_probability::DOUBLE PRECISION' +
 		')}'
 
-	static final String DELETE_PLAYER_PROGRESS_RESULTS_SQL = //language=SQL
-		'DELETE FROM player_in_progress_result\n' +
+	static final String FETCH_PLAYER_RESULTS_SQL = //language=SQL
+		'SELECT player_id, base_result::TEXT, result::TEXT, probability, avg_draw_probability, no_draw_probability FROM player_in_progress_result\n' +
 		'WHERE in_progress_event_id = :inProgressEventId'
 
+	static final String DELETE_PLAYER_RESULT_SQL = //language=SQL
+		'DELETE FROM player_in_progress_result\n' +
+		'WHERE in_progress_event_id = :in_progress_event_id AND player_id = :player_id\n' +
+		'AND base_result = :base_result::tournament_event_result AND result = :result::tournament_event_result'
+
 	static final String SELECT_EVENT_EXT_IDS_SQL = //language=SQL
 		'SELECT ext_tournament_id FROM in_progress_event\n' +
 		'INNER JOIN tournament_mapping USING (tournament_id)\n' +
@@ -89,13 +95,15 @@ class ATPWorldTourInProgressTournamentLoader extends BaseATPWorldTourTournamentL
 	ATPWorldTourInProgressTournamentLoader(Sql sql) {
 		super(sql)
 		forceForecast = getBooleanProperty(FORCE_FORECAST_PROPERTY, FORCE_FORECAST_DEFAULT)
+		forecastSimulations = getLongProperty(FORECAST_SIMULATIONS_PROPERTY, FORECAST_SIMULATIONS_DEFAULT)
 		eloSurfaceFactors = new EloSurfaceFactors(sql, LocalDate.now().year - 1)
 	}
 
 	def loadAndForecastTournament(String urlId, extId, Integer season = null, String level = null, String surface = null, boolean verbose = false) {
 		try {
+			def previousMatches = forceForecast ? [] : fetchMatches(extId)
 			if (loadTournament(urlId, extId, season, level, surface, verbose))
-				forecastTournament(extId, verbose)
+				forecastTournament(extId, previousMatches, verbose)
 			return true
 		}
 		catch (Exception ex) {
@@ -307,6 +315,7 @@ class ATPWorldTourInProgressTournamentLoader extends BaseATPWorldTourTournamentL
 		emptyToNull(player(roundPlayer.select('*.scores-draw-entry-box-players-item').text()))
 	}
 
+	// Draws show the score only once the winner has advanced, so partial scores of unfinished matches are not available here
 	def setScoreParams(Map params, Elements scoreElem = null, String winnerName = null) {
 		if (scoreElem) {
 			def score = fitScore scoreElem.html().replace('<sup>', '(').replace('</sup>', ')')
@@ -349,11 +358,14 @@ class ATPWorldTourInProgressTournamentLoader extends BaseATPWorldTourTournamentL
 	
 	// Tournament Forecast
 
-	def forecastTournament(extId, boolean verbose) {
+	def forecastTournament(extId, List previousMatches, boolean verbose) {
 		if (verbose)
 			println '\nStarting tournament forecast'
 		def stopwatch = Stopwatch.createStarted()
 		def matches = fetchMatches(extId)
+		def previousByNum = previousMatches.collectEntries { match -> [(match.match_num): match] }
+		def changedEntries = matches.findAll { match -> entriesChanged(match, previousByNum[match.match_num]) }
+		def changedMatches = matches.findAll { match -> entriesChanged(match, previousByNum[match.match_num]) || match.winner != previousByNum[match.match_num].winner }
 
 		// Set qualifier ids as different negative numbers
 		int qualifierIndex
@@ -373,44 +385,69 @@ class ATPWorldTourInProgressTournamentLoader extends BaseATPWorldTourTournamentL
 		def bestOf = firstMatch.best_of
 		def drawType = firstMatch.draw_type
 		def entryResult = KOResult.valueOf(matches[0].round)
+		def previousResults = fetchResults(inProgressEventId)
+		// Incremental forecast only recomputes sub-brackets with changed matches, the draw itself must be unchanged
+		def incremental = previousMatches && previousResults && !changedEntries.find { match -> match.round == entryResult.name() }
 
 		MatchPredictionService predictionService = new MatchPredictionService(new NamedParameterJdbcTemplate(SqlPool.dataSource()))
 		TournamentMatchPredictor predictor = new TournamentMatchPredictor(predictionService, today, tournamentId, inProgressEventId, surface, false, level, bestOf)
 
 		def resultCount = 0
-		def tournamentForecaster
-		if (drawType == 'KO') {
-
-			// Current state forecast
-			if (verbose)
-				println 'Current'
-			tournamentForecaster = new KOTournamentForecaster(predictor, inProgressEventId, matches, entryResult, true, false, verbose)
-			tournamentForecaster.calculateEloRatings(eloSurfaceFactors)
-			saveEloRatings(matches)
-			sql.commit()
-
-			deleteResults(inProgressEventId)
-			def results = tournamentForecaster.forecast()
-			saveResults(results)
-			resultCount += results.size()
+		try {
+			def tournamentForecaster
+			if (drawType == 'KO') {
 
-			// Each round state forecast
-			for (baseResult in KOResult.values().findAll { r -> r >= entryResult && r < KOResult.W }) {
+				// Current state forecast
 				if (verbose)
-					println baseResult
-				def selectedMatches = matches.findAll { match -> KOResult.valueOf(match.round) >= baseResult }
-				tournamentForecaster = new KOTournamentForecaster(predictor, inProgressEventId, selectedMatches, baseResult, false, baseResult == entryResult, verbose)
-				results = tournamentForecaster.forecast()
-				saveResults(results)
-				resultCount += results.size()
-				if (selectedMatches.find { match -> KOResult.valueOf(match.round) == baseResult && !match.winner })
-					break
+					println 'Current'
+				tournamentForecaster = new KOTournamentForecaster(predictor, inProgressEventId, matches, entryResult, true, false, verbose)
+				def prevEloRatings = matches.collect { match -> eloRatings(match) }
+				tournamentForecaster.calculateEloRatings(eloSurfaceFactors)
+				saveEloRatings((0..<matches.size()).findAll { i -> eloRatings(matches[i]) != prevEloRatings[i] }.collect { i -> matches[i] })
+				sql.commit()
+
+				def results
+				if (forecastSimulations > 0) {
+					// Seeded by event, so re-forecasting an unchanged draw reproduces the saved results
+					results = tournamentForecaster.simulate((int)forecastSimulations, inProgressEventId as long)
+				}
+				else {
+					if (incremental) {
+						tournamentForecaster.setPreviousResults(previousResults)
+						tournamentForecaster.setChangedMatches(changedMatches)
+						if (verbose)
+							println "Incremental forecast for ${changedMatches.size()} changed match(es)"
+					}
+					results = tournamentForecaster.forecast()
+				}
+				resultCount += saveResults(inProgressEventId, 'W', results, previousResults)
+				def forecastBaseResults = ['W'] as Set
+
+				// Each round state forecast, only for rounds with changed entries when incremental
+				for (baseResult in KOResult.values().findAll { r -> r >= entryResult && r < KOResult.W }) {
+					def selectedMatches = matches.findAll { match -> KOResult.valueOf(match.round) >= baseResult }
+					forecastBaseResults << baseResult.name()
+					if (!incremental || changedEntries.find { match -> match.round == baseResult.name() }) {
+						if (verbose)
+							println baseResult
+						tournamentForecaster = new KOTournamentForecaster(predictor, inProgressEventId, selectedMatches, baseResult, false, baseResult == entryResult, verbose)
+						results = tournamentForecaster.forecast()
+						resultCount += saveResults(inProgressEventId, baseResult.name(), results, previousResults)
+					}
+					if (selectedMatches.find { match -> KOResult.valueOf(match.round) == baseResult && !match.winner })
+						break
+				}
+				// Base results no longer forecast, e.g. past the first unfinished round after the draw has changed
+				resultCount += deleteResults(inProgressEventId, previousResults.findAll { result -> !(result.base_result in forecastBaseResults) })
 			}
+			else
+				throw new UnsupportedOperationException("Draw type $drawType is not supported.")
+		}
+		finally {
+			predictionService.destroy()
 		}
-		else
-			throw new UnsupportedOperationException("Draw type $drawType is not supported.")
 
-		println "Tournament forecast: ${resultCount} results loaded in $stopwatch"
+		println "Tournament forecast: ${resultCount} results changed in $stopwatch"
 	}
 
 	def saveEvent(Map params) {
@@ -446,16 +483,46 @@ class ATPWorldTourInProgressTournamentLoader extends BaseATPWorldTourTournamentL
 		}
 	}
 
-	def deleteResults(int inProgressEventId) {
-		sql.execute([inProgressEventId: inProgressEventId], DELETE_PLAYER_PROGRESS_RESULTS_SQL)
+	def fetchResults(int inProgressEventId) {
+		sql.rows([inProgressEventId: inProgressEventId], FETCH_PLAYER_RESULTS_SQL)
 	}
 
-	def saveResults(results) {
+	// Writes only new or changed results and deletes results no longer forecast for the base result
+	def saveResults(int inProgressEventId, String baseResult, List results, List previousResults) {
+		def previous = previousResults.findAll { r -> r.base_result == baseResult }.collectEntries { r -> [(resultKey(r)): r] }
+		def changedResults = results.findAll { result -> !sameResult(result, previous.remove(resultKey(result))) }
 		sql.withBatch(LOAD_PLAYER_RESULT_SQL) { ps ->
-			results.each { result ->
+			changedResults.each { result ->
 				ps.addBatch(result)
 			}
 		}
+		changedResults.size() + deleteResults(inProgressEventId, previous.values())
+	}
+
+	def deleteResults(int inProgressEventId, Collection results) {
+		sql.withBatch(DELETE_PLAYER_RESULT_SQL) { ps ->
+			results.each { result ->
+				ps.addBatch([in_progress_event_id: inProgressEventId, player_id: result.player_id, base_result: result.base_result, result: result.result])
+			}
+		}
+		results.size()
+	}
+
+	static resultKey(result) {
+		"${result.player_id}:${result.result}".toString()
+	}
+
+	static sameResult(Map result, previous) {
+		previous && result.probability == previous.probability &&
+			result.avg_draw_probability == previous.avg_draw_probability && result.no_draw_probability == previous.no_draw_probability
+	}
+
+	static boolean entriesChanged(Map match, previous) {
+		!previous || ['player1_id', 'player2_id', 'player1_seed', 'player2_seed'].find { column -> match[column] != previous[column] }
+	}
+
+	static eloRatings(Map match) {
+		match.findAll { column, value -> column.contains('elo_rating') }
 	}
 
 
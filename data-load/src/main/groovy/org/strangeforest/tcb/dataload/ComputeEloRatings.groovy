@@ -8,6 +8,7 @@ def sqlPool = new SqlPool()
 
 def eloRatings = new EloRatings(sqlPool)
 eloRatings.compute(true, getBooleanProperty(FULL_LOAD_PROPERTY, FULL_LOAD_DEFAULT))
+sqlPool.withSql { sql -> new ATPTennisLoader().refreshMaterializedView(sql, 'qualifier_ranking') }
 
 if (getBooleanProperty(VERBOSE_PROPERTY, VERBOSE_DEFAULT)) {
 	sqlPool.withSql { sql ->
@@ -8,11 +8,13 @@ class LoadParams {
 	static final String VERBOSE_PROPERTY = 'tcb.data.verbose'
 	static final String RECORD_PAUSE_PROPERTY = 'tcb.data.record-pause'
 	static final String FORCE_FORECAST_PROPERTY = 'tcb.data.force-forecast'
+	static final String FORECAST_SIMULATIONS_PROPERTY = 'tcb.data.forecast-simulations'
 
 	static final boolean FULL_LOAD_DEFAULT = true
 	static final boolean VERBOSE_DEFAULT = false
 	static final long RECORD_PAUSE_DEFAULT = 0L
 	static final boolean FORCE_FORECAST_DEFAULT = false
+	static final long FORECAST_SIMULATIONS_DEFAULT = 0L
 
 	static Boolean getBooleanProperty(String name, Boolean defValue = null) {
 		System.getProperty(name, defValue?.toString())?.toBoolean()
@@ -18,6 +18,7 @@ cli.nt('Load new completed tournaments')
 cli.nr('Load new rankings')
 cli.ip('Load in-progress tournaments')
 cli.ff('Force in-progress tournaments forecast')
+cli.fs(args: 1, argName: 'Forecast simulations', 'Number of simulated draws for in-progress tournaments current forecast [default 0 - exact forecast]')
 cli.el('Compute Elo ratings')
 cli.rc('Refresh computed data')
 cli.rr('Refresh Records')
@@ -84,6 +85,11 @@ def setProperties(def options) {
 
 	if (options.ff)
 		System.setProperty(FORCE_FORECAST_PROPERTY, 'true')
+
+	if (options.fs) {
+		def forecastSimulations = String.valueOf(options.getProperty('fs')).trim()
+		System.setProperty(FORECAST_SIMULATIONS_PROPERTY, forecastSimulations)
+	}
 	
 	if (options.rp) {
 		def recordsPause = String.valueOf(options.getProperty('rp')).trim()
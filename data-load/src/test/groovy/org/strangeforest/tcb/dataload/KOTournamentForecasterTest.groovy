@@ -86,6 +86,34 @@ class KOTournamentForecasterTest {
 //		assertThat(noDrawProbability(results, 3, 'W')).isCloseTo(0.166667d, OFFSET)
 	}
 
+	@Test
+	void "Simulation agrees with forecast"() {
+		TournamentMatchPredictor predictor = makePredictor()
+		def matches = [
+			[player1_id: 1, player2_id: 2, round: 'SF', player1_seed:    1, player2_seed: null],
+			[player1_id: 3, player2_id: 4, round: 'SF', player1_seed: null, player2_seed:    2]
+		]
+		KOTournamentForecaster forecaster = new KOTournamentForecaster(predictor, 1, matches, KOResult.SF, false)
+		def results = forecaster.simulate(100000, 1L)
+
+		assertThat(playerResult(results, 1, 'W').probability).isCloseTo(0.25d, Offset.offset(0.01d))
+	}
+
+	@Test
+	void "Simulation reports the same current results as forecast"() {
+		TournamentMatchPredictor predictor = makePredictor()
+		def matches = [
+			[player1_id: 1, player2_id: 2, round: 'SF', player1_seed:    1, player2_seed: null, winner: 1],
+			[player1_id: 3, player2_id: 4, round: 'SF', player1_seed: null, player2_seed:    2]
+		]
+		KOTournamentForecaster forecaster = new KOTournamentForecaster(predictor, 1, matches, KOResult.SF)
+
+		def resultKeys = { results -> results.collect { result -> "$result.player_id:$result.result".toString() }.toSet() }
+		def simulated = resultKeys(forecaster.simulate(10000, 1L))
+		assertThat(simulated).isEqualTo(resultKeys(forecaster.forecast()))
+		assertThat(simulated).doesNotContain('2:W')
+	}
+
 	def makePredictor() {
 		def predictor = mock(TournamentMatchPredictor.class)
 		when(predictor.getWinProbability(anyInt(), anyInt(), any(Round.class))).thenAnswer(new Answer<Object>() {
@@ -12,6 +12,8 @@ import org.springframework.test.context.testng.*;
 import org.strangeforest.tcb.stats.model.core.*;
 import org.strangeforest.tcb.stats.model.prediction.*;
 import org.strangeforest.tcb.stats.service.*;
+import org.strangeforest.tcb.stats.verification.*;
+import org.strangeforest.tcb.stats.verification.VerificationRules.*;
 import org.testng.annotations.*;
 
 import com.google.common.base.*;
@@ -32,6 +34,7 @@ public abstract class BasePredictionVerificationIT extends AbstractTestNGSpringC
 	private static final String PRICE_SOURCE = "B365";
 	private static final boolean BET_ON_OUTSIDER = false;
 	private static final boolean KELLY_STAKE = true;
+	private static final VerificationRules VERIFICATION_RULES = new VerificationRules(MIN_PREDICTABILITY, BET_ON_OUTSIDER, KELLY_STAKE);
 
 	private static final String MATCHES_QUERY = //language=SQL
 		"SELECT m.winner_id, m.loser_id, m.date, m.tournament_id, m.tournament_event_id, m.level, m.best_of, m.surface, m.indoor, m.round, m.winner_rank, m.loser_rank, p.winner_price, p.loser_price\n" +
@@ -79,35 +82,7 @@ public abstract class BasePredictionVerificationIT extends AbstractTestNGSpringC
 					short bestOf = match.bestOf;
 					PredictionConfig matchConfig = config != null ? config : PredictionConfig.defaultConfig(TUNING_SET_LEVEL.select(surface, indoor, level, bestOf));
 					MatchPrediction prediction = predictionService.predictMatch(match.winnerId, match.loserId, match.date, match.tournamentId, match.tournamentEventId, false, surface, indoor, level, bestOf, match.round, matchConfig);
-					boolean predictable = false, predicted = false, withPrice = false, beatingPrice = false, profitable = false;
-					double winnerProbability = 0.0, stake = 0.0, return_ = 0.0;
-					if (prediction.getPredictability1() > MIN_PREDICTABILITY) {
-						winnerProbability = prediction.getWinProbability1();
-						double loserProbability = prediction.getWinProbability2();
-						Double winnerPrice = match.winnerPrice;
-						Double loserPrice = match.loserPrice;
-						predictable = winnerProbability != 0.5;
-						if (winnerProbability > 0.5)
-							predicted = true;
-						if (winnerPrice != null || loserPrice != null) {
-							withPrice = true;
-							if (winnerProbability > 0.5 || BET_ON_OUTSIDER) {
-								if (winnerPrice != null && winnerProbability > 1.0 / winnerPrice) {
-									beatingPrice = true;
-									profitable = true;
-									stake = KELLY_STAKE ? kellyStake(winnerProbability, winnerPrice) : 1.0;
-									return_ = stake * winnerPrice;
-								}
-							}
-							if (loserProbability > 0.5 || BET_ON_OUTSIDER) {
-								if (loserPrice != null && loserProbability > 1.0 / loserPrice) {
-									beatingPrice = true;
-									stake = KELLY_STAKE ? kellyStake(loserProbability, loserPrice) : 1.0;
-								}
-							}
-						}
-					}
-					verificationResult.newMatch(match, predictable, winnerProbability, predicted, withPrice, beatingPrice, profitable, stake, return_);
+					verifyMatch(verificationResult, match, prediction.getPredictability1(), prediction.getWinProbability1(), prediction.getWinProbability2());
 				}
 				finally {
 					matchCount.countDown();
@@ -121,8 +96,34 @@ public abstract class BasePredictionVerificationIT extends AbstractTestNGSpringC
 		return verificationResult;
 	}
 
-	private static double kellyStake(double probability, double price) {
-		return (probability * price - 1) / (price - 1);
+	protected static void verifyMatch(PredictionVerificationResult verificationResult, MatchForVerification match, double predictability, double winProbability1, double winProbability2) {
+		MatchVerification verification = VERIFICATION_RULES.verifyMatch(predictability, winProbability1, winProbability2, match.winnerPrice, match.loserPrice);
+		verificationResult.newMatch(match, verification.predictable, verification.winnerProbability, verification.predicted, verification.withPrice, verification.beatingPrice, verification.profitable, verification.stake, verification.return_);
+	}
+
+	protected PredictionTuningEngine tuningEngine(LocalDate fromDate, LocalDate toDate, PredictionConfig config, TuningSet tuningSet, Comparator<PredictionResult> resultComparator) throws InterruptedException {
+		System.out.printf("\nComputing item probabilities from %1$s to %2$s\n", fromDate, toDate);
+		Stopwatch stopwatch = Stopwatch.createStarted();
+		PredictionConfig unitConfig = ItemProbabilityMatrix.unitWeights(config);
+		List<MatchForVerification> matches = matches(fromDate, toDate, tuningSet.getCondition());
+		ItemProbabilityMatrix matrix = new ItemProbabilityMatrix(matches.size());
+		CountDownLatch matchCount = new CountDownLatch(matches.size());
+		for (int i = 0; i < matches.size(); i++) {
+			int row = i;
+			MatchForVerification match = matches.get(row);
+			executor.execute(() -> {
+				try {
+					MatchPrediction prediction = predictionService.predictMatch(match.winnerId, match.loserId, match.date, match.tournamentId, match.tournamentEventId, false, match.surface, match.indoor, match.level, match.bestOf, match.round, unitConfig);
+					matrix.set(row, prediction, unitConfig);
+				}
+				finally {
+					matchCount.countDown();
+				}
+			});
+		}
+		matchCount.await();
+		System.out.printf("Item probabilities for %1$d matches computed in %2$s\n", matches.size(), stopwatch);
+		return new PredictionTuningEngine(matches, matrix, resultComparator, executor);
 	}
 
 	private List<MatchForVerification> matches(LocalDate date1, LocalDate date2, String condition) {
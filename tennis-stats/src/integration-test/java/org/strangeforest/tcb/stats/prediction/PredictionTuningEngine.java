@@ -0,0 +1,134 @@
+package org.strangeforest.tcb.stats.prediction;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.strangeforest.tcb.stats.model.prediction.*;
+
+import com.google.common.base.*;
+
+import static java.util.stream.Collectors.*;
+import static org.strangeforest.tcb.stats.prediction.BasePredictionVerificationIT.*;
+
+public class PredictionTuningEngine {
+
+	private final List<MatchForVerification> matches;
+	private final ItemProbabilityMatrix matrix;
+	private final Comparator<PredictionResult> resultComparator;
+	private final ExecutorService executor;
+	private final Map<PredictionConfig, PredictionVerificationResult> results;
+
+	public PredictionTuningEngine(List<MatchForVerification> matches, ItemProbabilityMatrix matrix, Comparator<PredictionResult> resultComparator, ExecutorService executor) {
+		this.matches = matches;
+		this.matrix = matrix;
+		this.resultComparator = resultComparator;
+		this.executor = executor;
+		results = new ConcurrentHashMap<>();
+	}
+
+	public PredictionVerificationResult evaluate(PredictionConfig config) {
+		return results.computeIfAbsent(config, this::doEvaluate);
+	}
+
+	private PredictionVerificationResult doEvaluate(PredictionConfig config) {
+		double[] itemWeights = ItemProbabilityMatrix.itemWeights(config);
+		double totalAreasWeight = config.getTotalAreasWeight();
+		PredictionVerificationResult verificationResult = new PredictionVerificationResult(config);
+		for (int row = 0, rows = matrix.rows(); row < rows; row++) {
+			double predictability = matrix.weight(row, itemWeights) / totalAreasWeight;
+			verifyMatch(verificationResult, matches.get(row), predictability, matrix.winProbability1(row, itemWeights), matrix.winProbability2(row, itemWeights));
+		}
+		verificationResult.complete();
+		return verificationResult;
+	}
+
+	public List<PredictionVerificationResult> evaluateAll(Collection<PredictionConfig> configs) throws InterruptedException {
+		List<Callable<PredictionVerificationResult>> tasks = configs.stream().map(config -> (Callable<PredictionVerificationResult>)() -> evaluate(config)).collect(toList());
+		List<PredictionVerificationResult> verificationResults = new ArrayList<>(tasks.size());
+		try {
+			for (Future<PredictionVerificationResult> future : executor.invokeAll(tasks))
+				verificationResults.add(future.get());
+		}
+		catch (ExecutionException ex) {
+			throw new IllegalStateException("Prediction evaluation failed", ex.getCause());
+		}
+		return verificationResults;
+	}
+
+	public PredictionVerificationResult coordinateDescent(PredictionConfig config, List<? extends Weighted> features, Integer maxCycles) throws InterruptedException {
+		Stopwatch stopwatch = Stopwatch.createStarted();
+		PredictionVerificationResult best = evaluate(config);
+		System.out.println("***** Initial result: " + best.getResult());
+		boolean improved = true;
+		for (int cycle = 1; improved && (maxCycles == null || cycle <= maxCycles); cycle++) {
+			improved = false;
+			for (Weighted feature : features) {
+				PredictionVerificationResult featureBest = bestResult(evaluateAll(coordinateConfigs(best.getResult().getConfig(), feature)));
+				if (featureBest != null && isBetter(featureBest, best)) {
+					best = featureBest;
+					improved = true;
+					System.out.printf("*** Cycle %1$d, %2$s = %3$s: %4$s\n", cycle, feature, feature.getWeight(best.getResult().getConfig()), best.getResult());
+				}
+			}
+			System.out.printf("***** Cycle %1$d finished [results: %2$d, elapsed: %3$s]: %4$s\n", cycle, results.size(), stopwatch, best.getResult());
+		}
+		return best;
+	}
+
+	public PredictionVerificationResult randomRestarts(PredictionConfig config, List<? extends Weighted> features, int restarts, long seed, Integer maxCycles) throws InterruptedException {
+		Random random = new Random(seed);
+		PredictionVerificationResult best = coordinateDescent(config, features, maxCycles);
+		for (int restart = 1; restart <= restarts; restart++) {
+			PredictionConfig startConfig = randomConfig(config, features, random);
+			System.out.printf("\n***** Restart %1$d of %2$d\n", restart, restarts);
+			printWeights(startConfig, true);
+			PredictionVerificationResult result = coordinateDescent(startConfig, features, maxCycles);
+			if (isBetter(result, best)) {
+				best = result;
+				System.out.println("***** New best result: " + best.getResult());
+			}
+		}
+		System.out.println("***** Best result: " + best.getResult());
+		printWeights(best.getResult().getConfig(), false);
+		return best;
+	}
+
+	private static List<PredictionConfig> coordinateConfigs(PredictionConfig config, Weighted feature) {
+		List<PredictionConfig> configs = new ArrayList<>();
+		double current = feature.getWeight(config);
+		for (double weight = feature.minWeight(); weight <= feature.maxWeight(); weight += feature.weightStep()) {
+			if (weight != current) {
+				PredictionConfig newConfig = feature.setWeight(config, weight);
+				if (newConfig.isAnyAreaEnabled())
+					configs.add(newConfig);
+			}
+		}
+		return configs;
+	}
+
+	private static PredictionConfig randomConfig(PredictionConfig config, List<? extends Weighted> features, Random random) {
+		PredictionConfig randomConfig;
+		do {
+			randomConfig = config;
+			for (Weighted feature : features) {
+				int steps = (int)Math.round((feature.maxWeight() - feature.minWeight()) / feature.weightStep());
+				randomConfig = feature.setWeight(randomConfig, feature.minWeight() + random.nextInt(steps + 1) * feature.weightStep());
+			}
+		}
+		while (!randomConfig.isAnyAreaEnabled());
+		return randomConfig;
+	}
+
+	private PredictionVerificationResult bestResult(List<PredictionVerificationResult> verificationResults) {
+		PredictionVerificationResult best = null;
+		for (PredictionVerificationResult result : verificationResults) {
+			if (best == null || isBetter(result, best))
+				best = result;
+		}
+		return best;
+	}
+
+	private boolean isBetter(PredictionVerificationResult result1, PredictionVerificationResult result2) {
+		return resultComparator.compare(result1.getResult(), result2.getResult()) > 0;
+	}
+}
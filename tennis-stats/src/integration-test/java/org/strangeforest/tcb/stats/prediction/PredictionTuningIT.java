@@ -2,6 +2,7 @@ package org.strangeforest.tcb.stats.prediction;
 
 import java.io.*;
 import java.time.*;
+import java.util.*;
 import java.util.function.*;
 import java.util.stream.*;
 
@@ -23,6 +24,8 @@ public class PredictionTuningIT extends BasePredictionVerificationIT {
 	private static final TuningSet TUNING_SET = TuningSet.OVERALL;
 	private static final Function<PredictionResult, Double> METRICS = PredictionResult::getScore;
 	private static final boolean SAVE_BEST_CONFIG = false;
+	private static final int RANDOM_RESTARTS = 10;
+	private static final long RANDOM_SEED = 1L;
 
 
 	// Starting from default weights
@@ -73,6 +76,23 @@ public class PredictionTuningIT extends BasePredictionVerificationIT {
 	}
 
 
+	// Tuning engine over cached item probabilities
+
+	@Test
+	public void engineTuneDefaultPrediction() throws InterruptedException {
+		PredictionConfig config = PredictionConfig.defaultConfig(TUNING_SET);
+		PredictionTuningEngine engine = tuningEngine(FROM_DATE, TO_DATE, config, TUNING_SET, comparing(METRICS));
+		saveBestConfig(engine.coordinateDescent(config, allFeatures(), null));
+	}
+
+	@Test
+	public void engineTuneDefaultPredictionWithRandomRestarts() throws InterruptedException {
+		PredictionConfig config = PredictionConfig.defaultConfig(TUNING_SET);
+		PredictionTuningEngine engine = tuningEngine(FROM_DATE, TO_DATE, config, TUNING_SET, comparing(METRICS));
+		saveBestConfig(engine.randomRestarts(config, allFeatures(), RANDOM_RESTARTS, RANDOM_SEED, null));
+	}
+
+
 	// Starting from equal weights
 
 	@Test @Ignore
@@ -114,7 +134,11 @@ public class PredictionTuningIT extends BasePredictionVerificationIT {
 	// Tuning
 
 	private void doTunePrediction(PredictionConfig config, Integer maxSteps) throws InterruptedException {
-		tunePrediction(config,  Stream.of(PredictionArea.values()).flatMap(area -> Stream.of(area.getAreaAndItems())).collect(toList()), METRICS, maxSteps);
+		tunePrediction(config, allFeatures(), METRICS, maxSteps);
+	}
+
+	private static List<Weighted> allFeatures() {
+		return Stream.of(PredictionArea.values()).flatMap(area -> Stream.of(area.getAreaAndItems())).collect(toList());
 	}
 
 	private void doTunePredictionByArea(PredictionConfig config, Integer maxSteps) throws InterruptedException {
@@ -157,23 +181,28 @@ public class PredictionTuningIT extends BasePredictionVerificationIT {
 		if (context.nextResult(result)) {
 			printWeights(config, false);
 			printResultDistribution(result);
-			if (SAVE_BEST_CONFIG) {
-				try (PrintStream out = new PrintStream(new FileOutputStream("tennis-stats/src/main/resources" + PredictionConfig.getConfigFileName(TUNING_SET)))) {
-					out.println("# TENNIS CRYSTAL BALL - " + TUNING_SET);
-					out.println("# " + result.getResult());
-					out.println("# " + result.getProbabilityRangeResults());
-					out.println("# " + result.getSurfaceResults());
-					out.println("# " + result.getLevelResults());
-					out.println("# " + result.getBestOfResults());
-					out.println("# " + result.getRankRangeResults());
-					out.println("# Tuned at: " + LocalDateTime.now());
-					out.println();
-					config.save(out);
-					out.flush();
-				}
-				catch (FileNotFoundException ex) {
-					throw new IllegalArgumentException("Cannot save config", ex);
-				}
+			saveBestConfig(result);
+		}
+	}
+
+	private void saveBestConfig(PredictionVerificationResult verificationResult) {
+		if (SAVE_BEST_CONFIG) {
+			PredictionResult result = verificationResult.getResult();
+			try (PrintStream out = new PrintStream(new FileOutputStream("tennis-stats/src/main/resources" + PredictionConfig.getConfigFileName(TUNING_SET)))) {
+				out.println("# TENNIS CRYSTAL BALL - " + TUNING_SET);
+				out.println("# " + result);
+				out.println("# " + verificationResult.getProbabilityRangeResults());
+				out.println("# " + verificationResult.getSurfaceResults());
+				out.println("# " + verificationResult.getLevelResults());
+				out.println("# " + verificationResult.getBestOfResults());
+				out.println("# " + verificationResult.getRankRangeResults());
+				out.println("# Tuned at: " + LocalDateTime.now());
+				out.println();
+				result.getConfig().save(out);
+				out.flush();
+			}
+			catch (FileNotFoundException ex) {
+				throw new IllegalArgumentException("Cannot save config", ex);
 			}
 		}
 	}
@@ -18,6 +18,7 @@ import static org.strangeforest.tcb.stats.util.OrderBy.*;
 public class InProgressEventsResource {
 
 	@Autowired private TournamentForecastService forecastService;
+	@Autowired private InProgressMatchForecastService inProgressMatchForecastService;
 
 	private static Map<String, String> ORDER_MAP = ImmutableMap.<String, String>builder()
 		.put("date", "date")
@@ -39,4 +40,74 @@ public class InProgressEventsResource {
 		String orderBy = BootgridUtil.getOrderBy(requestParams, ORDER_MAP, DEFAULT_ORDER);
 		return forecastService.getInProgressEventsTable(orderBy, priceFormat);
 	}
+
+	@GetMapping("/inProgressEventWhatIf")
+	public WhatIfForecast inProgressEventWhatIf(
+		@RequestParam(name = "inProgressEventId") int inProgressEventId,
+		@RequestParam(name = "winner", required = false) String[] winner,
+		@RequestParam(name = "loser", required = false) String[] loser,
+		@RequestParam(name = "withdrawn", required = false) int[] withdrawn,
+		@RequestParam(name = "luckyLoser", required = false) String[] luckyLoser
+	) {
+		WhatIfScenario scenario = new WhatIfScenario();
+		if (luckyLoser != null) {
+			for (String substitution : luckyLoser) {
+				String[] playerIds = splitParam(substitution, "luckyLoser");
+				scenario.substitute(parsePlayerId(playerIds[0], substitution, "luckyLoser"), parsePlayerId(playerIds[1], substitution, "luckyLoser"));
+			}
+		}
+		if (winner != null) {
+			for (String result : winner)
+				forceResult(scenario, result, "winner", true);
+		}
+		if (loser != null) {
+			for (String result : loser)
+				forceResult(scenario, result, "loser", false);
+		}
+		if (withdrawn != null) {
+			for (int playerId : withdrawn)
+				scenario.withdraw(playerId);
+		}
+		return forecastService.getInProgressEventWhatIfForecaster(inProgressEventId).forecast(scenario);
+	}
+
+	private static void forceResult(WhatIfScenario scenario, String param, String name, boolean won) {
+		String[] result = splitParam(param, name);
+		KOResult round;
+		try {
+			round = KOResult.valueOf(result[1]);
+		}
+		catch (IllegalArgumentException ex) {
+			throw invalidParam(param, name);
+		}
+		scenario.forceResult(parsePlayerId(result[0], param, name), round, won);
+	}
+
+	// Parameter pairs are in form 'playerId:round' for results and 'playerId:luckyLoserId' for substitutions
+	private static String[] splitParam(String param, String name) {
+		String[] values = param.split(":");
+		if (values.length != 2)
+			throw invalidParam(param, name);
+		return values;
+	}
+
+	private static int parsePlayerId(String playerId, String param, String name) {
+		try {
+			return Integer.parseInt(playerId);
+		}
+		catch (NumberFormatException ex) {
+			throw invalidParam(param, name);
+		}
+	}
+
+	private static InvalidArgumentException invalidParam(String param, String name) {
+		return new InvalidArgumentException(String.format("Invalid %1$s parameter: %2$s", name, param));
+	}
+
+	@GetMapping("/inProgressMatchForecast")
+	public InProgressMatchForecast inProgressMatchForecast(
+		@RequestParam(name = "inProgressMatchId") long inProgressMatchId
+	) {
+		return inProgressMatchForecastService.getInProgressMatchForecast(inProgressMatchId);
+	}
 }
@@ -0,0 +1,49 @@
+package org.strangeforest.tcb.stats.controller;
+
+import java.time.*;
+import java.util.*;
+
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.format.annotation.*;
+import org.springframework.web.bind.annotation.*;
+import org.strangeforest.tcb.stats.model.core.*;
+import org.strangeforest.tcb.stats.model.prediction.*;
+import org.strangeforest.tcb.stats.service.*;
+import org.strangeforest.tcb.stats.util.*;
+
+import static org.strangeforest.tcb.util.DateUtil.*;
+
+@RestController
+public class MatchPredictionResource {
+
+	@Autowired private MatchPredictionService matchPredictionService;
+
+	// Keeps all matrix predictions (n * (n - 1) / 2) well within prediction cache size
+	private static final int MAX_MATRIX_PLAYERS = 64;
+
+	@GetMapping("/matchPredictionMatrix")
+	public MatchupPredictions matchPredictionMatrix(
+		@RequestParam(name = "playerId") int[] playerId,
+		@RequestParam(name = "date", required = false) @DateTimeFormat(pattern = DATE_FORMAT) LocalDate date,
+		@RequestParam(name = "surface", required = false) String surface,
+		@RequestParam(name = "indoor", required = false) Boolean indoor,
+		@RequestParam(name = "level", required = false) String level,
+		@RequestParam(name = "bestOf", required = false) Short bestOf,
+		@RequestParam(name = "round", required = false) String round
+	) {
+		// Sorted and distinct, so each pair is predicted once and always in the same order
+		int[] playerIds = Arrays.stream(playerId).sorted().distinct().toArray();
+		if (playerIds.length > MAX_MATRIX_PLAYERS)
+			throw new InvalidArgumentException("Too many players: " + playerIds.length);
+		List<Matchup> matchups = new ArrayList<>(playerIds.length * (playerIds.length - 1) / 2);
+		for (int i = 0; i < playerIds.length; i++) {
+			for (int j = i + 1; j < playerIds.length; j++)
+				matchups.add(new Matchup(playerIds[i], playerIds[j]));
+		}
+		MatchupContext context = new MatchupContext(
+			date != null ? date : LocalDate.now(), null, null, true,
+			Surface.safeDecode(surface), indoor, TournamentLevel.safeDecode(level), bestOf, Round.safeDecode(round)
+		);
+		return matchPredictionService.predictMatches(matchups, context);
+	}
+}
@@ -1,5 +1,7 @@
 package org.strangeforest.tcb.stats.jobs;
 
+import java.util.*;
+
 import org.slf4j.*;
 import org.springframework.beans.factory.annotation.*;
 import org.springframework.context.annotation.*;
@@ -13,6 +15,7 @@ public class InProgressEventsJob {
 
 	@Autowired private DataLoadCommand dataLoadCommand;
 	@Autowired private DataService dataService;
+	@Autowired private MatchPredictionService matchPredictionService;
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(InProgressEventsJob.class);
 
@@ -27,13 +30,16 @@ public class InProgressEventsJob {
 	}
 
 	private void reloadInProgressEvents(String[] params) {
-		if (dataLoadCommand.execute("ReloadInProgressEvents", params) == 0)
-			clearCaches();
+		Set<Integer> playerIds = matchPredictionService.getInProgressPlayerIds();
+		if (dataLoadCommand.execute("ReloadInProgressEvents", params) == 0) {
+			playerIds.addAll(matchPredictionService.getInProgressPlayerIds());
+			clearCaches(playerIds);
+		}
 	}
 
-	private void clearCaches() {
+	private void clearCaches(Set<Integer> playerIds) {
 		dataService.evictGlobal("InProgressEvents");
-		int cacheCount = dataService.clearCaches("InProgressEvent.*");
-		LOGGER.info("{} cache(s) cleared.", cacheCount);
+		int cacheCount = dataService.clearCaches("InProgressEvent.*", playerIds);
+		LOGGER.info("{} cache(s) cleared, prediction data invalidated for {} player(s).", cacheCount, playerIds.size());
 	}
 }
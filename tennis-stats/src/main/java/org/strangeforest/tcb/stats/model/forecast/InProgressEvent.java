@@ -67,6 +67,10 @@ public class InProgressEvent {
 		return indoor;
 	}
 
+	public String getDrawType() {
+		return drawType;
+	}
+
 	public String getDraw() {
 		return drawType + (drawSize != null ? " " + drawSize : "");
 	}
@@ -0,0 +1,89 @@
+package org.strangeforest.tcb.stats.model.forecast;
+
+public class InProgressMatchForecast {
+
+	private final long inProgressMatchId;
+	private final int playerId1;
+	private final int playerId2;
+	private final short bestOf;
+	private final int sets1;
+	private final int sets2;
+	private final int games1;
+	private final int games2;
+	private final double preMatchProbability1;
+	private final double pServe1;
+	private final double pReturn1;
+	private final double winProbability1;
+
+	public InProgressMatchForecast(long inProgressMatchId, int playerId1, int playerId2, short bestOf, int sets1, int sets2, int games1, int games2,
+	                               double preMatchProbability1, double pServe1, double pReturn1, double winProbability1) {
+		this.inProgressMatchId = inProgressMatchId;
+		this.playerId1 = playerId1;
+		this.playerId2 = playerId2;
+		this.bestOf = bestOf;
+		this.sets1 = sets1;
+		this.sets2 = sets2;
+		this.games1 = games1;
+		this.games2 = games2;
+		this.preMatchProbability1 = preMatchProbability1;
+		this.pServe1 = pServe1;
+		this.pReturn1 = pReturn1;
+		this.winProbability1 = winProbability1;
+	}
+
+	public long getInProgressMatchId() {
+		return inProgressMatchId;
+	}
+
+	public int getPlayerId1() {
+		return playerId1;
+	}
+
+	public int getPlayerId2() {
+		return playerId2;
+	}
+
+	public short getBestOf() {
+		return bestOf;
+	}
+
+	public int getSets1() {
+		return sets1;
+	}
+
+	public int getSets2() {
+		return sets2;
+	}
+
+	public int getGames1() {
+		return games1;
+	}
+
+	public int getGames2() {
+		return games2;
+	}
+
+	public double getPreMatchProbability1() {
+		return preMatchProbability1;
+	}
+
+	public double getPreMatchProbability2() {
+		return 1.0 - preMatchProbability1;
+	}
+
+	public double getPServe1() {
+		return pServe1;
+	}
+
+	public double getPReturn1() {
+		return pReturn1;
+	}
+
+	public double getWinProbability1() {
+		return winProbability1;
+	}
+
+	public double getWinProbability2() {
+		return 1.0 - winProbability1;
+	}
+}
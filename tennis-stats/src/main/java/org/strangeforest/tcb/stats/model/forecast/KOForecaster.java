@@ -0,0 +1,482 @@
+package org.strangeforest.tcb.stats.model.forecast;
+
+import java.util.*;
+import java.util.function.*;
+
+import org.strangeforest.tcb.stats.model.core.*;
+
+public class KOForecaster {
+
+	public enum ProbabilityType { DEFAULT, AVG_DRAW, NO_DRAW }
+
+	@FunctionalInterface
+	public interface WinProbabilities {
+		double getWinProbability(int playerId1, int playerId2, Round round);
+	}
+
+	static final byte WON = 1;
+	static final byte LOST = 2;
+	static final int BYE = -1;
+
+	private final WinProbabilities winProbabilities;
+	final KOResult baseResult;
+	final boolean current;
+	private final boolean drawLuck;
+	final int rounds;
+	final int[] slotPlayers; // <slot, player index or BYE>
+	private final Map<Integer, Integer> playerIndexes = new HashMap<>(); // <playerId, player index>
+	final int[] playerIds; // <player index, playerId>
+	private final int[] playerSlots; // <player index, slot>
+	private final int[] playerSeeds; // <player index, seed or 0>
+	final byte[][] matchResults; // <player index, round, WON/LOST or 0 if not played>
+	private final double[][][] matrices; // <round, player index, player index>, lazily filled pairwise win probabilities
+	private double[][] previousProbabilities; // <round, player index>, previous forecast to reuse outside of changed sub-brackets
+	private boolean[][] changedSubBrackets; // <round, sub-bracket>
+	private final int playerCount, seedCount, byeCount, nonSeedsPerSeed;
+	private final int drawSize;
+	private final KOResult seedResult;
+
+	// Entries are player ids per base round draw slot (negative ids are qualifier placeholders, 0 is a bye), seeds are 0 for unseeded
+	public KOForecaster(KOResult baseResult, int[] entries, int[] seeds, boolean current, boolean drawLuck, WinProbabilities winProbabilities) {
+		this.winProbabilities = winProbabilities;
+		this.baseResult = baseResult;
+		this.current = current;
+		this.drawLuck = drawLuck;
+		rounds = KOResult.W.ordinal() - baseResult.ordinal();
+		int slots = entries.length;
+		slotPlayers = new int[slots];
+		int[] ids = new int[slots], playerSlots = new int[slots], playerSeeds = new int[slots];
+		for (int slot = 0; slot < slots; slot++) {
+			int playerId = entries[slot];
+			if (playerId != 0) {
+				Integer index = playerIndexes.get(playerId);
+				if (index == null) {
+					index = playerIndexes.size();
+					playerIndexes.put(playerId, index);
+					ids[index] = playerId;
+				}
+				playerSlots[index] = slot;
+				if (seeds[slot] > 0)
+					playerSeeds[index] = seeds[slot];
+				slotPlayers[slot] = index;
+			}
+			else
+				slotPlayers[slot] = BYE;
+		}
+		playerCount = playerIndexes.size();
+		playerIds = Arrays.copyOf(ids, playerCount);
+		this.playerSlots = Arrays.copyOf(playerSlots, playerCount);
+		this.playerSeeds = Arrays.copyOf(playerSeeds, playerCount);
+		matchResults = new byte[playerCount][rounds];
+		matrices = new double[rounds][][];
+		drawSize = roundToPowerOf2(playerCount);
+		byeCount = drawSize - playerCount;
+		seedCount = (int)Arrays.stream(this.playerSeeds).filter(seed -> seed > 0).count();
+		seedResult = seedResult(seedCount);
+		nonSeedsPerSeed = (1 << seedResult.ordinal() - baseResult.ordinal()) - 1;
+	}
+
+	public void setMatchResult(int playerId, KOResult result, boolean won) {
+		int round = result.ordinal() - baseResult.ordinal();
+		if (round < 0 || round >= rounds)
+			return;
+		Integer player = playerIndexes.get(playerId);
+		if (player != null)
+			matchResults[player][round] = won ? WON : LOST;
+	}
+
+	public void setPreviousProbability(int playerId, KOResult result, double probability) {
+		int round = result.ordinal() - baseResult.ordinal();
+		Integer player = playerIndexes.get(playerId);
+		if (round <= 0 || round > rounds || player == null)
+			return;
+		if (previousProbabilities == null) {
+			previousProbabilities = new double[rounds + 1][playerCount];
+			for (double[] roundProbabilities : previousProbabilities)
+				Arrays.fill(roundProbabilities, Double.NaN);
+		}
+		previousProbabilities[round][player] = probability;
+	}
+
+	// Marks the sub-brackets containing the player's match in the round and all later rounds for recomputation
+	public void setChangedMatch(int playerId, KOResult result) {
+		int round = result.ordinal() - baseResult.ordinal();
+		Integer player = playerIndexes.get(playerId);
+		if (round < 0 || round >= rounds || player == null)
+			return;
+		if (changedSubBrackets == null) {
+			changedSubBrackets = new boolean[rounds][];
+			for (int r = 0; r < rounds; r++)
+				changedSubBrackets[r] = new boolean[Math.max(1, slotPlayers.length >> (r + 1))];
+		}
+		int slot = playerSlots[player];
+		for (int r = round; r < rounds; r++)
+			changedSubBrackets[r][Math.min(slot >> (r + 1), changedSubBrackets[r].length - 1)] = true;
+	}
+
+	public int getPlayerCount() {
+		return playerCount;
+	}
+
+	public int getDrawSize() {
+		return drawSize;
+	}
+
+	public int getSeedCount() {
+		return seedCount;
+	}
+
+	public int getByeCount() {
+		return byeCount;
+	}
+
+	public KOResult getSeedResult() {
+		return seedResult;
+	}
+
+
+	// Forecast
+
+	public List<PlayerResult> forecast() {
+		int types = drawLuck ? ProbabilityType.values().length : 1;
+		double[][][] reach = new double[types][rounds + 1][playerCount]; // <type, round, player index>
+		for (double[][] typeReach : reach) {
+			for (double[] roundReach : typeReach)
+				Arrays.fill(roundReach, 1.0);
+		}
+		List<PlayerResult> results = new ArrayList<>();
+		for (int round = 0; round < rounds; round++) {
+			KOResult nextResult = resultOf(round + 1);
+			int fromIndex = results.size();
+			for (int player = 0; player < playerCount; player++) {
+				Double probability;
+				if (isReusable(player, round))
+					probability = previousProbabilities[round + 1][player];
+				else
+					probability = getProbability(reach, player, round, ProbabilityType.DEFAULT);
+				if (probability == null)
+					continue;
+				reach[ProbabilityType.DEFAULT.ordinal()][round + 1][player] = probability;
+				Double avgDrawProbability = null, noDrawProbability = null;
+				if (drawLuck) {
+					avgDrawProbability = getProbability(reach, player, round, ProbabilityType.AVG_DRAW);
+					if (avgDrawProbability != null)
+						reach[ProbabilityType.AVG_DRAW.ordinal()][round + 1][player] = avgDrawProbability;
+					noDrawProbability = getProbability(reach, player, round, ProbabilityType.NO_DRAW);
+					if (noDrawProbability != null)
+						reach[ProbabilityType.NO_DRAW.ordinal()][round + 1][player] = noDrawProbability;
+				}
+				// Qualifier placeholders take part in the forecast, but are not reported
+				if (playerIds[player] > 0)
+					results.add(new PlayerResult(playerIds[player], nextResult, probability, avgDrawProbability, noDrawProbability));
+			}
+			if (drawLuck && !current)
+				normalizeDrawLuckResults(results.subList(fromIndex, results.size()), round + 1);
+		}
+		return results;
+	}
+
+	// Previous probabilities are reused for the default type only, when the player's sub-bracket has no changed matches up to the round
+	private boolean isReusable(int player, int round) {
+		if (previousProbabilities == null || drawLuck || Double.isNaN(previousProbabilities[round + 1][player]))
+			return false;
+		if (changedSubBrackets == null)
+			return true;
+		boolean[] roundChanges = changedSubBrackets[round];
+		return !roundChanges[Math.min(playerSlots[player] >> (round + 1), roundChanges.length - 1)];
+	}
+
+	private void normalizeDrawLuckResults(List<PlayerResult> results, int round) {
+		double avgDrawAdj = 0.0, noDrawAdj = 0.0;
+		for (PlayerResult result : results) {
+			avgDrawAdj += result.avgDrawProbability;
+			noDrawAdj += result.noDrawProbability;
+		}
+		double adj = (double)potentialOpponentCount(round) / drawSize;
+		avgDrawAdj *= adj;
+		noDrawAdj *= adj;
+		for (PlayerResult result : results) {
+			result.avgDrawProbability /= avgDrawAdj;
+			result.noDrawProbability /= noDrawAdj;
+		}
+	}
+
+	private Double getProbability(double[][][] reach, int player, int round, ProbabilityType type) {
+		double[][] typeReach = reach[type.ordinal()];
+		double baseProbability = typeReach[round][player];
+		if (current) {
+			if (baseProbability == 0.0) {
+				typeReach[round + 1][player] = 0.0;
+				return null;
+			}
+			byte matchResult = matchResults[player][round];
+			if (matchResult == WON)
+				return 1.0;
+			else if (matchResult == LOST)
+				return 0.0;
+		}
+		switch (type) {
+			case DEFAULT: return baseProbability * drawProbability(typeReach[round], player, round);
+			case AVG_DRAW: return baseProbability * avgDrawProbability(typeReach[round], player, round);
+			case NO_DRAW: return baseProbability * noDrawProbability(typeReach[round], player, round);
+			default: throw new IllegalArgumentException("Unknown probability type: " + type);
+		}
+	}
+
+	// Sub-bracket convolution: opponents are players from the sibling sub-bracket of the current round size
+	private double drawProbability(double[] roundReach, int player, int round) {
+		int subBracketSize = 1 << round;
+		int fromSlot = ((playerSlots[player] >> round) ^ 1) << round;
+		int toSlot = Math.min(fromSlot + subBracketSize, slotPlayers.length);
+		double probability = 0.0;
+		boolean hasOpponents = false;
+		for (int slot = fromSlot; slot < toSlot; slot++) {
+			int opponent = slotPlayers[slot];
+			if (opponent != BYE) {
+				// Eliminated opponents do not contribute, so their win probabilities are not needed
+				double opponentReach = roundReach[opponent];
+				if (opponentReach > 0.0)
+					probability += opponentReach * winProbability(round, player, opponent);
+				hasOpponents = true;
+			}
+		}
+		return hasOpponents ? probability : 1.0;
+	}
+
+	private double avgDrawProbability(double[] roundReach, int player, int round) {
+		int seed = playerSeeds[player];
+		IntToDoubleFunction playerWeight = playerWeightFunction(round, player);
+		return seed > 0 && hasBye(round, seed)
+			? slotsProbability(roundReach, player, round, playerWeight)
+			: playersProbability(roundReach, player, round, playerWeight);
+	}
+
+	private double noDrawProbability(double[] roundReach, int player, int round) {
+		double weight = equalWeightsWithBye(round);
+		IntToDoubleFunction playerWeight = opponent -> weight;
+		return round == 0
+			? slotsProbability(roundReach, player, round, playerWeight)
+			: playersProbability(roundReach, player, round, playerWeight);
+	}
+
+	private double slotsProbability(double[] roundReach, int player, int round, IntToDoubleFunction playerWeight) {
+		double probability = 0.0;
+		boolean hasOpponents = false;
+		for (int opponent : slotPlayers) {
+			if (opponent != player) {
+				probability += opponentProbability(roundReach, player, opponent, round, playerWeight);
+				hasOpponents = true;
+			}
+		}
+		return hasOpponents ? probability : 1.0;
+	}
+
+	private double playersProbability(double[] roundReach, int player, int round, IntToDoubleFunction playerWeight) {
+		if (playerCount <= 1)
+			return 1.0;
+		double probability = 0.0;
+		for (int opponent = 0; opponent < playerCount; opponent++) {
+			if (opponent != player)
+				probability += opponentProbability(roundReach, player, opponent, round, playerWeight);
+		}
+		return probability;
+	}
+
+	private double opponentProbability(double[] roundReach, int player, int opponent, int round, IntToDoubleFunction playerWeight) {
+		double weight = playerWeight.applyAsDouble(opponent);
+		if (!(weight > 0.0))
+			return 0.0;
+		double opponentProbability = opponent != BYE ? roundReach[opponent] * winProbability(round, player, opponent) : 1.0;
+		return opponentProbability * weight;
+	}
+
+	// Fills all pairs that can meet in the draw, for concurrent read-only use
+	// Pairs with a player that already played the round or was eliminated before it are never simulated, so they are skipped
+	double[][][] drawWinProbabilities() {
+		for (int round = 0; round < rounds; round++) {
+			for (int slot = 0; slot < slotPlayers.length; slot++) {
+				int player = slotPlayers[slot];
+				if (player == BYE || isDecided(round, player))
+					continue;
+				int fromSlot = ((slot >> round) ^ 1) << round;
+				int toSlot = Math.min(fromSlot + (1 << round), slotPlayers.length);
+				for (int opponentSlot = fromSlot; opponentSlot < toSlot; opponentSlot++) {
+					int opponent = slotPlayers[opponentSlot];
+					if (opponent != BYE && opponent != player && !isDecided(round, opponent))
+						winProbability(round, player, opponent);
+				}
+			}
+		}
+		return matrices;
+	}
+
+	private boolean isDecided(int round, int player) {
+		if (!current)
+			return false;
+		byte[] results = matchResults[player];
+		for (int r = 0; r < round; r++) {
+			if (results[r] == LOST)
+				return true;
+		}
+		return results[round] != 0;
+	}
+
+	private double winProbability(int round, int player1, int player2) {
+		double[][] matrix = matrices[round];
+		if (matrix == null) {
+			matrix = new double[playerCount][playerCount];
+			for (double[] row : matrix)
+				Arrays.fill(row, Double.NaN);
+			matrices[round] = matrix;
+		}
+		double probability = matrix[player1][player2];
+		if (Double.isNaN(probability)) {
+			probability = winProbabilities.getWinProbability(playerIds[player1], playerIds[player2], Round.valueOf(resultOf(round).name()));
+			matrix[player1][player2] = probability;
+			matrix[player2][player1] = 1.0 - probability;
+		}
+		return probability;
+	}
+
+
+	// Draw Luck Weights
+
+	private IntToDoubleFunction playerWeightFunction(int round, int player) {
+		int seed = playerSeeds[player];
+		if (resultOf(round).compareTo(seedResult) < 0) {
+			if (seed > 0) {
+				if (hasBye(round, seed))
+					return opponent -> opponent == BYE ? 1.0 / byeCount : 0.0;
+				else
+					return seedWeight(0.0, 0.0, (double)potentialOpponentCount(round) / (playerCount - seedCount));
+			}
+			else if (byeCount > 0) {
+				if (round == 0) {
+					double weight = 1.0 / (playerCount - byeCount - 1);
+					return seedWeight(0.0, weight, weight);
+				}
+				else if (round == 1) {
+					int nonSeedCount = playerCount - seedCount;
+					double byedSeedWeight = (double)byeCount / nonSeedCount;
+					double seedWeight = (seedCount - byeCount) / (2.0 * nonSeedCount);
+					double nonSeedWeight = 2.0 * (seedCount - byeCount) / (nonSeedCount * (nonSeedCount - 1));
+					return seedWeight(byedSeedWeight, seedWeight, nonSeedWeight);
+				}
+			}
+			else {
+				double seedWeight = 1.0 / (nonSeedsPerSeed * seedCount);
+				double nonSeedWeight = 1.0 * (nonSeedsPerSeed - 1) / (nonSeedsPerSeed * (playerCount - seedCount - 1));
+				return seedWeight(seedWeight, seedWeight, nonSeedWeight);
+			}
+		}
+		else if (seed > 0)
+			return drawSeedWeight(seed, round);
+		double weight = equalWeights(round);
+		return opponent -> weight;
+	}
+
+	private IntToDoubleFunction seedWeight(double byedSeedWeight, double seedWeight, double nonSeedWeight) {
+		return opponent -> {
+			int seed = opponent != BYE ? playerSeeds[opponent] : 0;
+			return seed > 0 ? (seed <= byeCount ? byedSeedWeight : seedWeight) : nonSeedWeight;
+		};
+	}
+
+	private IntToDoubleFunction drawSeedWeight(int playerSeed, int round) {
+		double equalWeights = equalWeights(round);
+		int seedRound = resultOf(round).ordinal() - seedResult.ordinal();
+		double halfSeed = seedCount / 2.0;
+		double quarterSeed = seedCount / 4.0;
+		return opponent -> {
+			int seed = opponent != BYE ? playerSeeds[opponent] : 0;
+			if (seed > 0) {
+				if (seedRound == 0) {
+					if ((playerSeed <= halfSeed && seed > halfSeed) || (playerSeed > halfSeed && seed <= halfSeed))
+						return (2.0 * (seedCount - 1)) / seedCount * equalWeights;
+					else
+						return 0.0;
+				}
+				else if (seedRound == 1 && playerSeed <= halfSeed) {
+					if ((playerSeed <= quarterSeed && seed > quarterSeed) || (playerSeed > quarterSeed && (seed <= quarterSeed || seed > halfSeed)))
+						return (4.0 * (seedCount - 1)) / (3.0 * seedCount) * equalWeights;
+					else
+						return 0.0;
+				}
+			}
+			return equalWeights;
+		};
+	}
+
+	private double equalWeightsWithBye(int round) {
+		return (double)potentialOpponentCount(round) / (availablePlayerCount(round) - 1);
+	}
+
+	private double equalWeights(int round) {
+		return (double)potentialOpponentCount(round) / (playerCount - 1);
+	}
+
+	private static int potentialOpponentCount(int round) {
+		return 1 << round;
+	}
+
+	private int availablePlayerCount(int round) {
+		return round == 0 ? drawSize : playerCount;
+	}
+
+	private boolean hasBye(int round, int seed) {
+		return round == 0 && byeCount > 0 && seed <= byeCount;
+	}
+
+
+	// Utility
+
+	private KOResult resultOf(int round) {
+		return KOResult.values()[baseResult.ordinal() + round];
+	}
+
+	private static int roundToPowerOf2(int i) {
+		int p2 = 1;
+		while (p2 < i)
+			p2 <<= 1;
+		return p2;
+	}
+
+	private static KOResult seedResult(int seedCount) {
+		KOResult result = KOResult.W;
+		int count = 1;
+		while (result.hasPrev() && count < seedCount) {
+			result = result.prev();
+			count *= 2;
+		}
+		return result;
+	}
+
+	public static final class PlayerResult {
+
+		public final int playerId;
+		public final KOResult result;
+		public final double probability;
+		private Double avgDrawProbability;
+		private Double noDrawProbability;
+
+		private PlayerResult(int playerId, KOResult result, double probability, Double avgDrawProbability, Double noDrawProbability) {
+			this.playerId = playerId;
+			this.result = result;
+			this.probability = probability;
+			this.avgDrawProbability = avgDrawProbability;
+			this.noDrawProbability = noDrawProbability;
+		}
+
+		public Double getAvgDrawProbability() {
+			return avgDrawProbability;
+		}
+
+		public Double getNoDrawProbability() {
+			return noDrawProbability;
+		}
+
+		@Override public String toString() {
+			return "PlayerResult{playerId=" + playerId + ", result=" + result + ", probability=" + probability + ", avgDrawProbability=" + avgDrawProbability + ", noDrawProbability=" + noDrawProbability + '}';
+		}
+	}
+}
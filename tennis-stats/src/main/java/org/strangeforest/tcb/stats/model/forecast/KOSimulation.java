@@ -0,0 +1,99 @@
+package org.strangeforest.tcb.stats.model.forecast;
+
+import java.util.*;
+
+import static org.strangeforest.tcb.stats.model.forecast.KOForecaster.*;
+
+public class KOSimulation {
+
+	private static final double Z_95 = 1.959964;
+
+	private final KOResult baseResult;
+	private final int[] playerIds;
+	private final byte[][] matchResults; // <player index, round>, null if not current
+	private final int[][] counts; // <round, player index>
+	private final int simulations;
+
+	KOSimulation(KOResult baseResult, int[] playerIds, byte[][] matchResults, int[][] counts, int simulations) {
+		this.baseResult = baseResult;
+		this.playerIds = playerIds;
+		this.matchResults = matchResults;
+		this.counts = counts;
+		this.simulations = simulations;
+	}
+
+	public int getSimulations() {
+		return simulations;
+	}
+
+	public double getProbability(int playerId, KOResult result) {
+		return count(playerId, result) / (double)simulations;
+	}
+
+	public double getStandardError(int playerId, KOResult result) {
+		double probability = getProbability(playerId, result);
+		return Math.sqrt(probability * (1.0 - probability) / simulations);
+	}
+
+	public List<PlayerResult> getResults() {
+		List<PlayerResult> results = new ArrayList<>();
+		for (int round = 0; round < counts.length; round++) {
+			KOResult result = KOResult.values()[baseResult.ordinal() + round + 1];
+			for (int player = 0; player < playerIds.length; player++) {
+				int playerId = playerIds[player];
+				if (playerId > 0 && !isEliminated(player, round))
+					results.add(new PlayerResult(playerId, result, counts[round][player], simulations));
+			}
+		}
+		return results;
+	}
+
+	// Players eliminated in earlier rounds are not reported, same as in the analytic forecast
+	private boolean isEliminated(int player, int round) {
+		if (matchResults == null)
+			return false;
+		for (int r = 0; r < round; r++) {
+			if (matchResults[player][r] == LOST)
+				return true;
+		}
+		return false;
+	}
+
+	private int count(int playerId, KOResult result) {
+		int round = result.ordinal() - baseResult.ordinal() - 1;
+		if (round < 0 || round >= counts.length)
+			throw new IllegalArgumentException("Result not simulated: " + result);
+		for (int player = 0; player < playerIds.length; player++) {
+			if (playerIds[player] == playerId)
+				return counts[round][player];
+		}
+		throw new IllegalArgumentException("Player not in draw: " + playerId);
+	}
+
+	// Wilson score interval, which stays inside [0, 1] for long shots with few or no simulated wins
+	public static final class PlayerResult {
+
+		public final int playerId;
+		public final KOResult result;
+		public final double probability;
+		public final double standardError;
+		public final double lowerBound;
+		public final double upperBound;
+
+		private PlayerResult(int playerId, KOResult result, int count, int simulations) {
+			this.playerId = playerId;
+			this.result = result;
+			probability = count / (double)simulations;
+			standardError = Math.sqrt(probability * (1.0 - probability) / simulations);
+			double z2 = Z_95 * Z_95;
+			double center = (probability + z2 / (2.0 * simulations)) / (1.0 + z2 / simulations);
+			double halfWidth = Z_95 / (1.0 + z2 / simulations) * Math.sqrt(probability * (1.0 - probability) / simulations + z2 / (4.0 * simulations * simulations));
+			lowerBound = Math.max(0.0, center - halfWidth);
+			upperBound = Math.min(1.0, center + halfWidth);
+		}
+
+		@Override public String toString() {
+			return "PlayerResult{playerId=" + playerId + ", result=" + result + ", probability=" + probability + ", 95% CI=[" + lowerBound + ", " + upperBound + "]}";
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package org.strangeforest.tcb.stats.model.forecast;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.strangeforest.tcb.stats.model.forecast.KOForecaster.*;
+
+public class KOSimulator {
+
+	// Win probability of player 1, players are draw indexes and playerState is reset before each simulated draw
+	public interface MatchModel {
+
+		double winProbability(int round, int player1, int player2, double probability, double[] playerState);
+
+		default void matchPlayed(int round, int winner, int loser, double[] playerState) {}
+	}
+
+	public static final MatchModel PAIRWISE = (round, player1, player2, probability, playerState) -> probability;
+
+	private static final int SPLIT_THRESHOLD = 10000;
+
+	private final int rounds;
+	private final int[] slotPlayers;
+	private final int[] playerIds;
+	private final byte[][] matchResults;
+	private final double[][][] matrices;
+	private final KOResult baseResult;
+	private final MatchModel model;
+
+	public KOSimulator(KOForecaster forecaster) {
+		this(forecaster, PAIRWISE);
+	}
+
+	public KOSimulator(KOForecaster forecaster, MatchModel model) {
+		if (Integer.bitCount(forecaster.slotPlayers.length) != 1)
+			throw new IllegalArgumentException("Draw size is not a power of 2: " + forecaster.slotPlayers.length);
+		rounds = forecaster.rounds;
+		slotPlayers = forecaster.slotPlayers;
+		playerIds = forecaster.playerIds;
+		matchResults = forecaster.current ? forecaster.matchResults : null;
+		matrices = forecaster.drawWinProbabilities();
+		baseResult = forecaster.baseResult;
+		this.model = model;
+	}
+
+	public KOSimulation simulate(int simulations, long seed) {
+		if (simulations <= 0)
+			throw new IllegalArgumentException("Invalid simulation count: " + simulations);
+		int[][] counts = ForkJoinPool.commonPool().invoke(new SimulationTask(new SplittableRandom(seed), simulations));
+		return new KOSimulation(baseResult, playerIds, matchResults, counts, simulations);
+	}
+
+	// Random generators are split while the task tree is built, so results depend only on the seed and not on scheduling
+	private final class SimulationTask extends RecursiveTask<int[][]> {
+
+		private final SplittableRandom random;
+		private final int simulations;
+
+		private SimulationTask(SplittableRandom random, int simulations) {
+			this.random = random;
+			this.simulations = simulations;
+		}
+
+		@Override protected int[][] compute() {
+			if (simulations <= SPLIT_THRESHOLD)
+				return simulate(random, simulations);
+			int half = simulations / 2;
+			SimulationTask left = new SimulationTask(random.split(), half);
+			SimulationTask right = new SimulationTask(random, simulations - half);
+			left.fork();
+			int[][] counts = right.compute();
+			int[][] leftCounts = left.join();
+			for (int round = 0; round < rounds; round++) {
+				int[] roundCounts = counts[round], leftRoundCounts = leftCounts[round];
+				for (int player = 0; player < roundCounts.length; player++)
+					roundCounts[player] += leftRoundCounts[player];
+			}
+			return counts;
+		}
+	}
+
+	// Bracket state is kept in one slot array, each round writes match winners to the front half of the previous round's slots
+	private int[][] simulate(SplittableRandom random, int simulations) {
+		int slots = slotPlayers.length;
+		int[][] counts = new int[rounds][playerIds.length]; // <round, player index>, number of simulations player won the round's match
+		int[] bracket = new int[slots];
+		double[] playerState = new double[playerIds.length];
+		for (int i = 0; i < simulations; i++) {
+			System.arraycopy(slotPlayers, 0, bracket, 0, slots);
+			Arrays.fill(playerState, 0.0);
+			for (int round = 0, size = slots; round < rounds && size > 1; round++, size >>= 1) {
+				int[] roundCounts = counts[round];
+				for (int slot = 0; slot < size; slot += 2) {
+					int winner = playMatch(random, round, bracket[slot], bracket[slot + 1], playerState);
+					bracket[slot >> 1] = winner;
+					if (winner != BYE)
+						roundCounts[winner]++;
+				}
+			}
+		}
+		return counts;
+	}
+
+	private int playMatch(SplittableRandom random, int round, int player1, int player2, double[] playerState) {
+		if (player2 == BYE)
+			return player1;
+		if (player1 == BYE)
+			return player2;
+		if (matchResults != null) {
+			byte result1 = matchResults[player1][round];
+			if (result1 != 0)
+				return result1 == WON ? player1 : player2;
+			byte result2 = matchResults[player2][round];
+			if (result2 != 0)
+				return result2 == WON ? player2 : player1;
+		}
+		double probability = model.winProbability(round, player1, player2, matrices[round][player1][player2], playerState);
+		boolean won1 = random.nextDouble() < probability;
+		int winner = won1 ? player1 : player2;
+		model.matchPlayed(round, winner, won1 ? player2 : player1, playerState);
+		return winner;
+	}
+}
@@ -0,0 +1,64 @@
+package org.strangeforest.tcb.stats.model.forecast;
+
+import java.util.*;
+
+public class WhatIfForecast {
+
+	private final int inProgressEventId;
+	private final List<PlayerResult> playerResults;
+
+	public WhatIfForecast(int inProgressEventId, List<PlayerResult> playerResults) {
+		this.inProgressEventId = inProgressEventId;
+		this.playerResults = playerResults;
+	}
+
+	public int getInProgressEventId() {
+		return inProgressEventId;
+	}
+
+	public List<PlayerResult> getPlayerResults() {
+		return playerResults;
+	}
+
+	public PlayerResult getPlayerResult(int playerId, KOResult result) {
+		return playerResults.stream().filter(r -> r.playerId == playerId && r.result == result).findFirst().orElse(null);
+	}
+
+	public static final class PlayerResult {
+
+		private final int playerId;
+		private final String name;
+		private final KOResult result;
+		private final double probability;
+		private final Double currentProbability;
+
+		public PlayerResult(int playerId, String name, KOResult result, double probability, Double currentProbability) {
+			this.playerId = playerId;
+			this.name = name;
+			this.result = result;
+			this.probability = probability;
+			this.currentProbability = currentProbability;
+		}
+
+		public int getPlayerId() {
+			return playerId;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public KOResult getResult() {
+			return result;
+		}
+
+		public double getProbability() {
+			return probability;
+		}
+
+		// Probability without the what-if scenario, null for substituted players
+		public Double getCurrentProbability() {
+			return currentProbability;
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package org.strangeforest.tcb.stats.model.forecast;
+
+import java.util.*;
+import java.util.function.*;
+
+import org.strangeforest.tcb.stats.model.core.*;
+import org.strangeforest.tcb.stats.model.forecast.KOForecaster.*;
+import org.strangeforest.tcb.stats.model.prediction.*;
+import org.strangeforest.tcb.stats.util.*;
+
+import static java.util.stream.Collectors.*;
+
+// In-memory current state of an in-progress event draw, forecasts what-if scenarios against the event's pairwise win probabilities
+public class WhatIfForecaster {
+
+	private final int inProgressEventId;
+	private final KOResult baseResult;
+	private final int[] entries; // <slot, playerId>, negative ids are qualifier placeholders, 0 is a bye
+	private final int[] seeds;
+	private final Map<Integer, String> playerNames = new HashMap<>();
+	private final Map<Integer, Map<KOResult, Boolean>> playedResults = new HashMap<>(); // <playerId, <round, won>>
+	private final Map<KOResult, MatchupPredictions> matchupPredictions = new EnumMap<>(KOResult.class);
+	private final WinProbabilities fallbackProbabilities;
+	private final IntFunction<String> playerNameLookup; // for lucky losers, returns null for unknown players
+	private volatile Map<String, Double> currentProbabilities;
+
+	public WhatIfForecaster(int inProgressEventId, KOResult baseResult, int[] entries, int[] seeds, String[] names, WinProbabilities fallbackProbabilities, IntFunction<String> playerNameLookup) {
+		this.inProgressEventId = inProgressEventId;
+		this.baseResult = baseResult;
+		this.entries = entries;
+		this.seeds = seeds;
+		for (int slot = 0; slot < entries.length; slot++) {
+			if (entries[slot] != 0)
+				playerNames.put(entries[slot], names[slot]);
+		}
+		this.fallbackProbabilities = fallbackProbabilities;
+		this.playerNameLookup = playerNameLookup;
+	}
+
+	public void setMatchResult(int playerId, KOResult result, boolean won) {
+		if (result.compareTo(baseResult) >= 0 && result != KOResult.W)
+			playedResults.computeIfAbsent(playerId, id -> new EnumMap<>(KOResult.class)).put(result, won);
+	}
+
+	// Pairs of not eliminated players that can meet in the round, to be predicted as one batch
+	public List<Matchup> getMatchups(KOResult result) {
+		int round = result.ordinal() - baseResult.ordinal();
+		List<Matchup> matchups = new ArrayList<>();
+		for (int slot = 0; slot < entries.length; slot++) {
+			int playerId = entries[slot];
+			int fromSlot = ((slot >> round) ^ 1) << round;
+			if (playerId == 0 || fromSlot < slot || isEliminated(playerId, result))
+				continue;
+			int toSlot = Math.min(fromSlot + (1 << round), entries.length);
+			for (int opponentSlot = fromSlot; opponentSlot < toSlot; opponentSlot++) {
+				int opponentId = entries[opponentSlot];
+				if (opponentId != 0 && !isEliminated(opponentId, result))
+					matchups.add(new Matchup(playerId, opponentId));
+			}
+		}
+		return matchups;
+	}
+
+	public void setMatchupPredictions(KOResult result, MatchupPredictions predictions) {
+		matchupPredictions.put(result, predictions);
+	}
+
+	public KOResult getBaseResult() {
+		return baseResult;
+	}
+
+	public WhatIfForecast forecast(WhatIfScenario scenario) {
+		int[] scenarioEntries = entries.clone();
+		Map<Integer, String> luckyLoserNames = new HashMap<>();
+		scenario.getSubstitutions().forEach((playerId, luckyLoserId) -> {
+			int slot = findSlot(scenarioEntries, playerId);
+			if (playedResults.containsKey(playerId))
+				throw new InvalidArgumentException("Player already played and cannot be substituted: " + playerId);
+			if (playerNames.containsKey(luckyLoserId))
+				throw new InvalidArgumentException("Lucky loser already in draw: " + luckyLoserId);
+			String name = playerNameLookup.apply(luckyLoserId);
+			if (name == null)
+				throw new InvalidArgumentException("Unknown lucky loser: " + luckyLoserId);
+			luckyLoserNames.put(luckyLoserId, name);
+			scenarioEntries[slot] = luckyLoserId;
+		});
+		Map<Integer, Map<KOResult, Boolean>> forcedResults = new HashMap<>();
+		scenario.getForcedResults().forEach((playerId, results) -> results.forEach((result, won) -> forceResult(forcedResults, scenarioEntries, playerId, result, won)));
+		for (int playerId : scenario.getWithdrawals())
+			forceResult(forcedResults, scenarioEntries, playerId, nextResult(scenarioEntries, playerId), false);
+
+		List<PlayerResult> results = forecast(scenarioEntries, forcedResults);
+		Map<String, Double> currentProbabilities = currentProbabilities();
+		return new WhatIfForecast(inProgressEventId, results.stream().map(result -> new WhatIfForecast.PlayerResult(
+			result.playerId, playerNames.getOrDefault(result.playerId, luckyLoserNames.get(result.playerId)), result.result, result.probability, currentProbabilities.get(resultKey(result.playerId, result.result))
+		)).collect(toList()));
+	}
+
+	private Map<String, Double> currentProbabilities() {
+		Map<String, Double> probabilities = currentProbabilities;
+		if (probabilities == null) {
+			probabilities = forecast(entries, Collections.emptyMap()).stream().collect(toMap(result -> resultKey(result.playerId, result.result), result -> result.probability));
+			currentProbabilities = probabilities;
+		}
+		return probabilities;
+	}
+
+	// Forced results override pairwise win probabilities, so player wins or loses the round's match if it gets there
+	private List<PlayerResult> forecast(int[] scenarioEntries, Map<Integer, Map<KOResult, Boolean>> forcedResults) {
+		KOForecaster forecaster = new KOForecaster(baseResult, scenarioEntries, seeds, true, false, (playerId1, playerId2, round) -> {
+			KOResult result = KOResult.valueOf(round.name());
+			Boolean won1 = forcedResult(forcedResults, playerId1, result);
+			if (won1 != null)
+				return won1 ? 1.0 : 0.0;
+			Boolean won2 = forcedResult(forcedResults, playerId2, result);
+			if (won2 != null)
+				return won2 ? 0.0 : 1.0;
+			return getWinProbability(playerId1, playerId2, round);
+		});
+		playedResults.forEach((playerId, results) -> results.forEach((result, won) -> forecaster.setMatchResult(playerId, result, won)));
+		return forecaster.forecast();
+	}
+
+	private double getWinProbability(int playerId1, int playerId2, Round round) {
+		MatchupPredictions predictions = matchupPredictions.get(KOResult.valueOf(round.name()));
+		if (predictions != null && predictions.hasPlayer(playerId1) && predictions.hasPlayer(playerId2)) {
+			double probability = predictions.getWinProbability(playerId1, playerId2);
+			if (!Double.isNaN(probability))
+				return probability;
+		}
+		return fallbackProbabilities.getWinProbability(playerId1, playerId2, round);
+	}
+
+	private void forceResult(Map<Integer, Map<KOResult, Boolean>> forcedResults, int[] scenarioEntries, int playerId, KOResult result, boolean won) {
+		int slot = findSlot(scenarioEntries, playerId);
+		if (result.compareTo(baseResult) < 0 || result == KOResult.W)
+			throw new InvalidArgumentException("Invalid match round: " + result);
+		if (isEliminated(playerId, result))
+			throw new InvalidArgumentException("Player already eliminated: " + playerId);
+		Boolean playedResult = playedResults.getOrDefault(playerId, Collections.emptyMap()).get(result);
+		if (playedResult != null && playedResult != won)
+			throw new InvalidArgumentException(String.format("Match already played: %1$d %2$s", playerId, result));
+		int round = result.ordinal() - baseResult.ordinal();
+		forcedResults.forEach((otherPlayerId, otherResults) -> {
+			Boolean otherWon = otherResults.get(result);
+			if (otherWon != null && otherWon == won && ((slot >> round) ^ (findSlot(scenarioEntries, otherPlayerId) >> round)) == 1)
+				throw new InvalidArgumentException(String.format("Conflicting %1$s results: %2$d and %3$d", result, playerId, otherPlayerId));
+		});
+		forcedResults.computeIfAbsent(playerId, id -> new EnumMap<>(KOResult.class)).put(result, won);
+	}
+
+	// First round the player has not played yet, skipping first round bye
+	private KOResult nextResult(int[] scenarioEntries, int playerId) {
+		int slot = findSlot(scenarioEntries, playerId);
+		Map<KOResult, Boolean> results = playedResults.getOrDefault(playerId, Collections.emptyMap());
+		for (KOResult result = baseResult; result != KOResult.W; result = result.next()) {
+			Boolean won = results.get(result);
+			if (won == null && !(result == baseResult && scenarioEntries[slot ^ 1] == 0))
+				return result;
+			if (won != null && !won)
+				break;
+		}
+		throw new InvalidArgumentException("Player has no match left to withdraw from: " + playerId);
+	}
+
+	private boolean isEliminated(int playerId, KOResult result) {
+		Map<KOResult, Boolean> results = playedResults.get(playerId);
+		if (results == null)
+			return false;
+		for (Map.Entry<KOResult, Boolean> played : results.entrySet()) {
+			if (played.getKey().compareTo(result) < 0 && !played.getValue())
+				return true;
+		}
+		return false;
+	}
+
+	private static Boolean forcedResult(Map<Integer, Map<KOResult, Boolean>> forcedResults, int playerId, KOResult result) {
+		Map<KOResult, Boolean> results = forcedResults.get(playerId);
+		return results != null ? results.get(result) : null;
+	}
+
+	private static int findSlot(int[] scenarioEntries, int playerId) {
+		for (int slot = 0; slot < scenarioEntries.length; slot++) {
+			if (scenarioEntries[slot] == playerId && playerId != 0)
+				return slot;
+		}
+		throw new InvalidArgumentException("Player not in draw: " + playerId);
+	}
+
+	private static String resultKey(int playerId, KOResult result) {
+		return playerId + ":" + result;
+	}
+}
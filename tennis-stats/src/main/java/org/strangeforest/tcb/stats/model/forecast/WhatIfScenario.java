@@ -0,0 +1,47 @@
+package org.strangeforest.tcb.stats.model.forecast;
+
+import java.util.*;
+
+import org.strangeforest.tcb.stats.util.*;
+
+public class WhatIfScenario {
+
+	private final Map<Integer, Map<KOResult, Boolean>> forcedResults = new LinkedHashMap<>(); // <playerId, <round, won>>
+	private final Set<Integer> withdrawals = new LinkedHashSet<>();
+	private final Map<Integer, Integer> substitutions = new LinkedHashMap<>(); // <playerId, luckyLoserId>
+
+	public WhatIfScenario forceResult(int playerId, KOResult round, boolean won) {
+		if (round == KOResult.W)
+			throw new InvalidArgumentException("Invalid match round: " + round);
+		forcedResults.computeIfAbsent(playerId, id -> new EnumMap<>(KOResult.class)).put(round, won);
+		return this;
+	}
+
+	public WhatIfScenario withdraw(int playerId) {
+		withdrawals.add(playerId);
+		return this;
+	}
+
+	public WhatIfScenario substitute(int playerId, int luckyLoserId) {
+		if (luckyLoserId <= 0 || luckyLoserId == playerId)
+			throw new InvalidArgumentException("Invalid lucky loser: " + luckyLoserId);
+		substitutions.put(playerId, luckyLoserId);
+		return this;
+	}
+
+	public Map<Integer, Map<KOResult, Boolean>> getForcedResults() {
+		return forcedResults;
+	}
+
+	public Set<Integer> getWithdrawals() {
+		return withdrawals;
+	}
+
+	public Map<Integer, Integer> getSubstitutions() {
+		return substitutions;
+	}
+
+	public boolean isEmpty() {
+		return forcedResults.isEmpty() && withdrawals.isEmpty() && substitutions.isEmpty();
+	}
+}
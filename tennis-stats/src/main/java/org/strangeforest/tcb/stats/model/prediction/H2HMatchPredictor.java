@@ -3,16 +3,16 @@ package org.strangeforest.tcb.stats.model.prediction;
 import java.time.*;
 import java.util.*;
 import java.util.function.*;
+import java.util.stream.*;
 
 import org.strangeforest.tcb.stats.model.core.*;
 
-import static org.strangeforest.tcb.stats.model.prediction.H2HPredictionItem.*;
 import static org.strangeforest.tcb.stats.model.prediction.MatchDataUtil.*;
 
 public class H2HMatchPredictor implements MatchPredictor {
 
-	private final List<MatchData> matchData1;
-	private final List<MatchData> matchData2;
+	private final MatchHistoryView matchData1;
+	private final MatchHistoryView matchData2;
 	private final int playerId1;
 	private final int playerId2;
 	private final LocalDate date1;
@@ -27,7 +27,7 @@ public class H2HMatchPredictor implements MatchPredictor {
 	static final int MATCH_RECENT_PERIOD_YEARS = 3;
 	static final int SET_RECENT_PERIOD_YEARS = 2;
 
-	public H2HMatchPredictor(List<MatchData> matchData1, List<MatchData> matchData2, int playerId1, int playerId2, LocalDate date1, LocalDate date2,
+	public H2HMatchPredictor(MatchHistoryView matchData1, MatchHistoryView matchData2, int playerId1, int playerId2, LocalDate date1, LocalDate date2,
 	                         Surface surface, TournamentLevel level, Integer tournamentId, Round round, short bestOf, PredictionConfig config) {
 		this.matchData1 = matchData1;
 		this.matchData2 = matchData2;
@@ -48,27 +48,18 @@ public class H2HMatchPredictor implements MatchPredictor {
 	}
 
 	@Override public MatchPrediction predictMatch() {
-		Period matchRecentPeriod = getMatchRecentPeriod();
-		Period setRecentPeriod = getSetRecentPeriod();
 		MatchPrediction prediction = new MatchPrediction(config.getTotalAreasWeight());
-		addItemProbabilities(prediction, OVERALL, ALWAYS_TRUE);
-		addItemProbabilities(prediction, SURFACE, isSurface(surface));
-		addItemProbabilities(prediction, LEVEL, isLevel(level));
-		addItemProbabilities(prediction, TOURNAMENT, isTournament(tournamentId));
-		addItemProbabilities(prediction, ROUND, isRound(round));
-		addItemProbabilities(prediction, RECENT, isRecent(date1, matchRecentPeriod), isRecent(date2, matchRecentPeriod));
-		addItemProbabilities(prediction, SURFACE_RECENT, isSurface(surface).and(isRecent(date1, matchRecentPeriod)), isSurface(surface).and(isRecent(date2, matchRecentPeriod)));
-		addItemProbabilities(prediction, LEVEL_RECENT, isLevel(level).and(isRecent(date1, matchRecentPeriod)), isLevel(level).and(isRecent(date2, matchRecentPeriod)));
-		addItemProbabilities(prediction, ROUND_RECENT, isRound(round).and(isRecent(date1, matchRecentPeriod)), isRound(round).and(isRecent(date2, matchRecentPeriod)));
-		addItemProbabilities(prediction, OVERALL_SET, ALWAYS_TRUE);
-		addItemProbabilities(prediction, SURFACE_SET, isSurface(surface));
-		addItemProbabilities(prediction, LEVEL_SET, isLevel(level));
-		addItemProbabilities(prediction, TOURNAMENT_SET, isTournament(tournamentId));
-		addItemProbabilities(prediction, ROUND_SET, isRound(round));
-		addItemProbabilities(prediction, RECENT_SET, isRecent(date1, setRecentPeriod), isRecent(date2, setRecentPeriod));
-		addItemProbabilities(prediction, SURFACE_RECENT_SET, isSurface(surface).and(isRecent(date1, setRecentPeriod)), isSurface(surface).and(isRecent(date2, setRecentPeriod)));
-		addItemProbabilities(prediction, LEVEL_RECENT_SET, isLevel(level).and(isRecent(date1, setRecentPeriod)), isLevel(level).and(isRecent(date2, setRecentPeriod)));
-		addItemProbabilities(prediction, ROUND_RECENT_SET, isRound(round).and(isRecent(date1, setRecentPeriod)), isRound(round).and(isRecent(date2, setRecentPeriod)));
+		int[] items = enabledItems(config);
+		if (items.length > 0) {
+			Period matchRecentPeriod = getMatchRecentPeriod();
+			Period setRecentPeriod = getSetRecentPeriod();
+			MatchCriteria criteria1 = new MatchCriteria(matchData1.getHistory(), surface, level, tournamentId, round, date1.minus(matchRecentPeriod), date1.minus(setRecentPeriod), null, null);
+			MatchCriteria criteria2 = new MatchCriteria(matchData2.getHistory(), surface, level, tournamentId, round, date2.minus(matchRecentPeriod), date2.minus(setRecentPeriod), null, null);
+			int[] wonLost1 = wonLost(matchData1, isOpponent(playerId2), criteria1, items);
+			int[] wonLost2 = wonLost(matchData2, isOpponent(playerId1), criteria2, items);
+			for (int item : items)
+				addItemProbabilities(prediction, ITEMS[item], wonLost1[2 * item], wonLost2[2 * item]);
+		}
 		return prediction;
 	}
 
@@ -80,23 +71,62 @@ public class H2HMatchPredictor implements MatchPredictor {
 		return Period.ofYears(config.getSetRecentPeriod(getArea(), SET_RECENT_PERIOD_YEARS));
 	}
 
-	private void addItemProbabilities(MatchPrediction prediction, H2HPredictionItem item, Predicate<MatchData> filter) {
-		addItemProbabilities(prediction, item, filter, filter);
+	private void addItemProbabilities(MatchPrediction prediction, H2HPredictionItem item, int won1, int won2) {
+		int total = won1 + won2;
+		if (total > 0) {
+			double weight = config.getItemWeight(item) * weight(total);
+			DoubleUnaryOperator probabilityTransformer = probabilityTransformer(item.isForSet(), item.isMixedBestOf(), bestOf);
+			prediction.addItemProbability1(item, weight, probabilityTransformer.applyAsDouble(1.0 * won1 / total));
+			prediction.addItemProbability2(item, weight, probabilityTransformer.applyAsDouble(1.0 * won2 / total));
+		}
 	}
 
-	private void addItemProbabilities(MatchPrediction prediction, H2HPredictionItem item, Predicate<MatchData> filter1, Predicate<MatchData> filter2) {
-		double itemWeight = config.getItemWeight(item);
-		if (itemWeight > 0.0) {
-			ToIntFunction<MatchData> dimension = item.isForSet() ? MatchData::getPSets : MatchData::getPMatches;
-			int won1 = matchData1.stream().filter(filter1.and(isOpponent(playerId2))).mapToInt(dimension).sum();
-			int won2 = matchData2.stream().filter(filter2.and(isOpponent(playerId1))).mapToInt(dimension).sum();
-			int total = won1 + won2;
-			if (total > 0) {
-				double weight = itemWeight * weight(total);
-				DoubleUnaryOperator probabilityTransformer = probabilityTransformer(item.isForSet(), item.isMixedBestOf(), bestOf);
-				prediction.addItemProbability1(item, weight, probabilityTransformer.applyAsDouble(1.0 * won1 / total));
-				prediction.addItemProbability2(item, weight, probabilityTransformer.applyAsDouble(1.0 * won2 / total));
+	// Accumulates won and lost matches or sets of all the items in a single pass over the filtered match history
+	static int[] wonLost(MatchHistoryView matchData, MatchHistoryFilter filter, MatchCriteria criteria, int[] items) {
+		MatchHistory history = matchData.getHistory();
+		BitSet matches = matchData.select(filter);
+		int[] wonLost = new int[2 * ITEMS.length];
+		for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+			int matchCriteria = criteria.of(i);
+			for (int item : items) {
+				if (MatchCriteria.matches(matchCriteria, ITEM_CRITERIA[item])) {
+					if (ITEMS[item].isForSet()) {
+						wonLost[2 * item] += history.getPSets(i);
+						wonLost[2 * item + 1] += history.getOSets(i);
+					}
+					else {
+						wonLost[2 * item] += history.getPMatches(i);
+						wonLost[2 * item + 1] += history.getOMatches(i);
+					}
+				}
 			}
 		}
+		return wonLost;
+	}
+
+	static int[] enabledItems(PredictionConfig config) {
+		return Stream.of(ITEMS).filter(item -> config.getItemWeight(item) > 0.0).mapToInt(Enum::ordinal).toArray();
+	}
+
+	static final H2HPredictionItem[] ITEMS = H2HPredictionItem.values();
+	private static final int[] ITEM_CRITERIA = Stream.of(ITEMS).mapToInt(H2HMatchPredictor::itemCriteria).toArray();
+
+	private static int itemCriteria(H2HPredictionItem item) {
+		switch (item) {
+			case OVERALL: case OVERALL_SET: return MatchCriteria.NONE;
+			case SURFACE: case SURFACE_SET: return MatchCriteria.SURFACE;
+			case LEVEL: case LEVEL_SET: return MatchCriteria.LEVEL;
+			case TOURNAMENT: case TOURNAMENT_SET: return MatchCriteria.TOURNAMENT;
+			case ROUND: case ROUND_SET: return MatchCriteria.ROUND;
+			case RECENT: return MatchCriteria.MATCH_RECENT;
+			case SURFACE_RECENT: return MatchCriteria.SURFACE | MatchCriteria.MATCH_RECENT;
+			case LEVEL_RECENT: return MatchCriteria.LEVEL | MatchCriteria.MATCH_RECENT;
+			case ROUND_RECENT: return MatchCriteria.ROUND | MatchCriteria.MATCH_RECENT;
+			case RECENT_SET: return MatchCriteria.SET_RECENT;
+			case SURFACE_RECENT_SET: return MatchCriteria.SURFACE | MatchCriteria.SET_RECENT;
+			case LEVEL_RECENT_SET: return MatchCriteria.LEVEL | MatchCriteria.SET_RECENT;
+			case ROUND_RECENT_SET: return MatchCriteria.ROUND | MatchCriteria.SET_RECENT;
+			default: throw new IllegalArgumentException("Unknown item: " + item);
+		}
 	}
 }
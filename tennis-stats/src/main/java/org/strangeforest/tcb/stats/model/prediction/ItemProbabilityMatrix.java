@@ -0,0 +1,100 @@
+package org.strangeforest.tcb.stats.model.prediction;
+
+import java.util.*;
+import java.util.stream.*;
+
+public final class ItemProbabilityMatrix {
+
+	public static final PredictionItem[] ITEMS = Stream.of(PredictionArea.values()).flatMap(area -> Stream.of(area.getItems())).toArray(PredictionItem[]::new);
+	public static final int ITEM_COUNT = ITEMS.length;
+	private static final Map<PredictionItem, Integer> ITEM_INDEXES = new HashMap<>();
+	static {
+		for (int i = 0; i < ITEM_COUNT; i++)
+			ITEM_INDEXES.put(ITEMS[i], i);
+	}
+
+	public static int itemIndex(PredictionItem item) {
+		return ITEM_INDEXES.get(item);
+	}
+
+	public static PredictionConfig unitWeights(PredictionConfig config) {
+		for (PredictionArea area : PredictionArea.values()) {
+			config = new PredictionConfig(config, area, 1.0);
+			for (PredictionItem item : area.getItems())
+				config = new PredictionConfig(config, item, 1.0);
+		}
+		return config;
+	}
+
+	private final int rows;
+	// Item weights with unit config weights, i.e. the data-driven part of the weight, 0.0 when item is not applicable
+	private final double[] dataWeights;
+	private final double[] probabilities1;
+	private final double[] probabilities2;
+
+	public ItemProbabilityMatrix(int rows) {
+		this.rows = rows;
+		int size = rows * ITEM_COUNT;
+		dataWeights = new double[size];
+		probabilities1 = new double[size];
+		probabilities2 = new double[size];
+	}
+
+	public int rows() {
+		return rows;
+	}
+
+	public void set(int row, MatchPrediction prediction, PredictionConfig config) {
+		int offset = row * ITEM_COUNT;
+		Arrays.fill(dataWeights, offset, offset + ITEM_COUNT, 0.0);
+		for (WeightedProbability itemProbability : prediction.getItemProbabilities1()) {
+			PredictionItem item = itemProbability.getItem();
+			int index = offset + itemIndex(item);
+			dataWeights[index] = itemProbability.getWeight() / (config.getAreaAdjustedWeight(item.getArea()) * config.getItemWeight(item));
+			probabilities1[index] = itemProbability.getProbability();
+		}
+		for (WeightedProbability itemProbability : prediction.getItemProbabilities2())
+			probabilities2[offset + itemIndex(itemProbability.getItem())] = itemProbability.getProbability();
+	}
+
+	public static double[] itemWeights(PredictionConfig config) {
+		double[] itemWeights = new double[ITEM_COUNT];
+		for (int i = 0; i < ITEM_COUNT; i++) {
+			PredictionItem item = ITEMS[i];
+			PredictionArea area = item.getArea();
+			if (config.isAreaEnabled(area))
+				itemWeights[i] = config.getAreaAdjustedWeight(area) * config.getItemWeight(item);
+		}
+		return itemWeights;
+	}
+
+	public double weight(int row, double[] itemWeights) {
+		int offset = row * ITEM_COUNT;
+		double weightSum = 0.0;
+		for (int i = 0; i < ITEM_COUNT; i++)
+			weightSum += itemWeights[i] * dataWeights[offset + i];
+		return weightSum;
+	}
+
+	public double winProbability1(int row, double[] itemWeights) {
+		return winProbability(row, itemWeights, probabilities1);
+	}
+
+	public double winProbability2(int row, double[] itemWeights) {
+		return winProbability(row, itemWeights, probabilities2);
+	}
+
+	private double winProbability(int row, double[] itemWeights, double[] probabilities) {
+		int offset = row * ITEM_COUNT;
+		double weightProbabilitySum = 0.0;
+		double weightSum = 0.0;
+		for (int i = 0; i < ITEM_COUNT; i++) {
+			double weight = itemWeights[i] * dataWeights[offset + i];
+			if (weight > 0.0) {
+				weightProbabilitySum += weight * probabilities[offset + i];
+				weightSum += weight;
+			}
+		}
+		return weightSum > 0.0 ? weightProbabilitySum / weightSum : 0.5;
+	}
+}
@@ -0,0 +1,75 @@
+package org.strangeforest.tcb.stats.model.prediction;
+
+import java.time.*;
+import java.util.*;
+
+import org.strangeforest.tcb.stats.model.core.*;
+
+import com.google.common.collect.*;
+
+final class MatchCriteria {
+
+	static final int NONE = 0;
+	static final int SURFACE = 1;
+	static final int LEVEL = 1 << 1;
+	static final int TOURNAMENT = 1 << 2;
+	static final int ROUND = 1 << 3;
+	static final int MATCH_RECENT = 1 << 4;
+	static final int SET_RECENT = 1 << 5;
+	static final int VS_RANK = 1 << 6;
+	static final int VS_HAND = 1 << 7;
+	static final int VS_BACKHAND = 1 << 8;
+	static final int COMBINATIONS = 1 << 9;
+
+	private final MatchHistory history;
+	private final BitSet surfaceMask;
+	private final BitSet levelMask;
+	private final BitSet roundMask;
+	private final BitSet opponentRankMask;
+	private final BitSet opponentHandMask;
+	private final BitSet opponentBackhandMask;
+	private final Integer tournamentId;
+	private final int matchRecentFrom;
+	private final int setRecentFrom;
+
+	MatchCriteria(MatchHistory history, Surface surface, TournamentLevel level, Integer tournamentId, Round round,
+	              LocalDate matchRecentDate, LocalDate setRecentDate, Range<Integer> opponentRankRange, PlayerData opponentData) {
+		this.history = history;
+		surfaceMask = history.getSurfaceMask(surface);
+		levelMask = history.getLevelMask(level);
+		roundMask = history.getRoundMask(round);
+		opponentRankMask = history.getOpponentRankMask(opponentRankRange);
+		opponentHandMask = history.getOpponentHandMask(opponentData != null ? opponentData.getHand() : null);
+		opponentBackhandMask = history.getOpponentBackhandMask(opponentData != null ? opponentData.getBackhand() : null);
+		this.tournamentId = tournamentId;
+		matchRecentFrom = matchRecentDate != null ? history.indexFrom(matchRecentDate) : history.size();
+		setRecentFrom = setRecentDate != null ? history.indexFrom(setRecentDate) : history.size();
+	}
+
+	int of(int index) {
+		int criteria = NONE;
+		if (surfaceMask.get(index))
+			criteria |= SURFACE;
+		if (levelMask.get(index))
+			criteria |= LEVEL;
+		if (tournamentId != null && history.getTournamentId(index) == tournamentId)
+			criteria |= TOURNAMENT;
+		if (roundMask.get(index))
+			criteria |= ROUND;
+		if (index >= matchRecentFrom)
+			criteria |= MATCH_RECENT;
+		if (index >= setRecentFrom)
+			criteria |= SET_RECENT;
+		if (opponentRankMask.get(index))
+			criteria |= VS_RANK;
+		if (opponentHandMask.get(index))
+			criteria |= VS_HAND;
+		if (opponentBackhandMask.get(index))
+			criteria |= VS_BACKHAND;
+		return criteria;
+	}
+
+	static boolean matches(int criteria, int itemCriteria) {
+		return (criteria & itemCriteria) == itemCriteria;
+	}
+}
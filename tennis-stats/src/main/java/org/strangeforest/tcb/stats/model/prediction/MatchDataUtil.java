@@ -81,53 +81,18 @@ public abstract class MatchDataUtil {
 			return null;
 	}
 
-	public static final Predicate<MatchData> ALWAYS_TRUE = m -> Boolean.TRUE;
+	public static final MatchHistoryFilter ALWAYS_TRUE = (history, matches) -> {};
 
-	public static Predicate<MatchData> isRecent(LocalDate date, Period period) {
+	public static MatchHistoryFilter isRecent(LocalDate date, Period period) {
 		LocalDate afterDate = date.minus(period);
-		return match -> match.getDate().compareTo(afterDate) >= 0;
+		return (history, matches) -> history.filterFromDate(afterDate, matches);
 	}
 
-	public static Predicate<MatchData> isSurface(Surface surface) {
-		return match -> nonNullEquals(match.getSurface(), surface);
+	public static MatchHistoryFilter isOpponent(int playerId) {
+		return (history, matches) -> history.filterOpponent(playerId, matches);
 	}
 
-	public static Predicate<MatchData> isLevel(TournamentLevel level) {
-		return match -> nonNullEquals(levelGroup(match.getLevel()), levelGroup(level));
-	}
-
-	private static String levelGroup(TournamentLevel level) {
-		return level != null ? level.getPredictionCodes() : null;
-	}
-
-	public static Predicate<MatchData> isTournament(Integer tournamentId) {
-		return match -> nonNullEquals(match.getTournamentId(), tournamentId);
-	}
-
-	public static Predicate<MatchData> isRound(Round round) {
-		return match -> nonNullEquals(roundGroup(match.getRound()), roundGroup(round));
-	}
-
-	private static String roundGroup(Round round) {
-		return round != null ? round.getPredictionCode() : null;
-	}
-
-	public static Predicate<MatchData> isOpponent(int playerId) {
-		return match -> match.getOpponentId() == playerId;
-	}
-
-	public static Predicate<MatchData> isOpponentRankInRange(Range<Integer> rankRange) {
-		return match -> {
-			if (rankRange != null) {
-				Integer opponentRank = match.getOpponentRank();
-				return opponentRank != null && rankRange.contains(opponentRank);
-			}
-			else
-				return false;
-		};
-	}
-
-	private static final List<Range<Integer>> RANK_RANGES = asList(
+	static final List<Range<Integer>> RANK_RANGES = asList(
 		Range.closed(1, 5),
 		Range.openClosed(5, 10),
 		Range.openClosed(10, 20),
@@ -140,23 +105,11 @@ public abstract class MatchDataUtil {
 		return rank != null ? RANK_RANGES.stream().filter(range -> range.contains(rank)).findFirst().orElse(null) : null;
 	}
 
-	public static Predicate<MatchData> isOpponentHand(String hand) {
-		return match -> nonNullEquals(match.getOpponentHand(), hand);
-	}
-
-	public static Predicate<MatchData> isOpponentBackhand(String backhand) {
-		return match -> nonNullEquals(match.getOpponentBackhand(), backhand);
-	}
-
-	public static Predicate<MatchData> isOpponentQualifier() {
-		return match -> "Q".equals(match.getOpponentEntry());
+	public static MatchHistoryFilter isOpponentQualifier() {
+		return (history, matches) -> history.filterOpponentQualifier(matches);
 	}
 
 	public static double recencyAdjustment(int offset, int halfAtOffset) {
 		return 1 + pow(2, (offset - halfAtOffset) / 2.0);
 	}
-
-	private static boolean nonNullEquals(Object o1, Object o2) {
-		return o1 != null && o2 != null && o1.equals(o2);
-	}
 }
@@ -0,0 +1,269 @@
+package org.strangeforest.tcb.stats.model.prediction;
+
+import java.time.*;
+import java.util.*;
+import java.util.function.*;
+
+import org.strangeforest.tcb.stats.model.core.*;
+
+import com.google.common.collect.*;
+
+public final class MatchHistory {
+
+	private final int size;
+	private final int[] dates;
+	private final int[] tournamentIds;
+	private final int[] tournamentEventIds;
+	private final BitSet inProgress;
+	private final byte[] rounds;
+	private final int[] opponentIds;
+	private final int[] opponentRanks;
+	private final int[] opponentEloRatings;
+	private final short[] pMatches;
+	private final short[] oMatches;
+	private final short[] pSets;
+	private final short[] oSets;
+	private final BitSet[] surfaceMasks;
+	private final Map<String, BitSet> levelMasks;
+	private final Map<String, BitSet> roundMasks;
+	private final Map<Range<Integer>, BitSet> opponentRankMasks;
+	private final Map<String, BitSet> opponentHandMasks;
+	private final Map<String, BitSet> opponentBackhandMasks;
+	private final BitSet opponentQualifierMask;
+
+	private static final int UNKNOWN = 0;
+
+	public MatchHistory(List<MatchData> matchData) {
+		size = matchData.size();
+		dates = new int[size];
+		tournamentIds = new int[size];
+		tournamentEventIds = new int[size];
+		inProgress = new BitSet(size);
+		rounds = new byte[size];
+		opponentIds = new int[size];
+		opponentRanks = new int[size];
+		opponentEloRatings = new int[size];
+		pMatches = new short[size];
+		oMatches = new short[size];
+		pSets = new short[size];
+		oSets = new short[size];
+		surfaceMasks = new BitSet[Surface.values().length];
+		levelMasks = new HashMap<>();
+		roundMasks = new HashMap<>();
+		opponentRankMasks = new HashMap<>();
+		for (Range<Integer> rankRange : MatchDataUtil.RANK_RANGES)
+			opponentRankMasks.put(rankRange, new BitSet(size));
+		opponentHandMasks = new HashMap<>();
+		opponentBackhandMasks = new HashMap<>();
+		opponentQualifierMask = new BitSet(size);
+		for (int i = 0; i < size; i++) {
+			MatchData match = matchData.get(i);
+			dates[i] = (int)match.getDate().toEpochDay();
+			if (i > 0 && dates[i] < dates[i - 1])
+				throw new IllegalArgumentException("Match data must be sorted by date");
+			tournamentIds[i] = match.getTournamentId();
+			tournamentEventIds[i] = match.getTournamentEventId();
+			inProgress.set(i, match.isInProgress());
+			rounds[i] = (byte)match.getRound().ordinal();
+			opponentIds[i] = match.getOpponentId();
+			opponentRanks[i] = nullToUnknown(match.getOpponentRank());
+			opponentEloRatings[i] = nullToUnknown(match.getOpponentEloRating());
+			pMatches[i] = (short)match.getPMatches();
+			oMatches[i] = (short)match.getOMatches();
+			pSets[i] = (short)match.getPSets();
+			oSets[i] = (short)match.getOSets();
+			Surface surface = match.getSurface();
+			if (surface != null)
+				mask(surfaceMasks, surface.ordinal()).set(i);
+			setMask(levelMasks, match.getLevel().getPredictionCodes(), i);
+			setMask(roundMasks, match.getRound().getPredictionCode(), i);
+			setMask(opponentRankMasks, MatchDataUtil.rankRange(match.getOpponentRank()), i);
+			setMask(opponentHandMasks, match.getOpponentHand(), i);
+			setMask(opponentBackhandMasks, match.getOpponentBackhand(), i);
+			if ("Q".equals(match.getOpponentEntry()))
+				opponentQualifierMask.set(i);
+		}
+	}
+
+	private static int nullToUnknown(Integer i) {
+		return i != null ? i : UNKNOWN;
+	}
+
+	private BitSet mask(BitSet[] masks, int index) {
+		BitSet mask = masks[index];
+		if (mask == null) {
+			mask = new BitSet(size);
+			masks[index] = mask;
+		}
+		return mask;
+	}
+
+	private <K> void setMask(Map<K, BitSet> masks, K key, int index) {
+		if (key != null)
+			masks.computeIfAbsent(key, k -> new BitSet(size)).set(index);
+	}
+
+
+	// Cutoff
+
+	public MatchHistoryView before(LocalDate date, Integer tournamentEventId, boolean inProgress, Round round) {
+		int epochDay = (int)date.toEpochDay();
+		int from = indexFrom(epochDay);
+		BitSet sameDayMatches = null;
+		if (tournamentEventId != null && round != null) {
+			for (int i = from; i < size && dates[i] == epochDay; i++) {
+				if (tournamentEventIds[i] == tournamentEventId && this.inProgress.get(i) == inProgress && rounds[i] > round.ordinal()) {
+					if (sameDayMatches == null)
+						sameDayMatches = new BitSet(size);
+					sameDayMatches.set(i);
+				}
+			}
+		}
+		return new MatchHistoryView(this, from, sameDayMatches);
+	}
+
+	int indexFrom(LocalDate date) {
+		return indexFrom((int)date.toEpochDay());
+	}
+
+	private int indexFrom(int epochDay) {
+		int from = Arrays.binarySearch(dates, epochDay);
+		if (from >= 0) {
+			while (from > 0 && dates[from - 1] == epochDay)
+				from--;
+			return from;
+		}
+		else
+			return -from - 1;
+	}
+
+
+	// Masks
+
+	BitSet getSurfaceMask(Surface surface) {
+		return nonNullMask(surface != null ? surfaceMasks[surface.ordinal()] : null);
+	}
+
+	BitSet getLevelMask(TournamentLevel level) {
+		return nonNullMask(level != null ? levelMasks.get(level.getPredictionCodes()) : null);
+	}
+
+	BitSet getRoundMask(Round round) {
+		return nonNullMask(round != null ? roundMasks.get(round.getPredictionCode()) : null);
+	}
+
+	BitSet getOpponentHandMask(String hand) {
+		return nonNullMask(hand != null ? opponentHandMasks.get(hand) : null);
+	}
+
+	BitSet getOpponentBackhandMask(String backhand) {
+		return nonNullMask(backhand != null ? opponentBackhandMasks.get(backhand) : null);
+	}
+
+	BitSet getOpponentRankMask(Range<Integer> rankRange) {
+		if (rankRange == null)
+			return EMPTY_MASK;
+		BitSet mask = opponentRankMasks.get(rankRange);
+		if (mask != null)
+			return mask;
+		mask = new BitSet(size);
+		for (int i = 0; i < size; i++) {
+			if (isOpponentRankInRange(i, rankRange))
+				mask.set(i);
+		}
+		return mask;
+	}
+
+	BitSet getOpponentQualifierMask() {
+		return opponentQualifierMask;
+	}
+
+	private static BitSet nonNullMask(BitSet mask) {
+		return mask != null ? mask : EMPTY_MASK;
+	}
+
+	private static final BitSet EMPTY_MASK = new BitSet(0);
+
+
+	// Filters
+
+	void filterFromDate(LocalDate date, BitSet matches) {
+		matches.clear(0, indexFrom(date));
+	}
+
+	void filterOpponentQualifier(BitSet matches) {
+		matches.and(opponentQualifierMask);
+	}
+
+	void filterOpponent(int opponentId, BitSet matches) {
+		filter(i -> opponentIds[i] == opponentId, matches);
+	}
+
+	private static void filter(IntPredicate filter, BitSet matches) {
+		for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+			if (!filter.test(i))
+				matches.clear(i);
+		}
+	}
+
+
+	// Columns
+
+	public int size() {
+		return size;
+	}
+
+	public LocalDate getDate(int index) {
+		return LocalDate.ofEpochDay(dates[index]);
+	}
+
+	public int getTournamentId(int index) {
+		return tournamentIds[index];
+	}
+
+	public int getOpponentId(int index) {
+		return opponentIds[index];
+	}
+
+	public boolean isOpponentRankInRange(int index, Range<Integer> rankRange) {
+		int opponentRank = opponentRanks[index];
+		return opponentRank != UNKNOWN && rankRange.contains(opponentRank);
+	}
+
+	public double getOpponentEloScore(int index) {
+		int opponentEloRating = opponentEloRatings[index];
+		if (opponentEloRating != UNKNOWN) {
+			int ratingDelta = opponentEloRating - Player.START_ELO_RATING;
+			if (ratingDelta > 0) {
+				if (oMatches[index] > pMatches[index])
+					ratingDelta = -ratingDelta;
+				return ratingDelta;
+			}
+		}
+		return 0.0;
+	}
+
+	public int getPMatches(int index) {
+		return pMatches[index];
+	}
+
+	public int getOMatches(int index) {
+		return oMatches[index];
+	}
+
+	public int getMatches(int index) {
+		return pMatches[index] + oMatches[index];
+	}
+
+	public int getPSets(int index) {
+		return pSets[index];
+	}
+
+	public int getOSets(int index) {
+		return oSets[index];
+	}
+
+	public int getSets(int index) {
+		return pSets[index] + oSets[index];
+	}
+}
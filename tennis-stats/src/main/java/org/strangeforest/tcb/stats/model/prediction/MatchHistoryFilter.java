@@ -0,0 +1,16 @@
+package org.strangeforest.tcb.stats.model.prediction;
+
+import java.util.*;
+
+@FunctionalInterface
+public interface MatchHistoryFilter {
+
+	void apply(MatchHistory history, BitSet matches);
+
+	default MatchHistoryFilter and(MatchHistoryFilter filter) {
+		return (history, matches) -> {
+			apply(history, matches);
+			filter.apply(history, matches);
+		};
+	}
+}
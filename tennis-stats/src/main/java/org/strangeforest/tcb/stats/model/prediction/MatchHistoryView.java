@@ -0,0 +1,33 @@
+package org.strangeforest.tcb.stats.model.prediction;
+
+import java.util.*;
+
+public final class MatchHistoryView {
+
+	private final MatchHistory history;
+	private final int beforeCount;
+	private final BitSet sameDayMatches;
+
+	MatchHistoryView(MatchHistory history, int beforeCount, BitSet sameDayMatches) {
+		this.history = history;
+		this.beforeCount = beforeCount;
+		this.sameDayMatches = sameDayMatches;
+	}
+
+	public MatchHistory getHistory() {
+		return history;
+	}
+
+	public int size() {
+		return sameDayMatches != null ? beforeCount + sameDayMatches.cardinality() : beforeCount;
+	}
+
+	public BitSet select(MatchHistoryFilter filter) {
+		BitSet selected = new BitSet(beforeCount);
+		selected.set(0, beforeCount);
+		if (sameDayMatches != null)
+			selected.or(sameDayMatches);
+		filter.apply(history, selected);
+		return selected;
+	}
+}
@@ -0,0 +1,72 @@
+package org.strangeforest.tcb.stats.model.prediction;
+
+import java.time.*;
+import java.util.function.*;
+
+import org.strangeforest.tcb.stats.model.core.*;
+
+import static java.util.Arrays.*;
+
+public abstract class MatchPredictionUtil {
+
+	public static MatchPrediction predictMatchBetweenEntries(
+		int playerId1, int playerId2, PlayerData playerData1, PlayerData playerData2, RankingData rankingData1, RankingData rankingData2, MatchHistoryView matchData1, MatchHistoryView matchData2,
+		LocalDate date1, LocalDate date2, Integer tournamentId, Surface surface, TournamentLevel level, short bestOf, Round round, PredictionConfig config
+	) {
+		return predictMatchBetweenEntries(
+			playerId1, playerId2, playerData1, playerData2, rankingData1, rankingData2, matchData1, matchData2,
+			date1, date2, tournamentId, surface, level, bestOf, round, config, UnaryOperator.identity()
+		);
+	}
+
+	public static MatchPrediction predictMatchBetweenEntries(
+		int playerId1, int playerId2, PlayerData playerData1, PlayerData playerData2, RankingData rankingData1, RankingData rankingData2, MatchHistoryView matchData1, MatchHistoryView matchData2,
+		LocalDate date1, LocalDate date2, Integer tournamentId, Surface surface, TournamentLevel level, short bestOf, Round round, PredictionConfig config, UnaryOperator<MatchPredictor> decorator
+	) {
+		MatchPrediction prediction = predictMatch(decorate(decorator,
+			new RankingMatchPredictor(rankingData1, rankingData2, bestOf, config),
+			new RecentFormMatchPredictor(matchData1, matchData2, rankingData1, rankingData2, playerData1, playerData2, date1, date2, surface, level, round, config),
+			new H2HMatchPredictor(matchData1, matchData2, playerId1, playerId2, date1, date2, surface, level, tournamentId, round, bestOf, config),
+			new WinningPctMatchPredictor(matchData1, matchData2, rankingData1, rankingData2, playerData1, playerData2, date1, date2, surface, level, round, tournamentId, bestOf, config)
+		), config);
+		prediction.setRankingData1(rankingData1);
+		prediction.setRankingData2(rankingData2);
+		return prediction;
+	}
+
+	public static MatchPrediction predictMatchVsQualifier(
+		RankingData rankingData, RankingData qualifierRankingData, MatchHistoryView matchData,
+		LocalDate date, Integer tournamentId, Surface surface, TournamentLevel level, short bestOf, Round round, PredictionConfig config
+	) {
+		return predictMatchVsQualifier(rankingData, qualifierRankingData, matchData, date, tournamentId, surface, level, bestOf, round, config, UnaryOperator.identity());
+	}
+
+	public static MatchPrediction predictMatchVsQualifier(
+		RankingData rankingData, RankingData qualifierRankingData, MatchHistoryView matchData,
+		LocalDate date, Integer tournamentId, Surface surface, TournamentLevel level, short bestOf, Round round, PredictionConfig config, UnaryOperator<MatchPredictor> decorator
+	) {
+		return predictMatch(decorate(decorator,
+			new RankingMatchPredictor(rankingData, qualifierRankingData, bestOf, config),
+			new VsQualifierMatchPredictor(matchData, date, surface, level, tournamentId, round, bestOf, config)
+		), config);
+	}
+
+	private static Iterable<MatchPredictor> decorate(UnaryOperator<MatchPredictor> decorator, MatchPredictor... predictors) {
+		for (int i = 0; i < predictors.length; i++)
+			predictors[i] = decorator.apply(predictors[i]);
+		return asList(predictors);
+	}
+
+	public static MatchPrediction predictMatch(Iterable<MatchPredictor> predictors, PredictionConfig config) {
+		MatchPrediction prediction = new MatchPrediction(config.getTotalAreasWeight());
+		for (MatchPredictor predictor : predictors) {
+			PredictionArea area = predictor.getArea();
+			if (config.isAreaEnabled(area)) {
+				MatchPrediction areaPrediction = predictor.predictMatch();
+				if (!areaPrediction.isEmpty())
+					prediction.addAreaProbabilities(areaPrediction, config.getAreaAdjustedWeight(area));
+			}
+		}
+		return prediction;
+	}
+}
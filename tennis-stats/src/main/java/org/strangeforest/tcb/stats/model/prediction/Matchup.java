@@ -0,0 +1,35 @@
+package org.strangeforest.tcb.stats.model.prediction;
+
+public final class Matchup {
+
+	private final int playerId1;
+	private final int playerId2;
+
+	public Matchup(int playerId1, int playerId2) {
+		this.playerId1 = playerId1;
+		this.playerId2 = playerId2;
+	}
+
+	public int getPlayerId1() {
+		return playerId1;
+	}
+
+	public int getPlayerId2() {
+		return playerId2;
+	}
+
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		Matchup matchup = (Matchup)o;
+		return playerId1 == matchup.playerId1 && playerId2 == matchup.playerId2;
+	}
+
+	@Override public int hashCode() {
+		return 31 * playerId1 + playerId2;
+	}
+
+	@Override public String toString() {
+		return playerId1 + " vs " + playerId2;
+	}
+}
@@ -0,0 +1,83 @@
+package org.strangeforest.tcb.stats.model.prediction;
+
+import java.time.*;
+import java.util.*;
+
+import org.strangeforest.tcb.stats.model.core.*;
+
+public final class MatchupContext {
+
+	private final LocalDate date;
+	private final Integer tournamentId;
+	private final Integer tournamentEventId;
+	private final boolean inProgress;
+	private final Surface surface;
+	private final Boolean indoor;
+	private final TournamentLevel level;
+	private final Short bestOf;
+	private final Round round;
+
+	public MatchupContext(LocalDate date, Surface surface, Boolean indoor, TournamentLevel level, Round round) {
+		this(date, null, null, true, surface, indoor, level, null, round);
+	}
+
+	public MatchupContext(LocalDate date, Integer tournamentId, Integer tournamentEventId, boolean inProgress, Surface surface, Boolean indoor, TournamentLevel level, Short bestOf, Round round) {
+		this.date = date;
+		this.tournamentId = tournamentId;
+		this.tournamentEventId = tournamentEventId;
+		this.inProgress = inProgress;
+		this.surface = surface;
+		this.indoor = indoor;
+		this.level = level;
+		this.bestOf = bestOf;
+		this.round = round;
+	}
+
+	public LocalDate getDate() {
+		return date;
+	}
+
+	public Integer getTournamentId() {
+		return tournamentId;
+	}
+
+	public Integer getTournamentEventId() {
+		return tournamentEventId;
+	}
+
+	public boolean isInProgress() {
+		return inProgress;
+	}
+
+	public Surface getSurface() {
+		return surface;
+	}
+
+	public Boolean getIndoor() {
+		return indoor;
+	}
+
+	public TournamentLevel getLevel() {
+		return level;
+	}
+
+	public Short getBestOf() {
+		return bestOf;
+	}
+
+	public Round getRound() {
+		return round;
+	}
+
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		MatchupContext context = (MatchupContext)o;
+		return inProgress == context.inProgress && Objects.equals(date, context.date) && Objects.equals(tournamentId, context.tournamentId) && Objects.equals(tournamentEventId, context.tournamentEventId)
+			&& surface == context.surface && Objects.equals(indoor, context.indoor) && level == context.level && Objects.equals(bestOf, context.bestOf) && round == context.round;
+	}
+
+	@Override public int hashCode() {
+		return Objects.hash(date, tournamentId, tournamentEventId, inProgress, surface, indoor, level, bestOf, round);
+	}
+}
@@ -0,0 +1,51 @@
+package org.strangeforest.tcb.stats.model.prediction;
+
+import java.util.*;
+
+public final class MatchupPredictions {
+
+	private final int[] playerIds;
+	private final Map<Integer, Integer> playerIndexes;
+	private final double[][] winProbabilities;
+
+	public MatchupPredictions(int[] playerIds) {
+		this.playerIds = playerIds;
+		int size = playerIds.length;
+		playerIndexes = new HashMap<>(size * 2);
+		for (int i = 0; i < size; i++)
+			playerIndexes.put(playerIds[i], i);
+		winProbabilities = new double[size][size];
+		for (int i = 0; i < size; i++) {
+			Arrays.fill(winProbabilities[i], Double.NaN);
+			winProbabilities[i][i] = 0.5;
+		}
+	}
+
+	public int[] getPlayerIds() {
+		return playerIds;
+	}
+
+	public double[][] getWinProbabilities() {
+		return winProbabilities;
+	}
+
+	public boolean hasPlayer(int playerId) {
+		return playerIndexes.containsKey(playerId);
+	}
+
+	public int getPlayerIndex(int playerId) {
+		Integer index = playerIndexes.get(playerId);
+		if (index == null)
+			throw new IllegalArgumentException("Unknown player: " + playerId);
+		return index;
+	}
+
+	public double getWinProbability(int playerId1, int playerId2) {
+		return winProbabilities[getPlayerIndex(playerId1)][getPlayerIndex(playerId2)];
+	}
+
+	public void setWinProbability(int index1, int index2, double winProbability1) {
+		winProbabilities[index1][index2] = winProbability1;
+		winProbabilities[index2][index1] = 1.0 - winProbability1;
+	}
+}
@@ -0,0 +1,68 @@
+package org.strangeforest.tcb.stats.model.prediction;
+
+public final class QualifierRankings {
+
+	private final Baseline overall;
+
+	private QualifierRankings(Baseline overall) {
+		this.overall = overall;
+	}
+
+	public RankingData getRankingData() {
+		return overall.toRankingData();
+	}
+
+	private static final class Baseline {
+
+		private long rankSum;
+		private int rankCount;
+		private long rankPointsSum;
+		private int rankPointsCount;
+		private long eloRatingSum;
+		private int eloRatingCount;
+
+		private void add(long rankSum, int rankCount, long rankPointsSum, int rankPointsCount, long eloRatingSum, int eloRatingCount) {
+			this.rankSum += rankSum;
+			this.rankCount += rankCount;
+			this.rankPointsSum += rankPointsSum;
+			this.rankPointsCount += rankPointsCount;
+			this.eloRatingSum += eloRatingSum;
+			this.eloRatingCount += eloRatingCount;
+		}
+
+		private RankingData toRankingData() {
+			RankingData rankingData = new RankingData();
+			rankingData.setRank(average(rankSum, rankCount));
+			rankingData.setRankPoints(average(rankPointsSum, rankPointsCount));
+			rankingData.setEloRating(average(eloRatingSum, eloRatingCount));
+			return rankingData;
+		}
+
+		private static Integer average(long sum, int count) {
+			return count > 0 ? (int)(sum / count) : null;
+		}
+	}
+
+
+	// Builder
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public static final class Builder {
+
+		private final Baseline overall = new Baseline();
+
+		private Builder() {}
+
+		public Builder addBaseline(long rankSum, int rankCount, long rankPointsSum, int rankPointsCount, long eloRatingSum, int eloRatingCount) {
+			overall.add(rankSum, rankCount, rankPointsSum, rankPointsCount, eloRatingSum, eloRatingCount);
+			return this;
+		}
+
+		public QualifierRankings build() {
+			return new QualifierRankings(overall);
+		}
+	}
+}
@@ -0,0 +1,272 @@
+package org.strangeforest.tcb.stats.model.prediction;
+
+import java.io.*;
+import java.time.*;
+import java.util.*;
+
+import org.strangeforest.tcb.stats.model.core.*;
+
+public final class RankingIndex {
+
+	public enum EloType {
+		OVERALL, RECENT, HARD, CLAY, GRASS, CARPET, OUTDOOR, INDOOR, SET;
+
+		public static EloType forSurface(Surface surface) {
+			switch (surface) {
+				case HARD: return HARD;
+				case CLAY: return CLAY;
+				case GRASS: return GRASS;
+				case CARPET: return CARPET;
+				default: throw new IllegalArgumentException("Unknown surface: " + surface);
+			}
+		}
+
+		public static EloType forIndoor(boolean indoor) {
+			return indoor ? INDOOR : OUTDOOR;
+		}
+	}
+
+	private static final int ELO_TYPE_COUNT = EloType.values().length;
+	private static final short UNKNOWN = 0;
+
+	private final Map<Integer, PlayerRankings> players;
+	private final LocalDate fromDate; // null if index covers all rankings
+
+	private RankingIndex(Map<Integer, PlayerRankings> players, LocalDate fromDate) {
+		this.players = players;
+		this.fromDate = fromDate;
+	}
+
+	public int playerCount() {
+		return players.size();
+	}
+
+	// Whether the whole one-year look-back window before the date is indexed
+	public boolean covers(LocalDate date) {
+		return fromDate == null || !date.minusYears(1L).isBefore(fromDate);
+	}
+
+	public RankingData getRankingData(int playerId, LocalDate date, Surface surface, Boolean indoor) {
+		RankingData rankingData = new RankingData();
+		PlayerRankings rankings = players.get(playerId);
+		if (rankings == null)
+			return rankingData;
+		int toDay = (int)date.toEpochDay();
+		int fromDay = (int)date.minusYears(1L).toEpochDay();
+		int rankIndex = indexAsOf(rankings.rankDates, rankings.rankCount, fromDay, toDay);
+		if (rankIndex >= 0) {
+			rankingData.setRank(rankings.ranks[rankIndex] != UNKNOWN ? (int)rankings.ranks[rankIndex] : null);
+			rankingData.setRankPoints(rankings.rankPoints[rankIndex] != UNKNOWN ? rankings.rankPoints[rankIndex] : null);
+		}
+		int eloIndex = indexAsOf(rankings.eloDates, rankings.eloCount, fromDay, toDay);
+		if (eloIndex >= 0) {
+			short[][] eloRatings = rankings.eloRatings;
+			rankingData.setEloRating(eloRating(eloRatings, EloType.OVERALL, eloIndex));
+			rankingData.setRecentEloRating(eloRating(eloRatings, EloType.RECENT, eloIndex));
+			if (surface != null)
+				rankingData.setSurfaceEloRating(eloRating(eloRatings, EloType.forSurface(surface), eloIndex));
+			if (indoor != null)
+				rankingData.setInOutEloRating(eloRating(eloRatings, EloType.forIndoor(indoor), eloIndex));
+			rankingData.setSetEloRating(eloRating(eloRatings, EloType.SET, eloIndex));
+			rankingData.setEloDate(LocalDate.ofEpochDay(rankings.eloDates[eloIndex]));
+		}
+		return rankingData;
+	}
+
+	private static Integer eloRating(short[][] eloRatings, EloType type, int index) {
+		short eloRating = eloRatings[type.ordinal()][index];
+		return eloRating != UNKNOWN ? (int)eloRating : null;
+	}
+
+	// Returns the last index with date in [fromDay, toDay], or -1 if there is none
+	private static int indexAsOf(int[] dates, int count, int fromDay, int toDay) {
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (dates[middle] <= toDay)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		int index = low - 1;
+		return index >= 0 && dates[index] >= fromDay ? index : -1;
+	}
+
+
+	// Serialization
+
+	public void write(DataOutput out, Collection<Integer> playerIds) throws IOException {
+		List<Integer> ids = new ArrayList<>();
+		for (Integer playerId : playerIds) {
+			if (players.containsKey(playerId))
+				ids.add(playerId);
+		}
+		out.writeInt(ids.size());
+		for (int playerId : ids) {
+			out.writeInt(playerId);
+			players.get(playerId).write(out);
+		}
+	}
+
+	public static RankingIndex read(DataInput in) throws IOException {
+		int playerCount = in.readInt();
+		Map<Integer, PlayerRankings> players = new HashMap<>(playerCount * 4 / 3 + 1);
+		for (int i = 0; i < playerCount; i++)
+			players.put(in.readInt(), PlayerRankings.read(in));
+		return new RankingIndex(players, null);
+	}
+
+	private static final class PlayerRankings {
+
+		private int rankCount;
+		private int[] rankDates = new int[0];
+		private short[] ranks = new short[0];
+		private int[] rankPoints = new int[0];
+
+		private int eloCount;
+		private int[] eloDates = new int[0];
+		private short[][] eloRatings = new short[ELO_TYPE_COUNT][0];
+
+		private void addRanking(int date, short rank, int points) {
+			if (rankCount > 0 && date <= rankDates[rankCount - 1])
+				throw new IllegalArgumentException("Ranking dates are not ascending: " + LocalDate.ofEpochDay(date));
+			if (rankCount == rankDates.length) {
+				int capacity = newCapacity(rankCount);
+				rankDates = Arrays.copyOf(rankDates, capacity);
+				ranks = Arrays.copyOf(ranks, capacity);
+				rankPoints = Arrays.copyOf(rankPoints, capacity);
+			}
+			rankDates[rankCount] = date;
+			ranks[rankCount] = rank;
+			rankPoints[rankCount] = points;
+			rankCount++;
+		}
+
+		private void addEloRatings(int date, short[] ratings) {
+			if (eloCount > 0 && date <= eloDates[eloCount - 1])
+				throw new IllegalArgumentException("Elo rating dates are not ascending: " + LocalDate.ofEpochDay(date));
+			if (eloCount == eloDates.length) {
+				int capacity = newCapacity(eloCount);
+				eloDates = Arrays.copyOf(eloDates, capacity);
+				for (int type = 0; type < ELO_TYPE_COUNT; type++)
+					eloRatings[type] = Arrays.copyOf(eloRatings[type], capacity);
+			}
+			eloDates[eloCount] = date;
+			for (int type = 0; type < ELO_TYPE_COUNT; type++)
+				eloRatings[type][eloCount] = ratings[type];
+			eloCount++;
+		}
+
+		private void trim() {
+			rankDates = Arrays.copyOf(rankDates, rankCount);
+			ranks = Arrays.copyOf(ranks, rankCount);
+			rankPoints = Arrays.copyOf(rankPoints, rankCount);
+			eloDates = Arrays.copyOf(eloDates, eloCount);
+			for (int type = 0; type < ELO_TYPE_COUNT; type++)
+				eloRatings[type] = Arrays.copyOf(eloRatings[type], eloCount);
+		}
+
+		private void write(DataOutput out) throws IOException {
+			out.writeInt(rankCount);
+			for (int i = 0; i < rankCount; i++) {
+				out.writeInt(rankDates[i]);
+				out.writeShort(ranks[i]);
+				out.writeInt(rankPoints[i]);
+			}
+			out.writeInt(eloCount);
+			for (int i = 0; i < eloCount; i++) {
+				out.writeInt(eloDates[i]);
+				for (int type = 0; type < ELO_TYPE_COUNT; type++)
+					out.writeShort(eloRatings[type][i]);
+			}
+		}
+
+		private static PlayerRankings read(DataInput in) throws IOException {
+			PlayerRankings rankings = new PlayerRankings();
+			int rankCount = in.readInt();
+			rankings.rankCount = rankCount;
+			rankings.rankDates = new int[rankCount];
+			rankings.ranks = new short[rankCount];
+			rankings.rankPoints = new int[rankCount];
+			for (int i = 0; i < rankCount; i++) {
+				rankings.rankDates[i] = in.readInt();
+				rankings.ranks[i] = in.readShort();
+				rankings.rankPoints[i] = in.readInt();
+			}
+			int eloCount = in.readInt();
+			rankings.eloCount = eloCount;
+			rankings.eloDates = new int[eloCount];
+			for (int type = 0; type < ELO_TYPE_COUNT; type++)
+				rankings.eloRatings[type] = new short[eloCount];
+			for (int i = 0; i < eloCount; i++) {
+				rankings.eloDates[i] = in.readInt();
+				for (int type = 0; type < ELO_TYPE_COUNT; type++)
+					rankings.eloRatings[type][i] = in.readShort();
+			}
+			return rankings;
+		}
+
+		private static int newCapacity(int count) {
+			return Math.max(16, count + (count >> 1));
+		}
+	}
+
+
+	// Builder
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public static final class Builder {
+
+		private final Map<Integer, PlayerRankings> players = new HashMap<>();
+		private final short[] ratings = new short[ELO_TYPE_COUNT];
+		private LocalDate fromDate;
+		private int skippedValues;
+
+		private Builder() {}
+
+		public Builder fromDate(LocalDate fromDate) {
+			this.fromDate = fromDate;
+			return this;
+		}
+
+		public Builder addRanking(int playerId, LocalDate date, Integer rank, Integer rankPoints) {
+			playerRankings(playerId).addRanking((int)date.toEpochDay(), toShort(rank), rankPoints != null ? rankPoints : UNKNOWN);
+			return this;
+		}
+
+		public Builder addEloRatings(int playerId, LocalDate date, Map<EloType, Integer> eloRatings) {
+			for (EloType type : EloType.values())
+				ratings[type.ordinal()] = toShort(eloRatings.get(type));
+			playerRankings(playerId).addEloRatings((int)date.toEpochDay(), ratings);
+			return this;
+		}
+
+		public RankingIndex build() {
+			players.values().forEach(PlayerRankings::trim);
+			return new RankingIndex(players, fromDate);
+		}
+
+		public int getSkippedValues() {
+			return skippedValues;
+		}
+
+		private PlayerRankings playerRankings(int playerId) {
+			return players.computeIfAbsent(playerId, id -> new PlayerRankings());
+		}
+
+		// Values out of short range are indexed as unknown
+		private short toShort(Integer value) {
+			if (value == null)
+				return UNKNOWN;
+			if (value <= 0 || value > Short.MAX_VALUE) {
+				skippedValues++;
+				return UNKNOWN;
+			}
+			return value.shortValue();
+		}
+	}
+}
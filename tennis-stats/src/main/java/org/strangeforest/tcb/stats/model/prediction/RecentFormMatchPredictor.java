@@ -2,21 +2,19 @@ package org.strangeforest.tcb.stats.model.prediction;
 
 import java.time.*;
 import java.util.*;
-import java.util.function.*;
+import java.util.stream.*;
 
 import org.strangeforest.tcb.stats.model.core.*;
 
 import com.google.common.collect.*;
 
 import static java.lang.Math.*;
-import static java.util.stream.Collectors.*;
 import static org.strangeforest.tcb.stats.model.prediction.MatchDataUtil.*;
-import static org.strangeforest.tcb.stats.model.prediction.RecentFormPredictionItem.*;
 
 public class RecentFormMatchPredictor implements MatchPredictor {
 
-	private final List<MatchData> matchData1;
-	private final List<MatchData> matchData2;
+	private final MatchHistoryView matchData1;
+	private final MatchHistoryView matchData2;
 	private final Range<Integer> rankRange1;
 	private final Range<Integer> rankRange2;
 	private final PlayerData playerData1;
@@ -31,7 +29,7 @@ public class RecentFormMatchPredictor implements MatchPredictor {
 	private static final int MATCH_RECENT_PERIOD_YEARS = 2;
 	private static final int LAST_MATCHES_COUNT = 30;
 
-	public RecentFormMatchPredictor(List<MatchData> matchData1, List<MatchData> matchData2, RankingData rankingData1, RankingData rankingData2, PlayerData playerData1, PlayerData playerData2,
+	public RecentFormMatchPredictor(MatchHistoryView matchData1, MatchHistoryView matchData2, RankingData rankingData1, RankingData rankingData2, PlayerData playerData1, PlayerData playerData2,
 	                                LocalDate date1, LocalDate date2, Surface surface, TournamentLevel level, Round round, PredictionConfig config) {
 		this.matchData1 = matchData1;
 		this.matchData2 = matchData2;
@@ -52,16 +50,19 @@ public class RecentFormMatchPredictor implements MatchPredictor {
 	}
 
 	@Override public MatchPrediction predictMatch() {
-		Period matchRecentPeriod = getMatchRecentPeriod();
 		MatchPrediction prediction = new MatchPrediction(config.getTotalAreasWeight());
-		int recentFormMatches = getRecentFormMatches();
-		addItemProbabilities(prediction, OVERALL, isRecent(date1, matchRecentPeriod), isRecent(date2, matchRecentPeriod), recentFormMatches);
-		addItemProbabilities(prediction, SURFACE, isSurface(surface).and(isRecent(date1, matchRecentPeriod)), isSurface(surface).and(isRecent(date2, matchRecentPeriod)), recentFormMatches);
-		addItemProbabilities(prediction, LEVEL, isLevel(level).and(isRecent(date1, matchRecentPeriod)), isLevel(level).and(isRecent(date2, matchRecentPeriod)), recentFormMatches);
-		addItemProbabilities(prediction, ROUND, isRound(round).and(isRecent(date1, matchRecentPeriod)), isRound(round).and(isRecent(date2, matchRecentPeriod)), recentFormMatches);
-		addItemProbabilities(prediction, VS_RANK, isOpponentRankInRange(rankRange2).and(isRecent(date1, matchRecentPeriod)), isOpponentRankInRange(rankRange1).and(isRecent(date2, matchRecentPeriod)), recentFormMatches);
-		addItemProbabilities(prediction, VS_HAND, isOpponentHand(playerData2.getHand()).and(isRecent(date1, matchRecentPeriod)), isOpponentHand(playerData1.getHand()).and(isRecent(date2, matchRecentPeriod)), recentFormMatches);
-		addItemProbabilities(prediction, VS_BACKHAND, isOpponentBackhand(playerData2.getBackhand()).and(isRecent(date1, matchRecentPeriod)), isOpponentBackhand(playerData1.getBackhand()).and(isRecent(date2, matchRecentPeriod)), recentFormMatches);
+		int[] items = Stream.of(ITEMS).filter(item -> config.getItemWeight(item) > 0.0).mapToInt(Enum::ordinal).toArray();
+		if (items.length > 0) {
+			Period matchRecentPeriod = getMatchRecentPeriod();
+			int recentFormMatches = getRecentFormMatches();
+			MatchCriteria criteria1 = new MatchCriteria(matchData1.getHistory(), surface, level, null, round, null, null, rankRange2, playerData2);
+			MatchCriteria criteria2 = new MatchCriteria(matchData2.getHistory(), surface, level, null, round, null, null, rankRange1, playerData1);
+			double[] recencyAdjustments = recencyAdjustments(recentFormMatches);
+			Forms forms1 = forms(matchData1, isRecent(date1, matchRecentPeriod), criteria1, items, recencyAdjustments);
+			Forms forms2 = forms(matchData2, isRecent(date2, matchRecentPeriod), criteria2, items, recencyAdjustments);
+			for (int item : items)
+				addItemProbabilities(prediction, ITEMS[item], forms1.formSums[item], forms1.matches[item], forms2.formSums[item], forms2.matches[item]);
+		}
 		return prediction;
 	}
 
@@ -73,43 +74,73 @@ public class RecentFormMatchPredictor implements MatchPredictor {
 		return config.getLastMatchesCount(getArea(), 3 * LAST_MATCHES_COUNT / 2);
 	}
 
-	private void addItemProbabilities(MatchPrediction prediction, RecentFormPredictionItem item, Predicate<MatchData> filter1, Predicate<MatchData> filter2, Integer matches) {
-		double itemWeight = config.getItemWeight(item);
-		if (itemWeight > 0.0) {
-			List<MatchData> filteredMatchData1 = matchData1.stream().filter(filter1).collect(toList());
-			List<MatchData> filteredMatchData2 = matchData2.stream().filter(filter2).collect(toList());
-			if (matches != null) {
-				int matches1 = filteredMatchData1.size();
-				int matches2 = filteredMatchData2.size();
-				if (matches1 > matches)
-					filteredMatchData1 = filteredMatchData1.subList(matches1 - matches, matches1);
-				if (matches2 > matches)
-					filteredMatchData2 = filteredMatchData2.subList(matches2 - matches, matches2);
+	private void addItemProbabilities(MatchPrediction prediction, RecentFormPredictionItem item, double formSum1, int matches1, double formSum2, int matches2) {
+		if (matches1 > 0 && matches2 > 0) {
+			double form1 = formSum1 / matches1;
+			double form2 = formSum2 / matches2;
+			double weight = config.getItemWeight(item) * weight(matches1, matches2);
+			double p1 = winProbability(form1, form2);
+			double p2 = winProbability(form2, form1);
+			double p12 = p1 + p2;
+			if (p12 > 0.0) {
+				prediction.addItemProbability1(item, weight, p1 / p12);
+				prediction.addItemProbability2(item, weight, p2 / p12);
 			}
-			int matches1 = filteredMatchData1.size();
-			int matches2 = filteredMatchData2.size();
-			if (matches1 > 0 && matches2 > 0) {
-				double form1 = 0.0;
-				for (int i = 0; i < matches1; i++)
-					form1 += filteredMatchData1.get(i).getOpponentEloScore() / recencyAdjustment(matches1 - i, LAST_MATCHES_COUNT);
-				form1 /= matches1;
-				double form2 = 0.0;
-				for (int i = 0; i < matches2; i++)
-					form2 += filteredMatchData2.get(i).getOpponentEloScore() / recencyAdjustment(matches2 - i, LAST_MATCHES_COUNT);
-				form2 /= matches2;
-				double weight = itemWeight * weight(matches1, matches2);
-				double p1 = winProbability(form1, form2);
-				double p2 = winProbability(form2, form1);
-				double p12 = p1 + p2;
-				if (p12 > 0.0) {
-					prediction.addItemProbability1(item, weight, p1 / p12);
-					prediction.addItemProbability2(item, weight, p2 / p12);
+		}
+	}
+
+	// Accumulates recency-adjusted form sums and match counts of all the items in a single backward pass over the last matches
+	private static Forms forms(MatchHistoryView matchData, MatchHistoryFilter filter, MatchCriteria criteria, int[] items, double[] recencyAdjustments) {
+		int maxMatches = recencyAdjustments.length - 1;
+		MatchHistory history = matchData.getHistory();
+		BitSet matches = matchData.select(filter);
+		Forms forms = new Forms();
+		int completedItems = 0;
+		for (int i = matches.previousSetBit(matches.length() - 1); i >= 0 && completedItems < items.length; i = matches.previousSetBit(i - 1)) {
+			int matchCriteria = criteria.of(i);
+			for (int item : items) {
+				int itemMatches = forms.matches[item];
+				if (itemMatches < maxMatches && MatchCriteria.matches(matchCriteria, ITEM_CRITERIA[item])) {
+					forms.formSums[item] += history.getOpponentEloScore(i) / recencyAdjustments[++itemMatches];
+					forms.matches[item] = itemMatches;
+					if (itemMatches == maxMatches)
+						completedItems++;
 				}
 			}
 		}
+		return forms;
+	}
+
+	private static double[] recencyAdjustments(int maxMatches) {
+		double[] recencyAdjustments = new double[maxMatches + 1];
+		for (int offset = 1; offset <= maxMatches; offset++)
+			recencyAdjustments[offset] = recencyAdjustment(offset, LAST_MATCHES_COUNT);
+		return recencyAdjustments;
 	}
 
 	private static double winProbability(double form1, double form2) {
 		return 1 / (1 + pow(10.0, (form2 - form1) / 350.0));
 	}
+
+	private static final RecentFormPredictionItem[] ITEMS = RecentFormPredictionItem.values();
+	private static final int[] ITEM_CRITERIA = Stream.of(ITEMS).mapToInt(RecentFormMatchPredictor::itemCriteria).toArray();
+
+	private static int itemCriteria(RecentFormPredictionItem item) {
+		switch (item) {
+			case OVERALL: return MatchCriteria.NONE;
+			case SURFACE: return MatchCriteria.SURFACE;
+			case LEVEL: return MatchCriteria.LEVEL;
+			case ROUND: return MatchCriteria.ROUND;
+			case VS_RANK: return MatchCriteria.VS_RANK;
+			case VS_HAND: return MatchCriteria.VS_HAND;
+			case VS_BACKHAND: return MatchCriteria.VS_BACKHAND;
+			default: throw new IllegalArgumentException("Unknown item: " + item);
+		}
+	}
+
+	private static final class Forms {
+
+		public final double[] formSums = new double[ITEMS.length];
+		public final int[] matches = new int[ITEMS.length];
+	}
 }
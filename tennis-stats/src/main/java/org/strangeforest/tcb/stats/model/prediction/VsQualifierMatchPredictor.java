@@ -7,12 +7,11 @@ import java.util.function.*;
 import org.strangeforest.tcb.stats.model.core.*;
 
 import static org.strangeforest.tcb.stats.model.prediction.H2HMatchPredictor.*;
-import static org.strangeforest.tcb.stats.model.prediction.H2HPredictionItem.*;
 import static org.strangeforest.tcb.stats.model.prediction.MatchDataUtil.*;
 
 public class VsQualifierMatchPredictor implements MatchPredictor {
 
-	private final List<MatchData> matchData;
+	private final MatchHistoryView matchData;
 	private final LocalDate date;
 	private final Surface surface;
 	private final TournamentLevel level;
@@ -21,7 +20,7 @@ public class VsQualifierMatchPredictor implements MatchPredictor {
 	private final short bestOf;
 	private final PredictionConfig config;
 
-	public VsQualifierMatchPredictor(List<MatchData> matchData, LocalDate date, Surface surface, TournamentLevel level, Integer tournamentId, Round round, short bestOf, PredictionConfig config) {
+	public VsQualifierMatchPredictor(MatchHistoryView matchData, LocalDate date, Surface surface, TournamentLevel level, Integer tournamentId, Round round, short bestOf, PredictionConfig config) {
 		this.matchData = matchData;
 		this.date = date;
 		this.surface = surface;
@@ -38,24 +37,13 @@ public class VsQualifierMatchPredictor implements MatchPredictor {
 
 	@Override public MatchPrediction predictMatch() {
 		MatchPrediction prediction = new MatchPrediction(config.getTotalAreasWeight());
-		addItemProbabilities(prediction, OVERALL, ALWAYS_TRUE);
-		addItemProbabilities(prediction, SURFACE, isSurface(surface));
-		addItemProbabilities(prediction, LEVEL, isLevel(level));
-		addItemProbabilities(prediction, TOURNAMENT, isTournament(tournamentId));
-		addItemProbabilities(prediction, ROUND, isRound(round));
-		addItemProbabilities(prediction, RECENT, isRecent(date, getMatchRecentPeriod()));
-		addItemProbabilities(prediction, SURFACE_RECENT, isSurface(surface).and(isRecent(date, getMatchRecentPeriod())));
-		addItemProbabilities(prediction, LEVEL_RECENT, isLevel(level).and(isRecent(date, getMatchRecentPeriod())));
-		addItemProbabilities(prediction, ROUND_RECENT, isRound(round).and(isRecent(date, getMatchRecentPeriod())));
-		addItemProbabilities(prediction, OVERALL_SET, ALWAYS_TRUE);
-		addItemProbabilities(prediction, SURFACE_SET, isSurface(surface));
-		addItemProbabilities(prediction, LEVEL_SET, isLevel(level));
-		addItemProbabilities(prediction, TOURNAMENT_SET, isTournament(tournamentId));
-		addItemProbabilities(prediction, ROUND_SET, isRound(round));
-		addItemProbabilities(prediction, RECENT_SET, isRecent(date, getSetRecentPeriod()));
-		addItemProbabilities(prediction, SURFACE_RECENT_SET, isSurface(surface).and(isRecent(date, getSetRecentPeriod())));
-		addItemProbabilities(prediction, LEVEL_RECENT_SET, isLevel(level).and(isRecent(date, getSetRecentPeriod())));
-		addItemProbabilities(prediction, ROUND_RECENT_SET, isRound(round).and(isRecent(date, getSetRecentPeriod())));
+		int[] items = enabledItems(config);
+		if (items.length > 0) {
+			MatchCriteria criteria = new MatchCriteria(matchData.getHistory(), surface, level, tournamentId, round, date.minus(getMatchRecentPeriod()), date.minus(getSetRecentPeriod()), null, null);
+			int[] wonLost = wonLost(matchData, isOpponentQualifier(), criteria, items);
+			for (int item : items)
+				addItemProbabilities(prediction, ITEMS[item], wonLost[2 * item], wonLost[2 * item + 1]);
+		}
 		return prediction;
 	}
 
@@ -67,22 +55,13 @@ public class VsQualifierMatchPredictor implements MatchPredictor {
 		return Period.ofYears(config.getSetRecentPeriod(getArea(), SET_RECENT_PERIOD_YEARS));
 	}
 
-	private void addItemProbabilities(MatchPrediction prediction, H2HPredictionItem item, Predicate<MatchData> filter) {
-		double itemWeight = config.getItemWeight(item);
-		if (itemWeight > 0.0) {
-			ToIntFunction<MatchData> dimension = item.isForSet() ? MatchData::getSets : MatchData::getMatches;
-
-			Predicate<MatchData> qualifierFilter = filter.and(isOpponentQualifier());
-			int total = matchData.stream().filter(qualifierFilter).mapToInt(dimension).sum();
-			if (total > 0) {
-				ToIntFunction<MatchData> pDimension = item.isForSet() ? MatchData::getPSets : MatchData::getPMatches;
-				int won = matchData.stream().filter(qualifierFilter).mapToInt(pDimension).sum();
-				int lost = total - won;
-				double weight = itemWeight * weight(total);
-				DoubleUnaryOperator probabilityTransformer = probabilityTransformer(item.isForSet(), item.isMixedBestOf(), bestOf);
-				prediction.addItemProbability1(item, weight, probabilityTransformer.applyAsDouble(1.0 * won / total));
-				prediction.addItemProbability2(item, weight, probabilityTransformer.applyAsDouble(1.0 * lost / total));
-			}
+	private void addItemProbabilities(MatchPrediction prediction, H2HPredictionItem item, int won, int lost) {
+		int total = won + lost;
+		if (total > 0) {
+			double weight = config.getItemWeight(item) * weight(total);
+			DoubleUnaryOperator probabilityTransformer = probabilityTransformer(item.isForSet(), item.isMixedBestOf(), bestOf);
+			prediction.addItemProbability1(item, weight, probabilityTransformer.applyAsDouble(1.0 * won / total));
+			prediction.addItemProbability2(item, weight, probabilityTransformer.applyAsDouble(1.0 * lost / total));
 		}
 	}
 }
@@ -3,6 +3,7 @@ package org.strangeforest.tcb.stats.model.prediction;
 import java.time.*;
 import java.util.*;
 import java.util.function.*;
+import java.util.stream.*;
 
 import org.strangeforest.tcb.stats.model.core.*;
 
@@ -10,12 +11,11 @@ import com.google.common.collect.*;
 
 import static java.lang.Math.*;
 import static org.strangeforest.tcb.stats.model.prediction.MatchDataUtil.*;
-import static org.strangeforest.tcb.stats.model.prediction.WinningPctPredictionItem.*;
 
 public class WinningPctMatchPredictor implements MatchPredictor {
 
-	private final List<MatchData> matchData1;
-	private final List<MatchData> matchData2;
+	private final MatchHistoryView matchData1;
+	private final MatchHistoryView matchData2;
 	private final Range<Integer> rankRange1;
 	private final Range<Integer> rankRange2;
 	private final PlayerData playerData1;
@@ -32,7 +32,7 @@ public class WinningPctMatchPredictor implements MatchPredictor {
 	private static final int MATCH_RECENT_PERIOD_YEARS = 2;
 	private static final int SET_RECENT_PERIOD_YEARS = 1;
 
-	public WinningPctMatchPredictor(List<MatchData> matchData1, List<MatchData> matchData2, RankingData rankingData1, RankingData rankingData2, PlayerData playerData1, PlayerData playerData2,
+	public WinningPctMatchPredictor(MatchHistoryView matchData1, MatchHistoryView matchData2, RankingData rankingData1, RankingData rankingData2, PlayerData playerData1, PlayerData playerData2,
 	                                LocalDate date1, LocalDate date2, Surface surface, TournamentLevel level, Round round, Integer tournamentId, short bestOf, PredictionConfig config) {
 		this.matchData1 = matchData1;
 		this.matchData2 = matchData2;
@@ -55,36 +55,25 @@ public class WinningPctMatchPredictor implements MatchPredictor {
 	}
 
 	@Override public MatchPrediction predictMatch() {
-		Period matchRecentPeriod = getMatchRecentPeriod();
-		Period setRecentPeriod = getSetRecentPeriod();
 		MatchPrediction prediction = new MatchPrediction(config.getTotalAreasWeight());
-		addItemProbabilities(prediction, OVERALL, ALWAYS_TRUE);
-		addItemProbabilities(prediction, SURFACE, isSurface(surface));
-		addItemProbabilities(prediction, LEVEL, isLevel(level));
-		addItemProbabilities(prediction, TOURNAMENT, isTournament(tournamentId));
-		addItemProbabilities(prediction, ROUND, isRound(round));
-		addItemProbabilities(prediction, RECENT, isRecent(date1, matchRecentPeriod), isRecent(date2, matchRecentPeriod));
-		addItemProbabilities(prediction, SURFACE_RECENT, isSurface(surface).and(isRecent(date1, matchRecentPeriod)), isSurface(surface).and(isRecent(date2, matchRecentPeriod)));
-		addItemProbabilities(prediction, LEVEL_RECENT, isLevel(level).and(isRecent(date1, matchRecentPeriod)), isLevel(level).and(isRecent(date2, matchRecentPeriod)));
-		addItemProbabilities(prediction, ROUND_RECENT, isRound(round).and(isRecent(date1, matchRecentPeriod)), isRound(round).and(isRecent(date2, matchRecentPeriod)));
-		addItemProbabilities(prediction, VS_RANK, isOpponentRankInRange(rankRange2), isOpponentRankInRange(rankRange1));
-		addItemProbabilities(prediction, VS_HAND, isOpponentHand(playerData2.getHand()), isOpponentHand(playerData1.getHand()));
-		addItemProbabilities(prediction, VS_BACKHAND, isOpponentBackhand(playerData2.getBackhand()), isOpponentBackhand(playerData1.getBackhand()));
-		addItemProbabilities(prediction, OVERALL_SET, ALWAYS_TRUE);
-		addItemProbabilities(prediction, SURFACE_SET, isSurface(surface));
-		addItemProbabilities(prediction, LEVEL_SET, isLevel(level));
-		addItemProbabilities(prediction, TOURNAMENT_SET, isTournament(tournamentId));
-		addItemProbabilities(prediction, ROUND_SET, isRound(round));
-		addItemProbabilities(prediction, RECENT_SET, isRecent(date1, setRecentPeriod), isRecent(date2, setRecentPeriod));
-		addItemProbabilities(prediction, SURFACE_RECENT_SET, isSurface(surface).and(isRecent(date1, setRecentPeriod)), isSurface(surface).and(isRecent(date2, setRecentPeriod)));
-		addItemProbabilities(prediction, LEVEL_RECENT_SET, isLevel(level).and(isRecent(date1, setRecentPeriod)), isLevel(level).and(isRecent(date2, setRecentPeriod)));
-		addItemProbabilities(prediction, ROUND_RECENT_SET, isRound(round).and(isRecent(date1, setRecentPeriod)), isRound(round).and(isRecent(date2, setRecentPeriod)));
-		addItemProbabilities(prediction, VS_RANK_SET, isOpponentRankInRange(rankRange2), isOpponentRankInRange(rankRange1));
-		addItemProbabilities(prediction, VS_HAND_SET, isOpponentHand(playerData2.getHand()), isOpponentHand(playerData1.getHand()));
-		addItemProbabilities(prediction, VS_BACKHAND_SET, isOpponentBackhand(playerData2.getBackhand()), isOpponentBackhand(playerData1.getBackhand()));
+		int[] items = enabledItems();
+		if (items.length > 0) {
+			Period matchRecentPeriod = getMatchRecentPeriod();
+			Period setRecentPeriod = getSetRecentPeriod();
+			MatchCriteria criteria1 = new MatchCriteria(matchData1.getHistory(), surface, level, tournamentId, round, date1.minus(matchRecentPeriod), date1.minus(setRecentPeriod), rankRange2, playerData2);
+			MatchCriteria criteria2 = new MatchCriteria(matchData2.getHistory(), surface, level, tournamentId, round, date2.minus(matchRecentPeriod), date2.minus(setRecentPeriod), rankRange1, playerData1);
+			int[] wonLost1 = wonLost(matchData1, criteria1, items);
+			int[] wonLost2 = wonLost(matchData2, criteria2, items);
+			for (int item : items)
+				addItemProbabilities(prediction, ITEMS[item], wonLost1[2 * item], wonLost1[2 * item + 1], wonLost2[2 * item], wonLost2[2 * item + 1]);
+		}
 		return prediction;
 	}
 
+	private int[] enabledItems() {
+		return Stream.of(ITEMS).filter(item -> config.getItemWeight(item) > 0.0).mapToInt(Enum::ordinal).toArray();
+	}
+
 	private Period getMatchRecentPeriod() {
 		return Period.ofYears(config.getMatchRecentPeriod(getArea(), MATCH_RECENT_PERIOD_YEARS));
 	}
@@ -93,55 +82,74 @@ public class WinningPctMatchPredictor implements MatchPredictor {
 		return Period.ofYears(config.getSetRecentPeriod(getArea(), SET_RECENT_PERIOD_YEARS));
 	}
 
-	private void addItemProbabilities(MatchPrediction prediction, WinningPctPredictionItem item, Predicate<MatchData> filter) {
-		addItemProbabilities(prediction, item, filter, filter);
-	}
-
-	private void addItemProbabilities(MatchPrediction prediction, WinningPctPredictionItem item, Predicate<MatchData> filter1, Predicate<MatchData> filter2) {
-		double itemWeight = config.getItemWeight(item);
-		if (itemWeight > 0.0) {
-			ToIntFunction<MatchData> wonDimension = item.isForSet() ? MatchData::getPSets : MatchData::getPMatches;
-			ToIntFunction<MatchData> lostDimension = item.isForSet() ? MatchData::getOSets : MatchData::getOMatches;
-			WL wonLost1 = matchData1.stream().filter(filter1).map(m -> new WL(wonDimension.applyAsInt(m), lostDimension.applyAsInt(m))).reduce(new WL(), WL::add);
-			WL wonLost2 = matchData2.stream().filter(filter2).map(m -> new WL(wonDimension.applyAsInt(m), lostDimension.applyAsInt(m))).reduce(new WL(), WL::add);
-			int total1 = wonLost1.total();
-			int total2 = wonLost2.total();
-			if (total1 > 0 && total2 > 0) {
-				double weight = itemWeight * weight(total1, total2);
-				double p1 = 1.0 * wonLost1.won / total1;
-				double p2 = 1.0 * wonLost2.won / total2;
-				if (p1 + p2 > 0.0) {
-					p1 = pow(E, 4.0 * p1) - 1.0;
-					p2 = pow(E, 4.0 * p2) - 1.0;
-					double p12 = p1 + p2;
-					DoubleUnaryOperator probabilityTransformer = probabilityTransformer(item.isForSet(), item.isMixedBestOf(), bestOf);
-					prediction.addItemProbability1(item, weight, probabilityTransformer.applyAsDouble(p1 / p12));
-					prediction.addItemProbability2(item, weight, probabilityTransformer.applyAsDouble(p2 / p12));
-				}
+	private void addItemProbabilities(MatchPrediction prediction, WinningPctPredictionItem item, int won1, int lost1, int won2, int lost2) {
+		int total1 = won1 + lost1;
+		int total2 = won2 + lost2;
+		if (total1 > 0 && total2 > 0) {
+			double weight = config.getItemWeight(item) * weight(total1, total2);
+			double p1 = 1.0 * won1 / total1;
+			double p2 = 1.0 * won2 / total2;
+			if (p1 + p2 > 0.0) {
+				p1 = pow(E, 4.0 * p1) - 1.0;
+				p2 = pow(E, 4.0 * p2) - 1.0;
+				double p12 = p1 + p2;
+				DoubleUnaryOperator probabilityTransformer = probabilityTransformer(item.isForSet(), item.isMixedBestOf(), bestOf);
+				prediction.addItemProbability1(item, weight, probabilityTransformer.applyAsDouble(p1 / p12));
+				prediction.addItemProbability2(item, weight, probabilityTransformer.applyAsDouble(p2 / p12));
 			}
 		}
 	}
 
-	private static final class WL {
-		
-		public int won;
-		public int lost;
-
-		public WL() {}
-
-		public WL(int won, int lost) {
-			this.won = won;
-			this.lost = lost;
+	// Accumulates won and lost matches and sets by criteria combination in a single pass over the match history, then sums the combinations matching each item
+	private static int[] wonLost(MatchHistoryView matchData, MatchCriteria criteria, int[] items) {
+		MatchHistory history = matchData.getHistory();
+		BitSet matches = matchData.select(ALWAYS_TRUE);
+		int[] combinationWonLost = new int[4 * MatchCriteria.COMBINATIONS];
+		BitSet combinations = new BitSet(MatchCriteria.COMBINATIONS);
+		for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+			int combination = criteria.of(i);
+			combinations.set(combination);
+			int offset = 4 * combination;
+			combinationWonLost[offset] += history.getPMatches(i);
+			combinationWonLost[offset + 1] += history.getOMatches(i);
+			combinationWonLost[offset + 2] += history.getPSets(i);
+			combinationWonLost[offset + 3] += history.getOSets(i);
 		}
-
-		public WL add(WL wl) {
-			won += wl.won;
-			lost += wl.lost;
-			return this;
+		int[] wonLost = new int[2 * ITEMS.length];
+		for (int combination = combinations.nextSetBit(0); combination >= 0; combination = combinations.nextSetBit(combination + 1)) {
+			for (int item : items) {
+				if (MatchCriteria.matches(combination, ITEM_CRITERIA[item])) {
+					int offset = 4 * combination + (ITEMS[item].isForSet() ? 2 : 0);
+					wonLost[2 * item] += combinationWonLost[offset];
+					wonLost[2 * item + 1] += combinationWonLost[offset + 1];
+				}
+			}
 		}
+		return wonLost;
+	}
 
-		public int total() {
-			return won + lost;
+	private static final WinningPctPredictionItem[] ITEMS = WinningPctPredictionItem.values();
+	private static final int[] ITEM_CRITERIA = Stream.of(ITEMS).mapToInt(WinningPctMatchPredictor::itemCriteria).toArray();
+
+	private static int itemCriteria(WinningPctPredictionItem item) {
+		switch (item) {
+			case OVERALL: case OVERALL_SET: return MatchCriteria.NONE;
+			case SURFACE: case SURFACE_SET: return MatchCriteria.SURFACE;
+			case LEVEL: case LEVEL_SET: return MatchCriteria.LEVEL;
+			case TOURNAMENT: case TOURNAMENT_SET: return MatchCriteria.TOURNAMENT;
+			case ROUND: case ROUND_SET: return MatchCriteria.ROUND;
+			case RECENT: return MatchCriteria.MATCH_RECENT;
+			case SURFACE_RECENT: return MatchCriteria.SURFACE | MatchCriteria.MATCH_RECENT;
+			case LEVEL_RECENT: return MatchCriteria.LEVEL | MatchCriteria.MATCH_RECENT;
+			case ROUND_RECENT: return MatchCriteria.ROUND | MatchCriteria.MATCH_RECENT;
+			case RECENT_SET: return MatchCriteria.SET_RECENT;
+			case SURFACE_RECENT_SET: return MatchCriteria.SURFACE | MatchCriteria.SET_RECENT;
+			case LEVEL_RECENT_SET: return MatchCriteria.LEVEL | MatchCriteria.SET_RECENT;
+			case ROUND_RECENT_SET: return MatchCriteria.ROUND | MatchCriteria.SET_RECENT;
+			case VS_RANK: case VS_RANK_SET: return MatchCriteria.VS_RANK;
+			case VS_HAND: case VS_HAND_SET: return MatchCriteria.VS_HAND;
+			case VS_BACKHAND: case VS_BACKHAND_SET: return MatchCriteria.VS_BACKHAND;
+			default: throw new IllegalArgumentException("Unknown item: " + item);
 		}
 	}
 }
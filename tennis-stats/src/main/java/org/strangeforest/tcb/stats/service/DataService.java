@@ -26,6 +26,7 @@ public class DataService {
 	@Autowired private CacheManager cacheManager;
 	@Autowired private CacheMetricsRegistrar cacheMetricsRegistrar;
 	@Autowired private MatchPredictionService matchPredictionService;
+	@Autowired private InProgressMatchForecastService inProgressMatchForecastService;
 
 	private static final String DB_SERVER_VERSION_QUERY = "SELECT version()";
 
@@ -46,6 +47,8 @@ public class DataService {
 		cacheMetricsRegistrar.bindCacheToRegistry(new CaffeineCache("Prediction.Players", matchPredictionService.getPlayersCache()));
 		cacheMetricsRegistrar.bindCacheToRegistry(new CaffeineCache("Prediction.PlayersRankings", matchPredictionService.getPlayersRankingsCache()));
 		cacheMetricsRegistrar.bindCacheToRegistry(new CaffeineCache("Prediction.PlayersMatches", matchPredictionService.getPlayersMatchesCache()));
+		cacheMetricsRegistrar.bindCacheToRegistry(new CaffeineCache("Prediction.Predictions", matchPredictionService.getPredictionsCache()));
+		cacheMetricsRegistrar.bindCacheToRegistry(new CaffeineCache("InProgressMatch.PointProbabilities", inProgressMatchForecastService.getSolverCache()));
 	}
 
 	private String dbServerVersionString() {
@@ -98,6 +101,20 @@ public class DataService {
 	}
 
 	public int clearCaches(String nameRegEx) {
+		int cacheCount = clearNamedCaches(nameRegEx);
+		matchPredictionService.clearCaches();
+		inProgressMatchForecastService.clearCache();
+		return cacheCount;
+	}
+
+	public int clearCaches(String nameRegEx, Collection<Integer> playerIds) {
+		int cacheCount = clearNamedCaches(nameRegEx);
+		matchPredictionService.invalidatePlayers(playerIds);
+		inProgressMatchForecastService.invalidatePlayers(playerIds);
+		return cacheCount;
+	}
+
+	private int clearNamedCaches(String nameRegEx) {
 		Pattern pattern = Pattern.compile(nameRegEx);
 		int cacheCount = 0;
 		for (String cacheName : cacheManager.getCacheNames()) {
@@ -106,7 +123,6 @@ public class DataService {
 				cacheCount++;
 			}
 		}
-		matchPredictionService.clearCaches();
 		return cacheCount;
 	}
 
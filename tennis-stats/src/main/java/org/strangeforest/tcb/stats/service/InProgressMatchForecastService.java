@@ -0,0 +1,167 @@
+package org.strangeforest.tcb.stats.service;
+
+import java.sql.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.springframework.beans.factory.annotation.*;
+import org.springframework.jdbc.core.namedparam.*;
+import org.springframework.stereotype.*;
+import org.strangeforest.tcb.model.*;
+import org.strangeforest.tcb.stats.model.core.*;
+import org.strangeforest.tcb.stats.model.forecast.*;
+import org.strangeforest.tcb.stats.util.*;
+
+import com.github.benmanes.caffeine.cache.*;
+
+import static org.strangeforest.tcb.stats.model.prediction.MatchDataUtil.*;
+import static org.strangeforest.tcb.stats.service.ParamsUtil.*;
+import static org.strangeforest.tcb.stats.service.ResultSetUtil.*;
+
+@Service
+public class InProgressMatchForecastService {
+
+	@Autowired private NamedParameterJdbcTemplate jdbcTemplate;
+	@Autowired private MatchPredictionService matchPredictionService;
+
+	private final MatchOutcomeSolver solver = new MatchOutcomeSolver();
+	private final Cache<Long, MatchModel> matchModels = Caffeine.newBuilder()
+		.maximumSize(1000)
+		.expireAfterAccess(1, TimeUnit.HOURS)
+		.build();
+
+	private static final String IN_PROGRESS_MATCH_QUERY =
+		"SELECT m.in_progress_event_id, e.tournament_id, coalesce(m.date, e.date) date, e.level, coalesce(m.surface, e.surface) surface, coalesce(m.indoor, e.indoor) indoor, m.round, m.best_of,\n" +
+		"  m.player1_id, m.player2_id, m.winner, m.player1_sets, m.player2_sets, m.player1_games, m.player2_games, m.player1_tb_pt, m.player2_tb_pt\n" +
+		"FROM in_progress_match m\n" +
+		"INNER JOIN in_progress_event e USING (in_progress_event_id)\n" +
+		"WHERE m.in_progress_match_id = :inProgressMatchId";
+
+
+	// The draws loader stores the score only of finished matches, so until partial scores are loaded an unfinished match is forecast at 0-0
+	public InProgressMatchForecast getInProgressMatchForecast(long inProgressMatchId) {
+		return jdbcTemplate.query(IN_PROGRESS_MATCH_QUERY, params("inProgressMatchId", inProgressMatchId), rs -> {
+			if (rs.next())
+				return mapInProgressMatchForecast(inProgressMatchId, rs);
+			else
+				throw new NotFoundException("In-progress match", inProgressMatchId);
+		});
+	}
+
+	private InProgressMatchForecast mapInProgressMatchForecast(long inProgressMatchId, ResultSet rs) throws SQLException {
+		int playerId1 = rs.getInt("player1_id");
+		int playerId2 = rs.getInt("player2_id");
+		if (playerId1 <= 0 || playerId2 <= 0)
+			throw new NotFoundException("In-progress match players", inProgressMatchId);
+		TournamentLevel level = TournamentLevel.safeDecode(getInternedString(rs, "level"));
+		Integer matchBestOf = getInteger(rs, "best_of");
+		short bestOf = defaultBestOf(level, matchBestOf != null ? matchBestOf.shortValue() : null);
+		MatchModel model = matchModels.getIfPresent(inProgressMatchId);
+		if (model == null || !model.isFor(playerId1, playerId2, bestOf)) {
+			model = createMatchModel(playerId1, playerId2, level, bestOf, rs);
+			matchModels.put(inProgressMatchId, model);
+		}
+		Integer winner = getInteger(rs, "winner");
+		int sets1 = nonNull(getInteger(rs, "player1_sets"));
+		int sets2 = nonNull(getInteger(rs, "player2_sets"));
+		List<Integer> setGames1 = getIntegers(rs, "player1_games");
+		List<Integer> setGames2 = getIntegers(rs, "player2_games");
+		int currentSet = sets1 + sets2;
+		int games1 = currentSetValue(setGames1, currentSet);
+		int games2 = currentSetValue(setGames2, currentSet);
+		double winProbability1;
+		if (winner != null)
+			winProbability1 = winner == 1 ? 1.0 : 0.0;
+		else if (games1 == 6 && games2 == 6 && model.isTieBreak(currentSet + 1)) {
+			int points1 = currentSetValue(getIntegers(rs, "player1_tb_pt"), currentSet);
+			int points2 = currentSetValue(getIntegers(rs, "player2_tb_pt"), currentSet);
+			winProbability1 = model.winProbability(sets1, sets2, games1, games2, points1, points2);
+		}
+		else
+			winProbability1 = model.winProbability(sets1, sets2, games1, games2);
+		return new InProgressMatchForecast(inProgressMatchId, playerId1, playerId2, bestOf, sets1, sets2, games1, games2,
+			model.preMatchProbability, model.pServe, model.pReturn, winProbability1
+		);
+	}
+
+	private MatchModel createMatchModel(int playerId1, int playerId2, TournamentLevel level, short bestOf, ResultSet rs) throws SQLException {
+		LocalDate date = getLocalDate(rs, "date");
+		Surface surface = Surface.safeDecode(getInternedString(rs, "surface"));
+		Boolean indoor = getBoolean(rs, "indoor");
+		Round round = Round.safeDecode(getInternedString(rs, "round"));
+		double preMatchProbability = matchPredictionService.predictMatch(
+			playerId1, playerId2, date, rs.getInt("tournament_id"), rs.getInt("in_progress_event_id"), true, surface, indoor, level, bestOf, round
+		).getWinProbability1();
+		boolean finalSetTieBreaker = finalSetTieBreaker(level, bestOf);
+		PointProbabilities points = solver.solve(preMatchProbability, bestOf, MatchOutcomeSolver.DEFAULT_SERVE_PRIOR, finalSetTieBreaker);
+		return new MatchModel(playerId1, playerId2, bestOf, finalSetTieBreaker, preMatchProbability, points.getPServe(), points.getPReturn());
+	}
+
+	Cache getSolverCache() {
+		return solver.getCache();
+	}
+
+	void clearCache() {
+		matchModels.invalidateAll();
+	}
+
+	void invalidatePlayers(Collection<Integer> playerIds) {
+		matchModels.asMap().values().removeIf(model -> playerIds.contains(model.playerId1) || playerIds.contains(model.playerId2));
+	}
+
+	// Events do not store their final-set rule, so it is derived from the level and best-of: Olympics play advantage final sets,
+	// other best-of-5 events advantage final sets and best-of-3 events final-set tie-breaks (US Open best-of-5 is the known exception)
+	static boolean finalSetTieBreaker(TournamentLevel level, short bestOf) {
+		return level != TournamentLevel.OLYMPICS && MatchUtilKt.finalSetTieBreaker(bestOf);
+	}
+
+	private static int currentSetValue(List<Integer> setValues, int currentSet) {
+		return currentSet < setValues.size() ? nonNull(setValues.get(currentSet)) : 0;
+	}
+
+	private static int nonNull(Integer i) {
+		return i != null ? i : 0;
+	}
+
+	private static final class MatchModel {
+
+		private final int playerId1;
+		private final int playerId2;
+		private final short bestOf;
+		private final boolean finalSetTieBreaker;
+		private final double preMatchProbability;
+		private final double pServe;
+		private final double pReturn;
+		private final MatchOutcomeTable table;
+
+		private MatchModel(int playerId1, int playerId2, short bestOf, boolean finalSetTieBreaker, double preMatchProbability, double pServe, double pReturn) {
+			this.playerId1 = playerId1;
+			this.playerId2 = playerId2;
+			this.bestOf = bestOf;
+			this.finalSetTieBreaker = finalSetTieBreaker;
+			this.preMatchProbability = preMatchProbability;
+			this.pServe = pServe;
+			this.pReturn = pReturn;
+			table = new MatchOutcomeTable(pServe, pReturn, bestOf, finalSetTieBreaker);
+		}
+
+		private boolean isFor(int playerId1, int playerId2, short bestOf) {
+			return this.playerId1 == playerId1 && this.playerId2 == playerId2 && this.bestOf == bestOf;
+		}
+
+		private boolean isTieBreak(int setNo) {
+			return MatchUtilKt.tieBreak(setNo, bestOf, finalSetTieBreaker);
+		}
+
+		// Server of the next game is not known from the set scores, so both serve states are averaged
+		private double winProbability(int sets1, int sets2, int games1, int games2) {
+			return (table.pWin(sets1, sets2, games1, games2, true) + table.pWin(sets1, sets2, games1, games2, false)) / 2.0;
+		}
+
+		// Tie-break points at 6-6, server of the next point is not known either
+		private double winProbability(int sets1, int sets2, int games1, int games2, int points1, int points2) {
+			return (table.pWin(sets1, sets2, games1, games2, points1, points2, true) + table.pWin(sets1, sets2, games1, games2, points1, points2, false)) / 2.0;
+		}
+	}
+}
@@ -4,7 +4,13 @@ import java.sql.*;
 import java.time.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+import java.util.stream.*;
 
+import javax.annotation.*;
+
+import org.slf4j.*;
 import org.springframework.beans.factory.annotation.*;
 import org.springframework.jdbc.core.namedparam.*;
 import org.springframework.stereotype.*;
@@ -13,9 +19,11 @@ import org.strangeforest.tcb.stats.model.prediction.*;
 import org.strangeforest.tcb.stats.util.*;
 
 import com.github.benmanes.caffeine.cache.*;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.Timer;
 
 import static java.lang.String.*;
-import static java.util.Arrays.*;
 import static java.util.stream.Collectors.*;
 import static org.strangeforest.tcb.stats.model.prediction.MatchDataUtil.*;
 import static org.strangeforest.tcb.stats.service.ParamsUtil.*;
@@ -26,11 +34,37 @@ public class MatchPredictionService {
 
 	@Autowired private NamedParameterJdbcTemplate jdbcTemplate;
 	@Value("${tennis-stats.prediction.tuning-set-level:SURFACE}") TuningSetLevel tuningSetLevel;
+	@Value("${tennis-stats.prediction.ranking-index:false}") private boolean useRankingIndex;
+	// Index takes ~3 MB of heap per year of rankings, older dates are queried from DB
+	@Value("${tennis-stats.prediction.ranking-index-years:3}") private int rankingIndexYears;
+	@Autowired(required = false) private MeterRegistry meterRegistry = Metrics.globalRegistry;
 
 	private final boolean includeInProgressEventData;
-	private final LoadingCache<Integer, PlayerData> players;
-	private final LoadingCache<RankingKey, RankingData> playersRankings;
-	private final LoadingCache<Integer, List<MatchData>> playersMatches;
+	private final AsyncLoadingCache<Integer, PlayerData> players;
+	private final AsyncLoadingCache<RankingKey, RankingData> playersRankings;
+	private final AsyncLoadingCache<Integer, MatchHistory> playersMatches;
+	private final Cache<PredictionKey, MatchPrediction> predictions;
+	private final ThreadPoolExecutor loaderExecutor;
+	private final ForkJoinPool predictionPool;
+	private volatile RankingIndex rankingIndex;
+	private final AtomicBoolean rankingIndexReloadPending = new AtomicBoolean();
+	private volatile QualifierRankings qualifierRankings;
+	private volatile RankingData qualifierRankingData;
+	private volatile Map<Integer, InProgressEloRatings> inProgressEloRatings = Collections.emptyMap();
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MatchPredictionService.class);
+
+	private static final int PREDICTIONS_CACHE_SIZE = 20000;
+	private static final int PREDICTION_PARALLELISM = Math.max(2, Runtime.getRuntime().availableProcessors());
+	// Kept below DB connection pool size, loads beyond queue capacity are run by the caller
+	private static final int LOADER_THREADS = 4;
+	private static final int LOADER_QUEUE_SIZE = 1000;
+
+	private static final String PREDICTOR_TIMER = "prediction.predictor";
+	private static final String LOADER_TIMER = "prediction.loader";
+	private static final String HISTORY_SIZE_SUMMARY = "prediction.history.size";
+	private static final String PREDICTOR = "predictor";
+	private static final String LOADER = "loader";
 
 	private static final String PLAYER_QUERY =
 		"SELECT hand, backhand FROM player\n" +
@@ -57,16 +91,38 @@ public class MatchPredictionService {
 		"  ORDER BY date DESC, round DESC, match_num LIMIT 1\n" +
 		") AS elo_ranking_data\n";
 
-	private static final String QUALIFIER_RANKING_DATA_QUERY = //language=SQL
-		"WITH qualifier_match AS (\n" +
-		"  SELECT winner_rank rank, adjust_atp_rank_points(winner_rank_points, date) rank_points, winner_elo_rating elo_rating FROM match\n" +
-		"  WHERE winner_entry = 'Q'\n" +
+	private static final String RANKING_INDEX_FIRST_DATE_QUERY = //language=SQL
+		"SELECT least((SELECT min(rank_date) FROM player_ranking), (SELECT min(rank_date) FROM player_elo_ranking))";
+
+	private static final String RANKING_INDEX_RANKINGS_QUERY = //language=SQL
+		"SELECT player_id, rank_date, rank, adjust_atp_rank_points(rank_points, rank_date) rank_points FROM player_ranking\n" +
+		"WHERE rank_date >= :fromDate AND rank_date < :toDate\n" +
+		"ORDER BY rank_date, player_id";
+
+	private static final String RANKING_INDEX_ELO_RATINGS_QUERY = //language=SQL
+		"SELECT player_id, rank_date, elo_rating, recent_elo_rating, hard_elo_rating, clay_elo_rating, grass_elo_rating, carpet_elo_rating,\n" +
+		"  outdoor_elo_rating, indoor_elo_rating, set_elo_rating FROM player_elo_ranking\n" +
+		"WHERE rank_date >= :fromDate AND rank_date < :toDate\n" +
+		"ORDER BY rank_date, player_id";
+
+	private static final String IN_PROGRESS_ELO_RATINGS_QUERY = //language=SQL
+		"SELECT DISTINCT ON (player_id) player_id, date, elo_rating, recent_elo_rating, surface_elo_rating, in_out_elo_rating, set_elo_rating FROM (\n" +
+		"  SELECT player1_id player_id, date, round, match_num, player1_next_elo_rating elo_rating, player1_next_recent_elo_rating recent_elo_rating, player1_next_surface_elo_rating surface_elo_rating, player1_next_in_out_elo_rating in_out_elo_rating, player1_next_set_elo_rating set_elo_rating FROM in_progress_match\n" +
+		"  WHERE winner IS NOT NULL AND date IS NOT NULL AND player1_id > 0 AND player2_id > 0\n" +
 		"  UNION ALL\n" +
-		"  SELECT loser_rank, adjust_atp_rank_points(loser_rank_points, date), loser_elo_rating FROM match\n" +
-		"  WHERE loser_entry = 'Q'\n" +
-		")\n" +
-		"SELECT avg(rank) rank, avg(rank_points) rank_points, avg(elo_rating) elo_rating\n" +
-		"FROM qualifier_match";
+		"  SELECT player2_id, date, round, match_num, player2_next_elo_rating, player2_next_recent_elo_rating, player2_next_surface_elo_rating, player2_next_in_out_elo_rating, player2_next_set_elo_rating FROM in_progress_match\n" +
+		"  WHERE winner IS NOT NULL AND date IS NOT NULL AND player1_id > 0 AND player2_id > 0\n" +
+		") AS elo_ranking_data\n" +
+		"ORDER BY player_id, date DESC, round DESC, match_num";
+
+	private static final String QUALIFIER_RANKINGS_QUERY = //language=SQL
+		"SELECT rank_sum, rank_count, rank_points_sum, rank_points_count, elo_rating_sum, elo_rating_count\n" +
+		"FROM qualifier_ranking";
+
+	private static final String IN_PROGRESS_PLAYERS_QUERY =
+		"SELECT player1_id player_id FROM in_progress_match WHERE player1_id > 0\n" +
+		"UNION\n" +
+		"SELECT player2_id FROM in_progress_match WHERE player2_id > 0";
 
 	private static final String PLAYER_MATCHES_QUERY = //language=SQL
 		"SELECT m.match_num, m.date, m.tournament_id, m.tournament_event_id, FALSE in_progress, m.level, m.surface, m.round,\n" +
@@ -99,33 +155,60 @@ public class MatchPredictionService {
 	
 	public MatchPredictionService(boolean includeInProgressEventData) {
 		this.includeInProgressEventData = includeInProgressEventData;
+		loaderExecutor = new ThreadPoolExecutor(
+			LOADER_THREADS, LOADER_THREADS, 1L, TimeUnit.MINUTES, new ArrayBlockingQueue<>(LOADER_QUEUE_SIZE),
+			new ThreadFactoryBuilder().setNameFormat("prediction-loader-%d").setDaemon(true).build(),
+			new ThreadPoolExecutor.CallerRunsPolicy()
+		);
+		loaderExecutor.allowCoreThreadTimeOut(true);
 		Caffeine<Object, Object> builder = Caffeine.newBuilder()
 			.expireAfterWrite(1, TimeUnit.HOURS)
-			.expireAfterAccess(1, TimeUnit.HOURS);
-		players = builder.build(this::fetchPlayerData);
-		playersRankings = builder.build(this::fetchRankingData);
-		playersMatches = builder.build(this::fetchMatchData);
+			.expireAfterAccess(1, TimeUnit.HOURS)
+			.executor(loaderExecutor)
+			.recordStats();
+		players = builder.buildAsync(playerId -> timeLoad("player", () -> fetchPlayerData(playerId)));
+		playersRankings = builder.buildAsync(key -> timeLoad("ranking", () -> fetchRankingData(key)));
+		playersMatches = builder.buildAsync(playerId -> timeLoad("matches", () -> fetchMatchData(playerId)));
+		predictions = Caffeine.newBuilder()
+			.maximumSize(PREDICTIONS_CACHE_SIZE)
+			.expireAfterWrite(1, TimeUnit.HOURS)
+			.recordStats()
+			.build();
+		predictionPool = new ForkJoinPool(PREDICTION_PARALLELISM);
 	}
 
 	public MatchPredictionService(NamedParameterJdbcTemplate jdbcTemplate) {
-		this();
+		this(jdbcTemplate, true);
+	}
+
+	public MatchPredictionService(NamedParameterJdbcTemplate jdbcTemplate, boolean includeInProgressEventData) {
+		this(includeInProgressEventData);
 		this.jdbcTemplate = jdbcTemplate;
 		tuningSetLevel = TuningSetLevel.SURFACE;
 	}
 
+	@PostConstruct
+	public void init() {
+		if (useRankingIndex)
+			reloadRankingIndex();
+	}
+
+	@PreDestroy
+	public void destroy() {
+		predictionPool.shutdown();
+		loaderExecutor.shutdown();
+	}
+
 	public MatchPrediction predictMatch(int playerId1, int playerId2, LocalDate date, Surface surface, Boolean indoor, TournamentLevel level, Round round) {
-		PredictionConfig config = PredictionConfig.defaultConfig(tuningSetLevel.select(surface, indoor, level, null));
-		return predictMatch(playerId1, playerId2, date, date, null, null, true, surface, indoor, level, null, round, config);
+		return predictMatchCached(new PredictionKey(playerId1, playerId2, date, date, null, null, true, surface, indoor, level, null, round, tuningSetLevel.select(surface, indoor, level, null)));
 	}
 
 	public MatchPrediction predictMatch(int playerId1, int playerId2, LocalDate date1, LocalDate date2, Surface surface, Boolean indoor, TournamentLevel level, Round round) {
-		PredictionConfig config = PredictionConfig.defaultConfig(tuningSetLevel.select(surface, indoor, level, null));
-		return predictMatch(playerId1, playerId2, date1, date2, null, null, true, surface, indoor, level, null, round, config);
+		return predictMatchCached(new PredictionKey(playerId1, playerId2, date1, date2, null, null, true, surface, indoor, level, null, round, tuningSetLevel.select(surface, indoor, level, null)));
 	}
 
 	public MatchPrediction predictMatch(int playerId1, int playerId2, LocalDate date, Integer tournamentId, Integer tournamentEventId, boolean inProgress, Surface surface, Boolean indoor, TournamentLevel level, Short bestOf, Round round) {
-		PredictionConfig config = PredictionConfig.defaultConfig(tuningSetLevel.select(surface, indoor, level, bestOf));
-		return predictMatch(playerId1, playerId2, date, date, tournamentId, tournamentEventId, inProgress, surface, indoor, level, bestOf, round, config);
+		return predictMatchCached(new PredictionKey(playerId1, playerId2, date, date, tournamentId, tournamentEventId, inProgress, surface, indoor, level, bestOf, round, tuningSetLevel.select(surface, indoor, level, bestOf)));
 	}
 
 	public MatchPrediction predictMatch(int playerId1, int playerId2, LocalDate date, Integer tournamentId, Integer tournamentEventId, boolean inProgress, Surface surface, Boolean indoor, TournamentLevel level, Short bestOf, Round round, PredictionConfig config) {
@@ -147,53 +230,180 @@ public class MatchPredictionService {
 		}
 	}
 
+	private MatchPrediction predictMatchCached(PredictionKey key) {
+		return predictions.get(key, k -> predictMatch(
+			k.playerId1, k.playerId2, k.date1, k.date2, k.tournamentId, k.tournamentEventId, k.inProgress,
+			k.surface, k.indoor, k.level, k.bestOf, k.round, PredictionConfig.defaultConfig(k.tuningSet)
+		));
+	}
+
 	private MatchPrediction predictMatchBetweenEntries(int playerId1, int playerId2, LocalDate date1, LocalDate date2, Integer tournamentId, Integer tournamentEventId, boolean inProgress, Surface surface, Boolean indoor, TournamentLevel level, Short bestOf, Round round, PredictionConfig config) {
-		PlayerData playerData1 = getPlayerData(playerId1);
-		PlayerData playerData2 = getPlayerData(playerId2);
-		RankingData rankingData1 = getRankingData(playerId1, date1, surface, indoor);
-		RankingData rankingData2 = getRankingData(playerId2, date2, surface, indoor);
-		List<MatchData> matchData1 = getMatchData(playerId1, date1, tournamentEventId, inProgress, round);
-		List<MatchData> matchData2 = getMatchData(playerId2, date2, tournamentEventId, inProgress, round);
-		short bstOf = defaultBestOf(level, bestOf);
-		MatchPrediction prediction = predictMatch(asList(
-			new RankingMatchPredictor(rankingData1, rankingData2, bstOf, config),
-			new RecentFormMatchPredictor(matchData1, matchData2, rankingData1, rankingData2, playerData1, playerData2, date1, date2, surface, level, round, config),
-			new H2HMatchPredictor(matchData1, matchData2, playerId1, playerId2, date1, date2, surface, level, tournamentId, round, bstOf, config),
-			new WinningPctMatchPredictor(matchData1, matchData2, rankingData1, rankingData2, playerData1, playerData2, date1, date2, surface, level, round, tournamentId, bstOf, config)
-		), config);
-		prediction.setRankingData1(rankingData1);
-		prediction.setRankingData2(rankingData2);
-		return prediction;
+		CompletableFuture<PlayerMatchupData> matchupData1 = loadPlayerMatchupData(playerId1, date1, tournamentEventId, inProgress, surface, indoor, round);
+		CompletableFuture<PlayerMatchupData> matchupData2 = loadPlayerMatchupData(playerId2, date2, tournamentEventId, inProgress, surface, indoor, round);
+		return predictMatchBetweenEntries(join(matchupData1), join(matchupData2), date1, date2, tournamentId, surface, level, bestOf, round, config);
+	}
+
+	private MatchPrediction predictMatchBetweenEntries(PlayerMatchupData matchupData1, PlayerMatchupData matchupData2, LocalDate date1, LocalDate date2, Integer tournamentId, Surface surface, TournamentLevel level, Short bestOf, Round round, PredictionConfig config) {
+		return MatchPredictionUtil.predictMatchBetweenEntries(
+			matchupData1.playerId, matchupData2.playerId, matchupData1.playerData, matchupData2.playerData, matchupData1.rankingData, matchupData2.rankingData, matchupData1.matchData, matchupData2.matchData,
+			date1, date2, tournamentId, surface, level, defaultBestOf(level, bestOf), round, config, this::timed
+		);
 	}
 
 	private MatchPrediction predictMatchVsQualifier(int playerId, LocalDate date, Integer tournamentId, Integer tournamentEventId, boolean inProgress, Surface surface, Boolean indoor, TournamentLevel level, Short bestOf, Round round, PredictionConfig config) {
-		RankingData rankingData = getRankingData(playerId, date, surface, indoor);
-		List<MatchData> matchData = getMatchData(playerId, date, tournamentEventId, inProgress, round);
-		short bstOf = defaultBestOf(level, bestOf);
-		return predictMatch(asList(
-			new RankingMatchPredictor(rankingData, getQualifierRankingData(), bstOf, config),
-			new VsQualifierMatchPredictor(matchData, date, surface, level, tournamentId, round, bstOf, config)
-		), config);
-	}
-
-	private MatchPrediction predictMatch(Iterable<MatchPredictor> predictors, PredictionConfig config) {
-		MatchPrediction prediction = new MatchPrediction(config.getTotalAreasWeight());
-		for (MatchPredictor predictor : predictors) {
-			PredictionArea area = predictor.getArea();
-			if (config.isAreaEnabled(area)) {
-				MatchPrediction areaPrediction = predictor.predictMatch();
-				if (!areaPrediction.isEmpty())
-					prediction.addAreaProbabilities(areaPrediction, config.getAreaAdjustedWeight(area));
-			}
+		CompletableFuture<RankingData> rankingData = playersRankings.get(new RankingKey(playerId, date, surface, indoor));
+		CompletableFuture<MatchHistory> matchHistory = playersMatches.get(playerId);
+		MatchHistoryView matchData = join(matchHistory).before(date, tournamentEventId, inProgress, round);
+		recordHistorySize(matchData);
+		return MatchPredictionUtil.predictMatchVsQualifier(join(rankingData), qualifierRankingData(), matchData, date, tournamentId, surface, level, defaultBestOf(level, bestOf), round, config, this::timed);
+	}
+
+	private MatchPrediction predictMatchVsQualifier(RankingData rankingData, MatchHistoryView matchData, LocalDate date, Integer tournamentId, Surface surface, TournamentLevel level, Short bestOf, Round round, PredictionConfig config) {
+		return MatchPredictionUtil.predictMatchVsQualifier(rankingData, qualifierRankingData(), matchData, date, tournamentId, surface, level, defaultBestOf(level, bestOf), round, config, this::timed);
+	}
+
+
+	// Bulk Prediction
+
+	public MatchupPredictions predictMatches(List<Matchup> matchups, MatchupContext context) {
+		TuningSet tuningSet = tuningSetLevel.select(context.getSurface(), context.getIndoor(), context.getLevel(), context.getBestOf());
+		return predictMatches(matchups, context, PredictionConfig.defaultConfig(tuningSet), tuningSet);
+	}
+
+	public MatchupPredictions predictMatches(List<Matchup> matchups, MatchupContext context, PredictionConfig config) {
+		return predictMatches(matchups, context, config, null);
+	}
+
+	// With default config, matchups already in prediction cache are not predicted again and player data is loaded only for the remaining ones
+	private MatchupPredictions predictMatches(List<Matchup> matchups, MatchupContext context, PredictionConfig config, TuningSet cacheTuningSet) {
+		int[] playerIds = matchups.stream().flatMapToInt(matchup -> IntStream.of(matchup.getPlayerId1(), matchup.getPlayerId2())).distinct().toArray();
+		MatchupPredictions matchupPredictions = new MatchupPredictions(playerIds);
+		// Reversed matchups would write the same matrix cells concurrently, so each pair is predicted once in ascending player id order
+		Set<Matchup> uniqueMatchups = new LinkedHashSet<>();
+		for (Matchup matchup : matchups) {
+			int playerId1 = matchup.getPlayerId1();
+			int playerId2 = matchup.getPlayerId2();
+			if (playerId1 != playerId2)
+				uniqueMatchups.add(playerId1 < playerId2 ? matchup : new Matchup(playerId2, playerId1));
+		}
+		List<Matchup> uncachedMatchups = new ArrayList<>();
+		for (Matchup matchup : uniqueMatchups) {
+			MatchPrediction prediction = cacheTuningSet != null ? predictions.getIfPresent(predictionKey(matchup, context, cacheTuningSet)) : null;
+			if (prediction != null)
+				matchupPredictions.setWinProbability(matchupPredictions.getPlayerIndex(matchup.getPlayerId1()), matchupPredictions.getPlayerIndex(matchup.getPlayerId2()), prediction.getWinProbability1());
+			else
+				uncachedMatchups.add(matchup);
+		}
+		if (uncachedMatchups.isEmpty())
+			return matchupPredictions;
+		PlayerMatchupData[] matchupData = new PlayerMatchupData[playerIds.length];
+		invokeAll(uncachedMatchups.stream().flatMapToInt(matchup -> IntStream.of(matchup.getPlayerId1(), matchup.getPlayerId2())).distinct().filter(playerId -> playerId > 0).mapToObj(playerId -> (Runnable)() -> {
+			int index = matchupPredictions.getPlayerIndex(playerId);
+			matchupData[index] = join(loadPlayerMatchupData(playerId, context.getDate(), context.getTournamentEventId(), context.isInProgress(), context.getSurface(), context.getIndoor(), context.getRound()));
+		}));
+		invokeAll(uncachedMatchups.stream().map(matchup -> (Runnable)() -> {
+			int index1 = matchupPredictions.getPlayerIndex(matchup.getPlayerId1());
+			int index2 = matchupPredictions.getPlayerIndex(matchup.getPlayerId2());
+			MatchPrediction prediction = predictMatch(matchupData[index1], matchupData[index2], context, config);
+			if (cacheTuningSet != null)
+				predictions.put(predictionKey(matchup, context, cacheTuningSet), prediction);
+			matchupPredictions.setWinProbability(index1, index2, prediction.getWinProbability1());
+		}));
+		return matchupPredictions;
+	}
+
+	private static PredictionKey predictionKey(Matchup matchup, MatchupContext context, TuningSet tuningSet) {
+		return new PredictionKey(
+			matchup.getPlayerId1(), matchup.getPlayerId2(), context.getDate(), context.getDate(), context.getTournamentId(), context.getTournamentEventId(), context.isInProgress(),
+			context.getSurface(), context.getIndoor(), context.getLevel(), context.getBestOf(), context.getRound(), tuningSet
+		);
+	}
+
+	private MatchPrediction predictMatch(PlayerMatchupData matchupData1, PlayerMatchupData matchupData2, MatchupContext context, PredictionConfig config) {
+		LocalDate date = context.getDate();
+		Integer tournamentId = context.getTournamentId();
+		Surface surface = context.getSurface();
+		TournamentLevel level = context.getLevel();
+		Short bestOf = context.getBestOf();
+		Round round = context.getRound();
+		if (matchupData1 != null) {
+			if (matchupData2 != null)
+				return predictMatchBetweenEntries(matchupData1, matchupData2, date, date, tournamentId, surface, level, bestOf, round, config);
+			else
+				return predictMatchVsQualifier(matchupData1.rankingData, matchupData1.matchData, date, tournamentId, surface, level, bestOf, round, config);
+		}
+		else {
+			if (matchupData2 != null)
+				return predictMatchVsQualifier(matchupData2.rankingData, matchupData2.matchData, date, tournamentId, surface, level, bestOf, round, config).swap();
+			else
+				return MatchPrediction.TIE;
+		}
+	}
+
+	private void invokeAll(Stream<Runnable> tasks) {
+		List<ForkJoinTask<?>> submitted = tasks.map(predictionPool::submit).collect(toList());
+		try {
+			for (ForkJoinTask<?> task : submitted)
+				task.get();
+		}
+		catch (InterruptedException ex) {
+			submitted.forEach(task -> task.cancel(false));
+			Thread.currentThread().interrupt();
+			throw new CompletionException(ex);
+		}
+		catch (ExecutionException ex) {
+			submitted.forEach(task -> task.cancel(false));
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			throw new CompletionException(cause);
+		}
+	}
+
+	// Independent player, ranking and match data loads fan out to loader executor, while in-flight loads of the same key are shared
+	private CompletableFuture<PlayerMatchupData> loadPlayerMatchupData(int playerId, LocalDate date, Integer tournamentEventId, boolean inProgress, Surface surface, Boolean indoor, Round round) {
+		CompletableFuture<PlayerData> playerData = players.get(playerId);
+		CompletableFuture<RankingData> rankingData = playersRankings.get(new RankingKey(playerId, date, surface, indoor));
+		CompletableFuture<MatchHistory> matchHistory = playersMatches.get(playerId);
+		return CompletableFuture.allOf(playerData, rankingData, matchHistory).thenApply(ignored -> {
+			MatchHistoryView matchData = matchHistory.join().before(date, tournamentEventId, inProgress, round);
+			recordHistorySize(matchData);
+			return new PlayerMatchupData(playerId, playerData.join(), rankingData.join(), matchData);
+		});
+	}
+
+	private static <T> T join(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		}
+		catch (CompletionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			throw ex;
+		}
+	}
+
+	private static final class PlayerMatchupData {
+
+		public final int playerId;
+		public final PlayerData playerData;
+		public final RankingData rankingData;
+		public final MatchHistoryView matchData;
+
+		public PlayerMatchupData(int playerId, PlayerData playerData, RankingData rankingData, MatchHistoryView matchData) {
+			this.playerId = playerId;
+			this.playerData = playerData;
+			this.rankingData = rankingData;
+			this.matchData = matchData;
 		}
-		return prediction;
 	}
 
 
 	// Player Data
 
-	private PlayerData getPlayerData(int playerId) {
-		return players.get(playerId);
+	public PlayerData getPlayerData(int playerId) {
+		return join(players.get(playerId));
 	}
 
 	private PlayerData fetchPlayerData(int playerId) {
@@ -215,63 +425,167 @@ public class MatchPredictionService {
 
 	// Ranking Data
 
-	private RankingData getRankingData(int playerId, LocalDate date, Surface surface, Boolean indoor) {
-		return playersRankings.get(new RankingKey(playerId, date, surface, indoor));
+	private RankingData fetchRankingData(RankingKey key) {
+		RankingIndex index = rankingIndex;
+		if (index != null && index.covers(key.date))
+			return indexedRankingData(index, key);
+		RankingData rankingData = new RankingData();
+		MapSqlParameterSource params = params("playerId", key.playerId).addValue("date", key.date);
+		jdbcTemplate.query(PLAYER_RANKING_QUERY, params, rs -> {
+			rankingData.setRank(getInteger(rs, "rank"));
+			rankingData.setRankPoints(getInteger(rs, "rank_points"));
+		});
+		String surfacePrefix = key.surface != null ? key.surface.getLowerCaseText() + '_' : "";
+		String inOutPrefix = key.indoor != null ? (key.indoor ? "indoor_" : "outdoor_") : "";
+		jdbcTemplate.query(format(PLAYER_ELO_RATINGS_QUERY, surfacePrefix, inOutPrefix, includeInProgressEventData ? PLAYER_IN_PROGRESS_ELO_RATINGS_UNION : ""), params, rs -> {
+			rankingData.setEloRating(getInteger(rs, "elo_rating"));
+			rankingData.setRecentEloRating(getInteger(rs, "recent_elo_rating"));
+			if (!surfacePrefix.isEmpty())
+				rankingData.setSurfaceEloRating(getInteger(rs, surfacePrefix + "elo_rating"));
+			if (!inOutPrefix.isEmpty())
+				rankingData.setInOutEloRating(getInteger(rs, inOutPrefix + "elo_rating"));
+			rankingData.setSetEloRating(getInteger(rs, "set_elo_rating"));
+			rankingData.setEloDate(getLocalDate(rs, "rank_date"));
+		});
+		return rankingData;
 	}
 
-	private RankingData getQualifierRankingData() {
-		return playersRankings.get(QUALIFIER_RANKING_KEY);
+	private RankingData indexedRankingData(RankingIndex index, RankingKey key) {
+		RankingData rankingData = index.getRankingData(key.playerId, key.date, key.surface, key.indoor);
+		InProgressEloRatings eloRatings = inProgressEloRatings.get(key.playerId);
+		if (eloRatings != null && !eloRatings.date.isBefore(key.date.minusWeeks(1L))) {
+			LocalDate eloDate = eloRatings.date.plusDays(1L);
+			if (rankingData.getEloDate() == null || eloDate.isAfter(rankingData.getEloDate())) {
+				rankingData.setEloRating(eloRatings.eloRating);
+				rankingData.setRecentEloRating(eloRatings.recentEloRating);
+				if (key.surface != null)
+					rankingData.setSurfaceEloRating(eloRatings.surfaceEloRating);
+				if (key.indoor != null)
+					rankingData.setInOutEloRating(eloRatings.inOutEloRating);
+				rankingData.setSetEloRating(eloRatings.setEloRating);
+				rankingData.setEloDate(eloDate);
+			}
+		}
+		return rankingData;
 	}
 
-	private RankingData fetchRankingData(RankingKey key) {
-		RankingData rankingData = new RankingData();
-		if (!key.isQualifier()) {
-			MapSqlParameterSource params = params("playerId", key.playerId).addValue("date", key.date);
-			jdbcTemplate.query(PLAYER_RANKING_QUERY, params, rs -> {
-				rankingData.setRank(getInteger(rs, "rank"));
-				rankingData.setRankPoints(getInteger(rs, "rank_points"));
+	// Shared by all predictions vs qualifier, recreated only when Elo date changes
+	private RankingData qualifierRankingData() {
+		RankingData rankingData = qualifierRankingData;
+		LocalDate today = LocalDate.now();
+		if (rankingData == null || !today.equals(rankingData.getEloDate())) {
+			QualifierRankings rankings = qualifierRankings;
+			if (rankings == null)
+				qualifierRankings = rankings = timeLoad("qualifier", this::loadQualifierRankings);
+			rankingData = rankings.getRankingData();
+			rankingData.setEloDate(today);
+			qualifierRankingData = rankingData;
+		}
+		return rankingData;
+	}
+
+	private QualifierRankings loadQualifierRankings() {
+		QualifierRankings.Builder builder = QualifierRankings.builder();
+		jdbcTemplate.query(QUALIFIER_RANKINGS_QUERY, rs -> {
+			builder.addBaseline(
+				rs.getLong("rank_sum"), rs.getInt("rank_count"),
+				rs.getLong("rank_points_sum"), rs.getInt("rank_points_count"),
+				rs.getLong("elo_rating_sum"), rs.getInt("elo_rating_count")
+			);
+		});
+		return builder.build();
+	}
+
+	// Current index is released before loading the new one, rankings are queried from DB meanwhile
+	public void reloadRankingIndex() {
+		rankingIndex = null;
+		RankingIndex index = loadRankingIndex(LocalDate.now().minusYears(rankingIndexYears + 1L));
+		Map<Integer, InProgressEloRatings> ratings = loadInProgressEloRatings();
+		rankingIndex = index;
+		inProgressEloRatings = ratings;
+		playersRankings.synchronous().invalidateAll();
+	}
+
+	public RankingIndex loadRankingIndex() {
+		return loadRankingIndex(null);
+	}
+
+	private RankingIndex loadRankingIndex(LocalDate indexFromDate) {
+		RankingIndex.Builder builder = RankingIndex.builder().fromDate(indexFromDate);
+		LocalDate firstDate = jdbcTemplate.getJdbcOperations().queryForObject(RANKING_INDEX_FIRST_DATE_QUERY, LocalDate.class);
+		if (firstDate == null)
+			return builder.build();
+		if (indexFromDate != null && indexFromDate.isAfter(firstDate))
+			firstDate = indexFromDate;
+		Map<RankingIndex.EloType, Integer> eloRatings = new EnumMap<>(RankingIndex.EloType.class);
+		LocalDate toDate = LocalDate.now().plusYears(1L);
+		for (LocalDate fromDate = firstDate; fromDate.isBefore(toDate); fromDate = fromDate.plusYears(1L)) {
+			MapSqlParameterSource params = params("fromDate", fromDate).addValue("toDate", fromDate.plusYears(1L));
+			jdbcTemplate.query(RANKING_INDEX_RANKINGS_QUERY, params, rs -> {
+				builder.addRanking(rs.getInt("player_id"), getLocalDate(rs, "rank_date"), getInteger(rs, "rank"), getInteger(rs, "rank_points"));
 			});
-			String surfacePrefix = key.surface != null ? key.surface.getLowerCaseText() + '_' : "";
-			String inOutPrefix = key.indoor != null ? (key.indoor ? "indoor_" : "outdoor_") : "";
-			jdbcTemplate.query(format(PLAYER_ELO_RATINGS_QUERY, surfacePrefix, inOutPrefix, includeInProgressEventData ? PLAYER_IN_PROGRESS_ELO_RATINGS_UNION : ""), params, rs -> {
-				rankingData.setEloRating(getInteger(rs, "elo_rating"));
-				rankingData.setRecentEloRating(getInteger(rs, "recent_elo_rating"));
-				if (!surfacePrefix.isEmpty())
-					rankingData.setSurfaceEloRating(getInteger(rs, surfacePrefix + "elo_rating"));
-				if (!inOutPrefix.isEmpty())
-					rankingData.setInOutEloRating(getInteger(rs, inOutPrefix + "elo_rating"));
-				rankingData.setSetEloRating(getInteger(rs, "set_elo_rating"));
-				rankingData.setEloDate(getLocalDate(rs, "rank_date"));
+			jdbcTemplate.query(RANKING_INDEX_ELO_RATINGS_QUERY, params, rs -> {
+				eloRatings.put(RankingIndex.EloType.OVERALL, getInteger(rs, "elo_rating"));
+				eloRatings.put(RankingIndex.EloType.RECENT, getInteger(rs, "recent_elo_rating"));
+				eloRatings.put(RankingIndex.EloType.HARD, getInteger(rs, "hard_elo_rating"));
+				eloRatings.put(RankingIndex.EloType.CLAY, getInteger(rs, "clay_elo_rating"));
+				eloRatings.put(RankingIndex.EloType.GRASS, getInteger(rs, "grass_elo_rating"));
+				eloRatings.put(RankingIndex.EloType.CARPET, getInteger(rs, "carpet_elo_rating"));
+				eloRatings.put(RankingIndex.EloType.OUTDOOR, getInteger(rs, "outdoor_elo_rating"));
+				eloRatings.put(RankingIndex.EloType.INDOOR, getInteger(rs, "indoor_elo_rating"));
+				eloRatings.put(RankingIndex.EloType.SET, getInteger(rs, "set_elo_rating"));
+				builder.addEloRatings(rs.getInt("player_id"), getLocalDate(rs, "rank_date"), eloRatings);
 			});
 		}
-		else {
-			jdbcTemplate.query(QUALIFIER_RANKING_DATA_QUERY, rs -> {
-				rankingData.setRank(getInteger(rs, "rank"));
-				rankingData.setRankPoints(getInteger(rs, "rank_points"));
-				rankingData.setEloRating(getInteger(rs, "elo_rating"));
-				rankingData.setEloDate(LocalDate.now());
-			});
+		if (builder.getSkippedValues() > 0)
+			LOGGER.warn("{} ranking value(s) out of range skipped by ranking index.", builder.getSkippedValues());
+		return builder.build();
+	}
+
+	private Map<Integer, InProgressEloRatings> loadInProgressEloRatings() {
+		if (!includeInProgressEventData)
+			return Collections.emptyMap();
+		Map<Integer, InProgressEloRatings> ratings = new HashMap<>();
+		jdbcTemplate.query(IN_PROGRESS_ELO_RATINGS_QUERY, rs -> {
+			ratings.put(rs.getInt("player_id"), new InProgressEloRatings(
+				getLocalDate(rs, "date"),
+				getInteger(rs, "elo_rating"),
+				getInteger(rs, "recent_elo_rating"),
+				getInteger(rs, "surface_elo_rating"),
+				getInteger(rs, "in_out_elo_rating"),
+				getInteger(rs, "set_elo_rating")
+			));
+		});
+		return ratings;
+	}
+
+	private static final class InProgressEloRatings {
+
+		public final LocalDate date;
+		public final Integer eloRating;
+		public final Integer recentEloRating;
+		public final Integer surfaceEloRating;
+		public final Integer inOutEloRating;
+		public final Integer setEloRating;
+
+		public InProgressEloRatings(LocalDate date, Integer eloRating, Integer recentEloRating, Integer surfaceEloRating, Integer inOutEloRating, Integer setEloRating) {
+			this.date = date;
+			this.eloRating = eloRating;
+			this.recentEloRating = recentEloRating;
+			this.surfaceEloRating = surfaceEloRating;
+			this.inOutEloRating = inOutEloRating;
+			this.setEloRating = setEloRating;
 		}
-		return rankingData;
 	}
 
 
 	// Match Data
 
-	private List<MatchData> getMatchData(int playerId, LocalDate date, Integer tournamentEventId, boolean inProgress, Round round) {
-		List<MatchData> matchData = playersMatches.get(playerId);
-		return matchData.stream().filter(match -> {
-			LocalDate matchDate = match.getDate();
-			if (matchDate.isBefore(date))
-				return true;
-			else if (matchDate.equals(date) && Objects.equals(match.getTournamentEventId(), tournamentEventId) && match.isInProgress() == inProgress)
-				return round != null && match.getRound().compareTo(round) > 0;
-			else
-				return false;
-		}).collect(toList());
+	private MatchHistory fetchMatchData(int playerId) {
+		return new MatchHistory(fetchPlayerMatches(playerId));
 	}
 
-	private List<MatchData> fetchMatchData(int playerId) {
+	public List<MatchData> fetchPlayerMatches(int playerId) {
 		String sql = format(PLAYER_MATCHES_QUERY, includeInProgressEventData ? PLAYER_IN_PROGRESS_MATCHES_UNION : "");
 		return jdbcTemplate.query(sql, params("playerId", playerId), this::matchData);
 	}
@@ -299,29 +613,126 @@ public class MatchPredictionService {
 	}
 
 
+	// Metrics
+
+	private <T> T timeLoad(String loader, Supplier<T> load) {
+		return Timer.builder(LOADER_TIMER).tag(LOADER, loader).publishPercentileHistogram().register(meterRegistry).record(load);
+	}
+
+	private MatchPredictor timed(MatchPredictor predictor) {
+		Timer timer = Timer.builder(PREDICTOR_TIMER).tag(PREDICTOR, predictor.getClass().getSimpleName()).publishPercentileHistogram().register(meterRegistry);
+		return new MatchPredictor() {
+			@Override public PredictionArea getArea() {
+				return predictor.getArea();
+			}
+			@Override public MatchPrediction predictMatch() {
+				return timer.record(predictor::predictMatch);
+			}
+		};
+	}
+
+	private void recordHistorySize(MatchHistoryView matchData) {
+		DistributionSummary.builder(HISTORY_SIZE_SUMMARY).publishPercentileHistogram().register(meterRegistry).record(matchData.size());
+	}
+
+
 	// Util
 
 
 	Cache getPlayersCache() {
-		return players;
+		return players.synchronous();
 	}
 
 	Cache getPlayersRankingsCache() {
-		return playersRankings;
+		return playersRankings.synchronous();
 	}
 
 	Cache getPlayersMatchesCache() {
-		return playersMatches;
+		return playersMatches.synchronous();
+	}
+
+	Cache getPredictionsCache() {
+		return predictions;
 	}
 
 	void clearCaches() {
-		players.invalidateAll();
-		playersRankings.invalidateAll();
-		playersMatches.invalidateAll();
+		if (useRankingIndex && rankingIndexReloadPending.compareAndSet(false, true)) {
+			rankingIndex = null;
+			loaderExecutor.execute(() -> {
+				rankingIndexReloadPending.set(false);
+				reloadRankingIndex();
+			});
+		}
+		qualifierRankings = null;
+		qualifierRankingData = null;
+		players.synchronous().invalidateAll();
+		playersRankings.synchronous().invalidateAll();
+		playersMatches.synchronous().invalidateAll();
+		predictions.invalidateAll();
+	}
+
+	public Set<Integer> getInProgressPlayerIds() {
+		return new HashSet<>(jdbcTemplate.getJdbcOperations().queryForList(IN_PROGRESS_PLAYERS_QUERY, Integer.class));
+	}
+
+	public void invalidatePlayers(Collection<Integer> playerIds) {
+		if (playerIds.isEmpty())
+			return;
+		Set<Integer> ids = new HashSet<>(playerIds);
+		if (useRankingIndex)
+			inProgressEloRatings = loadInProgressEloRatings();
+		playersRankings.synchronous().asMap().keySet().removeIf(key -> ids.contains(key.playerId));
+		playersMatches.synchronous().invalidateAll(ids);
+		predictions.asMap().keySet().removeIf(key -> ids.contains(key.playerId1) || ids.contains(key.playerId2));
+	}
+
+	private static final class PredictionKey {
+
+		public final int playerId1;
+		public final int playerId2;
+		public final LocalDate date1;
+		public final LocalDate date2;
+		public final Integer tournamentId;
+		public final Integer tournamentEventId;
+		public final boolean inProgress;
+		public final Surface surface;
+		public final Boolean indoor;
+		public final TournamentLevel level;
+		public final Short bestOf;
+		public final Round round;
+		public final TuningSet tuningSet;
+
+		public PredictionKey(int playerId1, int playerId2, LocalDate date1, LocalDate date2, Integer tournamentId, Integer tournamentEventId, boolean inProgress,
+		                     Surface surface, Boolean indoor, TournamentLevel level, Short bestOf, Round round, TuningSet tuningSet) {
+			this.playerId1 = playerId1;
+			this.playerId2 = playerId2;
+			this.date1 = date1;
+			this.date2 = date2;
+			this.tournamentId = tournamentId;
+			this.tournamentEventId = tournamentEventId;
+			this.inProgress = inProgress;
+			this.surface = surface;
+			this.indoor = indoor;
+			this.level = level;
+			this.bestOf = bestOf;
+			this.round = round;
+			this.tuningSet = tuningSet;
+		}
+
+		@Override public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof PredictionKey)) return false;
+			PredictionKey key = (PredictionKey)o;
+			return playerId1 == key.playerId1 && playerId2 == key.playerId2 && inProgress == key.inProgress && Objects.equals(date1, key.date1) && Objects.equals(date2, key.date2)
+				&& Objects.equals(tournamentId, key.tournamentId) && Objects.equals(tournamentEventId, key.tournamentEventId) && surface == key.surface && Objects.equals(indoor, key.indoor)
+				&& level == key.level && Objects.equals(bestOf, key.bestOf) && round == key.round && tuningSet == key.tuningSet;
+		}
+
+		@Override public int hashCode() {
+			return Objects.hash(playerId1, playerId2, date1, date2, tournamentId, tournamentEventId, inProgress, surface, indoor, level, bestOf, round, tuningSet);
+		}
 	}
 
-	private static final RankingKey QUALIFIER_RANKING_KEY = new RankingKey(-1, null, null, null);
-	
 	private static final class RankingKey {
 
 		public final int playerId;
@@ -336,10 +747,6 @@ public class MatchPredictionService {
 			this.indoor = indoor;
 		}
 
-		public boolean isQualifier() {
-			return playerId == QUALIFIER_RANKING_KEY.playerId;
-		}
-
 		@Override public boolean equals(Object o) {
 			if (this == o) return true;
 			if (!(o instanceof RankingKey)) return false;
@@ -37,6 +37,11 @@ public abstract class ResultSetUtil {
 		return rs.wasNull() ? null : d;
 	}
 
+	public static Boolean getBoolean(ResultSet rs, String column) throws SQLException {
+		boolean b = rs.getBoolean(column);
+		return rs.wasNull() ? null : b;
+	}
+
 	public static String getInternedString(ResultSet rs, String column) throws SQLException {
 		String s = rs.getString(column);
 		return s != null ? s.intern() : null;
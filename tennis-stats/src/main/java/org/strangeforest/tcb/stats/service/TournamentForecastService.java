@@ -60,6 +60,19 @@ public class TournamentForecastService {
 		"AND r.base_result = 'W' AND r.result = 'W' AND probability > 0\n" +
 		"ORDER BY r.probability DESC LIMIT :favoriteCount";
 
+	private static final String FIND_EVENTS_FAVORITES_QUERY = //language=SQL
+		"SELECT in_progress_event_id, player_id, name, country_id, probability, favorite_rank\n" +
+		"FROM (\n" +
+		"  SELECT r.in_progress_event_id, player_id, p.name, p.country_id, r.probability,\n" +
+		"    row_number() OVER (PARTITION BY r.in_progress_event_id ORDER BY r.probability DESC) AS favorite_rank\n" +
+		"  FROM player_in_progress_result r\n" +
+		"  INNER JOIN player_v p USING (player_id)\n" +
+		"  WHERE r.in_progress_event_id IN (:inProgressEventIds)\n" +
+		"  AND r.base_result = 'W' AND r.result = 'W' AND probability > 0\n" +
+		") AS f\n" +
+		"WHERE favorite_rank <= :favoriteCount\n" +
+		"ORDER BY in_progress_event_id, favorite_rank";
+
 	private static final String FAVORITE_EXTRA_COLUMNS = //language=SQL
 		", p.current_rank, p.best_rank,\n" +
 		"  (SELECT CASE WHEN m.player1_id = player_id THEN coalesce(m.player1_next_%1$selo_rating, m.player1_%1$selo_rating) ELSE coalesce(m.player2_next_%1$selo_rating, m.player2_%1$selo_rating) END FROM in_progress_match m\n" +
@@ -91,6 +104,15 @@ public class TournamentForecastService {
 		"WHERE in_progress_event_id = :inProgressEventId\n" +
 		"ORDER BY round, match_num";
 
+	private static final String IN_PROGRESS_EVENT_BEST_OF_QUERY =
+		"SELECT best_of FROM in_progress_match\n" +
+		"WHERE in_progress_event_id = :inProgressEventId AND best_of IS NOT NULL\n" +
+		"ORDER BY round, match_num LIMIT 1";
+
+	private static final String PLAYER_NAME_QUERY =
+		"SELECT name FROM player_v\n" +
+		"WHERE player_id = :playerId";
+
 	private static final String PLAYER_IN_PROGRESS_RESULTS_QUERY = //language=SQL
 		"SELECT player_id, base_result, result, probability, avg_draw_probability, no_draw_probability\n" +
 		"FROM player_in_progress_result\n" +
@@ -121,8 +143,9 @@ public class TournamentForecastService {
 				table.addRow(mapInProgressEvent(rs));
 			}
 		);
+		Map<Integer, List<FavoritePlayer>> eventsFavorites = findEventsFavoritePlayers(table.getRows().stream().map(InProgressEvent::getId).collect(toList()), 2, priceFormat);
 		for (InProgressEvent inProgressEvent : table.getRows())
-			inProgressEvent.setFavorites(findFavoritePlayers(inProgressEvent.getId(), 2, priceFormat));
+			inProgressEvent.setFavorites(eventsFavorites.getOrDefault(inProgressEvent.getId(), emptyList()));
 		return table;
 	}
 
@@ -160,7 +183,7 @@ public class TournamentForecastService {
 	@Cacheable("InProgressEventForecast")
 	public InProgressEventForecast getInProgressEventForecast(int inProgressEventId) {
 		InProgressEvent inProgressEvent = getInProgressEvent(inProgressEventId);
-		List<FavoritePlayer> favorites = findFavoritePlayers(inProgressEventId, 4, null);
+		List<FavoritePlayer> favorites = findEventsFavoritePlayers(singletonList(inProgressEventId), 4, null).getOrDefault(inProgressEventId, emptyList());
 		inProgressEvent.setFavorites(favorites);
 		return fetchInProgressEventForecast(inProgressEvent, "");
 	}
@@ -316,7 +339,6 @@ public class TournamentForecastService {
 		String round = result.name();
 		String nextRound = result.next().name();
 		List<PlayerForecast> nextRemainingPlayers = new ArrayList<>();
-		LocalDate today = LocalDate.now();
 		for (Iterator<PlayerForecast> iter = remainingPlayers.iterator(); iter.hasNext(); ) {
 			PlayerForecast player1 = getNextCandidate(iter, round, playerId);
 			PlayerForecast player2 = getNextCandidate(iter, round, playerId);
@@ -324,14 +346,24 @@ public class TournamentForecastService {
 				if (playerWins(player1, player2, nextRound, playerId) == player2) {
 					PlayerForecast player = player1; player1 = player2; player2 = player;
 				}
-				addMatchProbability(event, player1, player2, round, today);
-				probableMatches.addMatch(new TournamentEventMatch(
-					matchId.incrementAndGet(), (short)matchNum.incrementAndGet(), round, player1, player2, emptyList(), null, false
-				));
 				nextRemainingPlayers.add(player1);
 				nextRemainingPlayers.add(player2);
 			}
 		}
+		List<Matchup> matchups = new ArrayList<>();
+		for (int i = 0; i < nextRemainingPlayers.size(); i += 2)
+			matchups.add(new Matchup(nextRemainingPlayers.get(i).getId(), nextRemainingPlayers.get(i + 1).getId()));
+		MatchupPredictions predictions = predictMatches(matchups, event, LocalDate.now(), round);
+		for (int i = 0; i < nextRemainingPlayers.size(); i += 2) {
+			PlayerForecast player1 = nextRemainingPlayers.get(i);
+			PlayerForecast player2 = nextRemainingPlayers.get(i + 1);
+			double winProbability1 = predictions.getWinProbability(player1.getId(), player2.getId());
+			player1.addForecast("M_" + round, winProbability1);
+			player2.addForecast("M_" + round, 1.0 - winProbability1);
+			probableMatches.addMatch(new TournamentEventMatch(
+				matchId.incrementAndGet(), (short)matchNum.incrementAndGet(), round, player1, player2, emptyList(), null, false
+			));
+		}
 		return nextRemainingPlayers;
 	}
 
@@ -353,12 +385,6 @@ public class TournamentForecastService {
 		return player1.getRawProbability(round) >= player2.getRawProbability(round) ? player1 : player2;
 	}
 
-	private void addMatchProbability(InProgressEvent event, PlayerForecast player1, PlayerForecast player2, String round, LocalDate date) {
-		MatchPrediction prediction = predictMatch(player1.getId(), player2.getId(), event, date, round);
-		player1.addForecast("M_" + round, prediction.getWinProbability1());
-		player2.addForecast("M_" + round, prediction.getWinProbability2());
-	}
-
 
 	// Player path
 
@@ -407,6 +433,7 @@ public class TournamentForecastService {
 				while (true) {
 					String round = result.prev().name();
 					if (!completed.getRounds().contains(ResultRound.valueOf(round))) {
+						List<PlayerForecast> opponents = new ArrayList<>();
 						for (PlayerForecast opponent : current.getOpponents(index, result.ordinal() - firstResult.ordinal())) {
 							if (opponent.isBye())
 								continue;
@@ -414,11 +441,15 @@ public class TournamentForecastService {
 								opponent.addForecast(round, 1.0);
 							if (opponent.isKnown() && opponent.getRawProbability(round) <= 0.0)
 								continue;
+							opponents.add(opponent);
+						}
+						// All round opponents are predicted as one batch
+						MatchupPredictions predictions = predictMatches(opponents.stream().map(opponent -> new Matchup(playerId, opponent.getId())).collect(toList()), event, today, round);
+						for (PlayerForecast opponent : opponents) {
 							probable.addMatch(new TournamentEventMatch(
 								matchId.incrementAndGet(), (short)matchNum.incrementAndGet(), round, playerForecast, opponent, emptyList(), null, false
 							));
-							MatchPrediction prediction = predictMatch(playerId, opponent.getId(), event, today, round);
-							playerForecast.addForecast("M_" + round + '_' + opponent.getId(), prediction.getWinProbability1());
+							playerForecast.addForecast("M_" + round + '_' + opponent.getId(), predictions.getWinProbability(playerId, opponent.getId()));
 						}
 					}
 					if (result.hasNext())
@@ -431,10 +462,65 @@ public class TournamentForecastService {
 		return new PlayerPath(player, completed, probable, forecast.getEntryForecast().getKnownPlayers(), forecast.getEvent());
 	}
 
-	private MatchPrediction predictMatch(int playerId1, int playerId2, InProgressEvent event, LocalDate date, String round) {
-		return matchPredictionService.predictMatch(
-			playerId1, playerId2, date, event.getTournamentId(), event.getId(), true, Surface.safeDecode(event.getSurface()), event.isIndoor(), TournamentLevel.safeDecode(event.getLevel()), null, Round.safeDecode(round)
-		);
+	private MatchupPredictions predictMatches(List<Matchup> matchups, InProgressEvent event, LocalDate date, String round) {
+		return predictMatches(matchups, event, date, null, round);
+	}
+
+	private MatchupPredictions predictMatches(List<Matchup> matchups, InProgressEvent event, LocalDate date, Short bestOf, String round) {
+		return matchPredictionService.predictMatches(matchups, new MatchupContext(
+			date, event.getTournamentId(), event.getId(), true, Surface.safeDecode(event.getSurface()), event.isIndoor(), TournamentLevel.safeDecode(event.getLevel()), bestOf, Round.safeDecode(round)
+		));
+	}
+
+
+	// What-if
+
+	@Cacheable("InProgressEventWhatIfForecaster")
+	public WhatIfForecaster getInProgressEventWhatIfForecaster(int inProgressEventId) {
+		InProgressEvent event = getInProgressEvent(inProgressEventId);
+		if (!"KO".equals(event.getDrawType()))
+			throw new UnsupportedOperationException(format("Draw type %1$s is not supported.", event.getDrawType()));
+		List<PlayerForecast> players = fetchPlayers(inProgressEventId);
+		int slots = players.size();
+		int rounds = 32 - Integer.numberOfLeadingZeros(slots - 1);
+		if (slots < 2 || rounds > KOResult.W.ordinal())
+			throw new IllegalArgumentException("Invalid draw size: " + slots);
+		int[] entries = new int[slots];
+		int[] seeds = new int[slots];
+		String[] names = new String[slots];
+		for (int slot = 0; slot < slots; slot++) {
+			PlayerForecast player = players.get(slot);
+			entries[slot] = player.isBye() ? 0 : player.getId();
+			seeds[slot] = player.getSeed() != null ? player.getSeed() : 0;
+			names[slot] = player.getName();
+		}
+		LocalDate today = LocalDate.now();
+		Short bestOf = fetchBestOf(inProgressEventId);
+		KOResult baseResult = KOResult.values()[KOResult.W.ordinal() - rounds];
+		WhatIfForecaster forecaster = new WhatIfForecaster(inProgressEventId, baseResult, entries, seeds, names, (playerId1, playerId2, round) -> matchPredictionService.predictMatch(
+			playerId1, playerId2, today, event.getTournamentId(), event.getId(), true, Surface.safeDecode(event.getSurface()), event.isIndoor(), TournamentLevel.safeDecode(event.getLevel()), bestOf, round
+		).getWinProbability1(), this::fetchPlayerName);
+		for (TournamentEventMatch match : getInProgressEventCompletedMatches(inProgressEventId).getMatches()) {
+			KOResult result = KOResult.valueOf(match.getRound());
+			forecaster.setMatchResult(match.getWinner().getId(), result, true);
+			if (match.getLoser() != null)
+				forecaster.setMatchResult(match.getLoser().getId(), result, false);
+		}
+		// Pairwise win probability matrix is predicted once per round and reused by all what-if scenarios
+		for (KOResult result = baseResult; result != KOResult.W; result = result.next()) {
+			List<Matchup> matchups = forecaster.getMatchups(result);
+			if (!matchups.isEmpty())
+				forecaster.setMatchupPredictions(result, predictMatches(matchups, event, today, bestOf, result.name()));
+		}
+		return forecaster;
+	}
+
+	private Short fetchBestOf(int inProgressEventId) {
+		return jdbcTemplate.query(IN_PROGRESS_EVENT_BEST_OF_QUERY, params("inProgressEventId", inProgressEventId), rs -> rs.next() ? rs.getShort("best_of") : null);
+	}
+
+	private String fetchPlayerName(int playerId) {
+		return jdbcTemplate.query(PLAYER_NAME_QUERY, params("playerId", playerId), rs -> rs.next() ? rs.getString("name") : null);
 	}
 
 
@@ -477,15 +563,20 @@ public class TournamentForecastService {
 		);
 	}
 
-	private List<FavoritePlayer> findFavoritePlayers(int inProgressEventId, int count, PriceFormat priceFormat) {
-		return jdbcTemplate.query(format(FIND_FAVORITES_QUERY, ""), params("inProgressEventId", inProgressEventId).addValue("favoriteCount", count),
-			(rs, rowNum) -> mapFavoritePlayer(rs, rowNum, priceFormat)
-		);
+	// Top favorites of all events are fetched in a single query
+	private Map<Integer, List<FavoritePlayer>> findEventsFavoritePlayers(Collection<Integer> inProgressEventIds, int count, PriceFormat priceFormat) {
+		if (inProgressEventIds.isEmpty())
+			return emptyMap();
+		Map<Integer, List<FavoritePlayer>> eventsFavorites = new HashMap<>();
+		jdbcTemplate.query(FIND_EVENTS_FAVORITES_QUERY, params("inProgressEventIds", inProgressEventIds).addValue("favoriteCount", count), rs -> {
+			eventsFavorites.computeIfAbsent(rs.getInt("in_progress_event_id"), inProgressEventId -> new ArrayList<>()).add(mapFavoritePlayer(rs, priceFormat));
+		});
+		return eventsFavorites;
 	}
 
-	private FavoritePlayer mapFavoritePlayer(ResultSet rs, int rowNum, PriceFormat priceFormat) throws SQLException {
+	private FavoritePlayer mapFavoritePlayer(ResultSet rs, PriceFormat priceFormat) throws SQLException {
 		return new FavoritePlayer(
-			rowNum + 1,
+			rs.getInt("favorite_rank"),
 			rs.getInt("player_id"),
 			rs.getString("name"),
 			getInternedString(rs, "country_id"),
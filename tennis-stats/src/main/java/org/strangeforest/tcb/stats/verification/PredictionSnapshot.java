@@ -0,0 +1,260 @@
+package org.strangeforest.tcb.stats.verification;
+
+import java.io.*;
+import java.time.*;
+import java.util.*;
+import java.util.zip.*;
+
+import org.strangeforest.tcb.stats.model.core.*;
+import org.strangeforest.tcb.stats.model.prediction.*;
+
+public final class PredictionSnapshot {
+
+	private static final int MAGIC = 0x54434250;
+	private static final int VERSION = 1;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final LocalDate fromDate;
+	private final LocalDate toDate;
+	private final String priceSource;
+	private final List<SnapshotMatch> matches;
+	private final Map<Integer, PlayerData> players;
+	private final Map<Integer, MatchHistory> playersMatches;
+	private final RankingIndex rankingIndex;
+
+	private PredictionSnapshot(LocalDate fromDate, LocalDate toDate, String priceSource, List<SnapshotMatch> matches,
+	                           Map<Integer, PlayerData> players, Map<Integer, MatchHistory> playersMatches, RankingIndex rankingIndex) {
+		this.fromDate = fromDate;
+		this.toDate = toDate;
+		this.priceSource = priceSource;
+		this.matches = matches;
+		this.players = players;
+		this.playersMatches = playersMatches;
+		this.rankingIndex = rankingIndex;
+	}
+
+	public LocalDate getFromDate() {
+		return fromDate;
+	}
+
+	public LocalDate getToDate() {
+		return toDate;
+	}
+
+	public String getPriceSource() {
+		return priceSource;
+	}
+
+	public List<SnapshotMatch> getMatches() {
+		return matches;
+	}
+
+	public int getPlayerCount() {
+		return players.size();
+	}
+
+	public MatchPrediction predictMatch(SnapshotMatch match, PredictionConfig config) {
+		LocalDate date = match.date;
+		Surface surface = match.surface;
+		return MatchPredictionUtil.predictMatchBetweenEntries(
+			match.winnerId, match.loserId, players.get(match.winnerId), players.get(match.loserId),
+			rankingIndex.getRankingData(match.winnerId, date, surface, match.indoor), rankingIndex.getRankingData(match.loserId, date, surface, match.indoor),
+			matchData(match.winnerId, match), matchData(match.loserId, match),
+			date, date, match.tournamentId, surface, match.level, match.bestOf, match.round, config
+		);
+	}
+
+	private MatchHistoryView matchData(int playerId, SnapshotMatch match) {
+		return playersMatches.get(playerId).before(match.date, match.tournamentEventId, false, match.round);
+	}
+
+
+	// Reading
+
+	public static PredictionSnapshot read(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE), BUFFER_SIZE))) {
+			if (in.readInt() != MAGIC)
+				throw new IOException("Not a prediction snapshot: " + file);
+			int version = in.readInt();
+			if (version != VERSION)
+				throw new IOException("Unsupported prediction snapshot version: " + version);
+			LocalDate fromDate = readDate(in);
+			LocalDate toDate = readDate(in);
+			String priceSource = in.readUTF();
+			int matchCount = in.readInt();
+			List<SnapshotMatch> matches = new ArrayList<>(matchCount);
+			for (int i = 0; i < matchCount; i++)
+				matches.add(readMatch(in));
+			int playerCount = in.readInt();
+			Map<Integer, PlayerData> players = new HashMap<>(playerCount * 4 / 3 + 1);
+			Map<Integer, MatchHistory> playersMatches = new HashMap<>(playerCount * 4 / 3 + 1);
+			for (int i = 0; i < playerCount; i++) {
+				int playerId = in.readInt();
+				players.put(playerId, new PlayerData(readString(in), readString(in)));
+				int playerMatchCount = in.readInt();
+				List<MatchData> matchData = new ArrayList<>(playerMatchCount);
+				for (int j = 0; j < playerMatchCount; j++)
+					matchData.add(readMatchData(in));
+				playersMatches.put(playerId, new MatchHistory(matchData));
+			}
+			RankingIndex rankingIndex = RankingIndex.read(in);
+			return new PredictionSnapshot(fromDate, toDate, priceSource, matches, players, playersMatches, rankingIndex);
+		}
+	}
+
+	private static SnapshotMatch readMatch(DataInput in) throws IOException {
+		return new SnapshotMatch(
+			in.readInt(),
+			in.readInt(),
+			readDate(in),
+			in.readInt(),
+			in.readInt(),
+			TournamentLevel.decode(in.readUTF()),
+			in.readShort(),
+			Surface.safeDecode(readString(in)),
+			in.readBoolean(),
+			Round.decode(in.readUTF()),
+			readDouble(in),
+			readDouble(in)
+		);
+	}
+
+	private static MatchData readMatchData(DataInput in) throws IOException {
+		return new MatchData(
+			readDate(in),
+			in.readInt(),
+			in.readInt(),
+			false,
+			TournamentLevel.decode(in.readUTF()),
+			Surface.safeDecode(readString(in)),
+			Round.decode(in.readUTF()),
+			in.readInt(),
+			readInteger(in),
+			readInteger(in),
+			readString(in),
+			readString(in),
+			readString(in),
+			in.readByte(),
+			in.readByte(),
+			in.readByte(),
+			in.readByte()
+		);
+	}
+
+	private static LocalDate readDate(DataInput in) throws IOException {
+		return LocalDate.ofEpochDay(in.readInt());
+	}
+
+	private static Integer readInteger(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readInt() : null;
+	}
+
+	private static Double readDouble(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readDouble() : null;
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readUTF().intern() : null;
+	}
+
+
+	// Writing
+
+	public static Writer writer(File file) throws IOException {
+		return new Writer(file);
+	}
+
+	public static final class Writer implements Closeable {
+
+		private final DataOutputStream out;
+
+		private Writer(File file) throws IOException {
+			out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE), BUFFER_SIZE));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+		}
+
+		public void writeHeader(LocalDate fromDate, LocalDate toDate, String priceSource) throws IOException {
+			writeDate(fromDate);
+			writeDate(toDate);
+			out.writeUTF(priceSource);
+		}
+
+		public void writeMatches(List<SnapshotMatch> matches) throws IOException {
+			out.writeInt(matches.size());
+			for (SnapshotMatch match : matches) {
+				out.writeInt(match.winnerId);
+				out.writeInt(match.loserId);
+				writeDate(match.date);
+				out.writeInt(match.tournamentId);
+				out.writeInt(match.tournamentEventId);
+				out.writeUTF(match.level.getCode());
+				out.writeShort(match.bestOf);
+				writeString(match.surface != null ? match.surface.getCode() : null);
+				out.writeBoolean(match.indoor);
+				out.writeUTF(match.round.getCode());
+				writeDouble(match.winnerPrice);
+				writeDouble(match.loserPrice);
+			}
+		}
+
+		public void writePlayerCount(int playerCount) throws IOException {
+			out.writeInt(playerCount);
+		}
+
+		public void writePlayer(int playerId, PlayerData playerData, List<MatchData> matchData) throws IOException {
+			out.writeInt(playerId);
+			writeString(playerData.getHand());
+			writeString(playerData.getBackhand());
+			out.writeInt(matchData.size());
+			for (MatchData match : matchData) {
+				writeDate(match.getDate());
+				out.writeInt(match.getTournamentId());
+				out.writeInt(match.getTournamentEventId());
+				out.writeUTF(match.getLevel().getCode());
+				writeString(match.getSurface() != null ? match.getSurface().getCode() : null);
+				out.writeUTF(match.getRound().getCode());
+				out.writeInt(match.getOpponentId());
+				writeInteger(match.getOpponentRank());
+				writeInteger(match.getOpponentEloRating());
+				writeString(match.getOpponentHand());
+				writeString(match.getOpponentBackhand());
+				writeString(match.getOpponentEntry());
+				out.writeByte(match.getPMatches());
+				out.writeByte(match.getOMatches());
+				out.writeByte(match.getPSets());
+				out.writeByte(match.getOSets());
+			}
+		}
+
+		public void writeRankingIndex(RankingIndex rankingIndex, Collection<Integer> playerIds) throws IOException {
+			rankingIndex.write(out, playerIds);
+		}
+
+		@Override public void close() throws IOException {
+			out.close();
+		}
+
+		private void writeDate(LocalDate date) throws IOException {
+			out.writeInt((int)date.toEpochDay());
+		}
+
+		private void writeInteger(Integer i) throws IOException {
+			out.writeBoolean(i != null);
+			if (i != null)
+				out.writeInt(i);
+		}
+
+		private void writeDouble(Double d) throws IOException {
+			out.writeBoolean(d != null);
+			if (d != null)
+				out.writeDouble(d);
+		}
+
+		private void writeString(String s) throws IOException {
+			out.writeBoolean(s != null);
+			if (s != null)
+				out.writeUTF(s);
+		}
+	}
+}
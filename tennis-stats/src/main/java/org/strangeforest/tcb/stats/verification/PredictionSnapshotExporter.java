@@ -0,0 +1,86 @@
+package org.strangeforest.tcb.stats.verification;
+
+import java.io.*;
+import java.sql.*;
+import java.time.*;
+import java.util.*;
+
+import org.springframework.jdbc.core.namedparam.*;
+import org.strangeforest.tcb.stats.model.core.*;
+import org.strangeforest.tcb.stats.model.prediction.*;
+import org.strangeforest.tcb.stats.service.*;
+
+import com.google.common.base.*;
+
+import static org.strangeforest.tcb.stats.service.ParamsUtil.*;
+import static org.strangeforest.tcb.stats.service.ResultSetUtil.*;
+
+public class PredictionSnapshotExporter {
+
+	private final NamedParameterJdbcTemplate jdbcTemplate;
+	private final MatchPredictionService predictionService;
+
+	private static final String MATCHES_QUERY = //language=SQL
+		"SELECT m.winner_id, m.loser_id, m.date, m.tournament_id, m.tournament_event_id, m.level, m.best_of, m.surface, m.indoor, m.round, p.winner_price, p.loser_price\n" +
+		"FROM match_for_stats_v m\n" +
+		"LEFT JOIN match_price p ON p.match_id = m.match_id AND source = :source\n" +
+		"WHERE outcome IS NULL AND (m.date BETWEEN :date1 AND :date2)\n" +
+		"ORDER BY m.date";
+
+	public PredictionSnapshotExporter(NamedParameterJdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+		predictionService = new MatchPredictionService(jdbcTemplate, false);
+	}
+
+	public void export(LocalDate fromDate, LocalDate toDate, String priceSource, File file) throws IOException {
+		try {
+			Stopwatch stopwatch = Stopwatch.createStarted();
+			List<SnapshotMatch> matches = matches(fromDate, toDate, priceSource);
+			SortedSet<Integer> playerIds = new TreeSet<>();
+			for (SnapshotMatch match : matches) {
+				playerIds.add(match.winnerId);
+				playerIds.add(match.loserId);
+			}
+			System.out.printf("Exporting %1$d matches with %2$d players from %3$s to %4$s\n", matches.size(), playerIds.size(), fromDate, toDate);
+			RankingIndex rankingIndex = predictionService.loadRankingIndex();
+			System.out.printf("Ranking index for %1$d players loaded in %2$s\n", rankingIndex.playerCount(), stopwatch);
+			try (PredictionSnapshot.Writer writer = PredictionSnapshot.writer(file)) {
+				writer.writeHeader(fromDate, toDate, priceSource);
+				writer.writeMatches(matches);
+				writer.writePlayerCount(playerIds.size());
+				for (int playerId : playerIds)
+					writer.writePlayer(playerId, predictionService.getPlayerData(playerId), predictionService.fetchPlayerMatches(playerId));
+				writer.writeRankingIndex(rankingIndex, playerIds);
+			}
+			System.out.printf("Prediction snapshot %1$s [%2$d KB] exported in %3$s\n", file, file.length() / 1024, stopwatch);
+		}
+		finally {
+			predictionService.destroy();
+		}
+	}
+
+	private List<SnapshotMatch> matches(LocalDate fromDate, LocalDate toDate, String priceSource) {
+		return jdbcTemplate.query(
+			MATCHES_QUERY,
+			params("source", priceSource).addValue("date1", fromDate).addValue("date2", toDate),
+			(rs, rowNum) -> match(rs)
+		);
+	}
+
+	private static SnapshotMatch match(ResultSet rs) throws SQLException {
+		return new SnapshotMatch(
+			rs.getInt("winner_id"),
+			rs.getInt("loser_id"),
+			getLocalDate(rs, "date"),
+			rs.getInt("tournament_id"),
+			rs.getInt("tournament_event_id"),
+			TournamentLevel.decode(rs.getString("level")),
+			rs.getShort("best_of"),
+			Surface.safeDecode(rs.getString("surface")),
+			rs.getBoolean("indoor"),
+			Round.decode(rs.getString("round")),
+			getDouble(rs, "winner_price"),
+			getDouble(rs, "loser_price")
+		);
+	}
+}
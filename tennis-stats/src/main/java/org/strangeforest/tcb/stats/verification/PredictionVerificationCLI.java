@@ -0,0 +1,102 @@
+package org.strangeforest.tcb.stats.verification;
+
+import java.io.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+import org.springframework.jdbc.core.namedparam.*;
+import org.springframework.jdbc.datasource.*;
+import org.strangeforest.tcb.stats.model.prediction.*;
+
+import com.google.common.base.Stopwatch;
+
+public class PredictionVerificationCLI {
+
+	private static final String USAGE =
+		"Usage:\n" +
+		"  export [--url <jdbcUrl>] [--user <user>] [--password <password>] [--from <date>] [--to <date>] [--price-source <source>] <snapshotFile>\n" +
+		"  verify [--from <date>] [--to <date>] [--tuning-set-level <level>] [--min-predictability <value>] [--kelly-stake <true|false>] [--threads <count>] <snapshotFile>";
+
+	private static final String DEFAULT_URL = "jdbc:postgresql://localhost:5432/postgres";
+	private static final String DEFAULT_USER = "tcb";
+	private static final String DEFAULT_PASSWORD = "tcb";
+	private static final String DEFAULT_PRICE_SOURCE = "B365";
+	private static final TuningSetLevel DEFAULT_TUNING_SET_LEVEL = TuningSetLevel.SURFACE;
+	private static final double DEFAULT_MIN_PREDICTABILITY = 0.25;
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+		String command = args[0];
+		File file = new File(args[args.length - 1]);
+		Map<String, String> options = options(Arrays.copyOfRange(args, 1, args.length - 1));
+		switch (command) {
+			case "export": export(file, options); break;
+			case "verify": verify(file, options); break;
+			default:
+				System.err.println("Unknown command: " + command);
+				System.err.println(USAGE);
+				System.exit(1);
+		}
+	}
+
+	private static void export(File file, Map<String, String> options) throws IOException {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(
+			options.getOrDefault("url", DEFAULT_URL),
+			options.getOrDefault("user", DEFAULT_USER),
+			options.getOrDefault("password", DEFAULT_PASSWORD)
+		);
+		LocalDate toDate = date(options, "to", LocalDate.now());
+		LocalDate fromDate = date(options, "from", toDate.minusYears(1L));
+		new PredictionSnapshotExporter(new NamedParameterJdbcTemplate(dataSource)).export(fromDate, toDate, options.getOrDefault("price-source", DEFAULT_PRICE_SOURCE), file);
+	}
+
+	private static void verify(File file, Map<String, String> options) throws IOException, InterruptedException {
+		Stopwatch stopwatch = Stopwatch.createStarted();
+		PredictionSnapshot snapshot = PredictionSnapshot.read(file);
+		System.out.printf("Prediction snapshot with %1$d matches and %2$d players from %3$s to %4$s [price source: %5$s] loaded in %6$s\n",
+			snapshot.getMatches().size(), snapshot.getPlayerCount(), snapshot.getFromDate(), snapshot.getToDate(), snapshot.getPriceSource(), stopwatch
+		);
+		LocalDate fromDate = date(options, "from", snapshot.getFromDate());
+		LocalDate toDate = date(options, "to", snapshot.getToDate());
+		TuningSetLevel tuningSetLevel = options.containsKey("tuning-set-level") ? TuningSetLevel.valueOf(options.get("tuning-set-level")) : DEFAULT_TUNING_SET_LEVEL;
+		double minPredictability = options.containsKey("min-predictability") ? Double.parseDouble(options.get("min-predictability")) : DEFAULT_MIN_PREDICTABILITY;
+		boolean kellyStake = !options.containsKey("kelly-stake") || Boolean.parseBoolean(options.get("kelly-stake"));
+		int threads = options.containsKey("threads") ? Integer.parseInt(options.get("threads")) : Runtime.getRuntime().availableProcessors();
+
+		Function<SnapshotMatch, PredictionConfig> configSelector = match -> PredictionConfig.defaultConfig(tuningSetLevel.select(match.surface, match.indoor, match.level, match.bestOf));
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			stopwatch.reset().start();
+			SnapshotVerificationResult result = new SnapshotVerifier(snapshot, minPredictability, kellyStake).verify(fromDate, toDate, configSelector, pool);
+			System.out.printf("Verified prediction from %1$s to %2$s [tuning set level: %3$s, threads: %4$d] in %5$s\n", fromDate, toDate, tuningSetLevel, threads, stopwatch);
+			System.out.println(result);
+			System.out.println("Calibration:");
+			for (SnapshotVerificationResult.CalibrationBucket bucket : result.getCalibrationBuckets())
+				System.out.println("  " + bucket);
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	private static Map<String, String> options(String[] args) {
+		Map<String, String> options = new HashMap<>();
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (!arg.startsWith("--") || i + 1 >= args.length)
+				throw new IllegalArgumentException("Invalid option: " + arg + '\n' + USAGE);
+			options.put(arg.substring(2), args[++i]);
+		}
+		return options;
+	}
+
+	private static LocalDate date(Map<String, String> options, String name, LocalDate defaultDate) {
+		String date = options.get(name);
+		return date != null ? LocalDate.parse(date) : defaultDate;
+	}
+}
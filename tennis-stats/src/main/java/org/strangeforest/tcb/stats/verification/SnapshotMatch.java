@@ -0,0 +1,36 @@
+package org.strangeforest.tcb.stats.verification;
+
+import java.time.*;
+
+import org.strangeforest.tcb.stats.model.core.*;
+
+public final class SnapshotMatch {
+
+	public final int winnerId;
+	public final int loserId;
+	public final LocalDate date;
+	public final int tournamentId;
+	public final int tournamentEventId;
+	public final TournamentLevel level;
+	public final short bestOf;
+	public final Surface surface;
+	public final boolean indoor;
+	public final Round round;
+	public final Double winnerPrice;
+	public final Double loserPrice;
+
+	public SnapshotMatch(int winnerId, int loserId, LocalDate date, int tournamentId, int tournamentEventId, TournamentLevel level, short bestOf, Surface surface, boolean indoor, Round round, Double winnerPrice, Double loserPrice) {
+		this.winnerId = winnerId;
+		this.loserId = loserId;
+		this.date = date;
+		this.tournamentId = tournamentId;
+		this.tournamentEventId = tournamentEventId;
+		this.level = level;
+		this.bestOf = bestOf;
+		this.surface = surface;
+		this.indoor = indoor;
+		this.round = round;
+		this.winnerPrice = winnerPrice;
+		this.loserPrice = loserPrice;
+	}
+}
@@ -0,0 +1,193 @@
+package org.strangeforest.tcb.stats.verification;
+
+import java.util.*;
+
+import com.google.common.base.MoreObjects.*;
+
+import static com.google.common.base.MoreObjects.*;
+import static java.lang.Math.*;
+import static java.lang.String.*;
+import static org.strangeforest.tcb.stats.util.PercentageUtil.*;
+
+public class SnapshotVerificationResult {
+
+	private static final int CALIBRATION_BUCKETS = 10;
+
+	private int total;
+	private int predictable;
+	private int predicted;
+	private double pLog;
+	private double pDelta2;
+	private int withPrice;
+	private int beatingPrice;
+	private int profitable;
+	private double stake;
+	private double return_;
+	private final CalibrationBucket[] calibrationBuckets;
+
+	private double predictablePct;
+	private double predictionRate;
+	private double brier;
+	private double logLoss;
+	private double profit;
+	private double roi;
+
+	public SnapshotVerificationResult() {
+		calibrationBuckets = new CalibrationBucket[CALIBRATION_BUCKETS];
+		for (int i = 0; i < CALIBRATION_BUCKETS; i++)
+			calibrationBuckets[i] = new CalibrationBucket(0.5 + 0.5 * i / CALIBRATION_BUCKETS, 0.5 + 0.5 * (i + 1) / CALIBRATION_BUCKETS);
+	}
+
+	public void newMatch(boolean predictable, double winnerProbability, boolean withPrice, boolean beatingPrice, double stake, double return_) {
+		++total;
+		if (predictable) {
+			++this.predictable;
+			boolean predicted = winnerProbability > 0.5;
+			if (predicted)
+				++this.predicted;
+			double loserProbability = 1.0 - winnerProbability;
+			pLog += winnerProbability > 0.0 ? log(winnerProbability) : -2.0 * E;
+			pDelta2 += loserProbability * loserProbability;
+			double favoriteProbability = max(winnerProbability, loserProbability);
+			calibrationBuckets[min((int)((favoriteProbability - 0.5) * 2.0 * CALIBRATION_BUCKETS), CALIBRATION_BUCKETS - 1)].newMatch(favoriteProbability, predicted);
+			if (withPrice) {
+				++this.withPrice;
+				if (beatingPrice) {
+					++this.beatingPrice;
+					this.stake += stake;
+					if (return_ > 0.0) {
+						++profitable;
+						this.return_ += return_;
+					}
+				}
+			}
+		}
+	}
+
+	public void complete() {
+		predictablePct = pct(predictable, total);
+		predictionRate = pct(predicted, predictable);
+		brier = pDelta2 / predictable;
+		logLoss = -pLog / predictable;
+		profit = return_ - stake;
+		roi = stake > 0.0 ? pct(profit, stake) : 0.0;
+	}
+
+	public int getTotal() {
+		return total;
+	}
+
+	public int getPredictable() {
+		return predictable;
+	}
+
+	public int getPredicted() {
+		return predicted;
+	}
+
+	public double getPredictablePct() {
+		return predictablePct;
+	}
+
+	public double getPredictionRate() {
+		return predictionRate;
+	}
+
+	public double getBrier() {
+		return brier;
+	}
+
+	public double getLogLoss() {
+		return logLoss;
+	}
+
+	public int getWithPrice() {
+		return withPrice;
+	}
+
+	public int getBeatingPrice() {
+		return beatingPrice;
+	}
+
+	public int getProfitable() {
+		return profitable;
+	}
+
+	public double getStake() {
+		return stake;
+	}
+
+	public double getProfit() {
+		return profit;
+	}
+
+	public double getROI() {
+		return roi;
+	}
+
+	public List<CalibrationBucket> getCalibrationBuckets() {
+		return Arrays.asList(calibrationBuckets);
+	}
+
+	@Override public String toString() {
+		ToStringHelper builder = toStringHelper(this)
+			.add("rate", format("%1$.3f%%", predictionRate))
+			.add("predictable", format("%1$.3f%%", predictablePct))
+			.add("brier", format("%1$.5f", brier))
+			.add("logLoss", format("%1$.5f", logLoss));
+		if (withPrice > 0) {
+			builder.add("roi", format("%1$.3f%%", roi))
+				.add("profit", format("%1$.3f", profit))
+				.add("stake", format("%1$.3f", stake))
+				.add("bets", beatingPrice)
+				.add("withPrice", withPrice);
+		}
+		return builder.add("matches", total).toString();
+	}
+
+
+	public static final class CalibrationBucket {
+
+		private final double fromProbability;
+		private final double toProbability;
+		private int count;
+		private double probabilitySum;
+		private int favoriteWins;
+
+		private CalibrationBucket(double fromProbability, double toProbability) {
+			this.fromProbability = fromProbability;
+			this.toProbability = toProbability;
+		}
+
+		private void newMatch(double favoriteProbability, boolean favoriteWon) {
+			++count;
+			probabilitySum += favoriteProbability;
+			if (favoriteWon)
+				++favoriteWins;
+		}
+
+		public double getFromProbability() {
+			return fromProbability;
+		}
+
+		public double getToProbability() {
+			return toProbability;
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		public double getPredictedPct() {
+			return count > 0 ? 100.0 * probabilitySum / count : 0.0;
+		}
+
+		public double getActualPct() {
+			return pct(favoriteWins, count);
+		}
+
+		@Override public String toString() {
+			return format("%1$.0f-%2$.0f%%: predicted %3$.2f%%, actual %4$.2f%%, matches %5$d", 100.0 * fromProbability, 100.0 * toProbability, getPredictedPct(), getActualPct(), count);
+		}
+	}
+}
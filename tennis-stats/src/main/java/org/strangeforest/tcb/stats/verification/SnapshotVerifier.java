@@ -0,0 +1,55 @@
+package org.strangeforest.tcb.stats.verification;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+import org.strangeforest.tcb.stats.model.prediction.*;
+import org.strangeforest.tcb.stats.verification.VerificationRules.*;
+
+import static java.util.stream.Collectors.*;
+
+public class SnapshotVerifier {
+
+	private final PredictionSnapshot snapshot;
+	private final VerificationRules rules;
+
+	public SnapshotVerifier(PredictionSnapshot snapshot, double minPredictability, boolean kellyStake) {
+		this.snapshot = snapshot;
+		rules = new VerificationRules(minPredictability, false, kellyStake);
+	}
+
+	public SnapshotVerificationResult verify(LocalDate fromDate, LocalDate toDate, Function<SnapshotMatch, PredictionConfig> configSelector, ForkJoinPool pool) throws InterruptedException {
+		List<SnapshotMatch> matches = snapshot.getMatches().stream()
+			.filter(match -> !match.date.isBefore(fromDate) && !match.date.isAfter(toDate))
+			.collect(toList());
+		int count = matches.size();
+		double[] predictabilities = new double[count];
+		double[] winProbabilities1 = new double[count];
+		double[] winProbabilities2 = new double[count];
+		try {
+			pool.submit(() -> IntStream.range(0, count).parallel().forEach(i -> {
+				SnapshotMatch match = matches.get(i);
+				MatchPrediction prediction = snapshot.predictMatch(match, configSelector.apply(match));
+				predictabilities[i] = prediction.getPredictability1();
+				winProbabilities1[i] = prediction.getWinProbability1();
+				winProbabilities2[i] = prediction.getWinProbability2();
+			})).get();
+		}
+		catch (ExecutionException ex) {
+			throw new IllegalStateException("Prediction replay failed", ex.getCause());
+		}
+		SnapshotVerificationResult result = new SnapshotVerificationResult();
+		for (int i = 0; i < count; i++)
+			verifyMatch(result, matches.get(i), predictabilities[i], winProbabilities1[i], winProbabilities2[i]);
+		result.complete();
+		return result;
+	}
+
+	private void verifyMatch(SnapshotVerificationResult result, SnapshotMatch match, double predictability, double winProbability1, double winProbability2) {
+		MatchVerification verification = rules.verifyMatch(predictability, winProbability1, winProbability2, match.winnerPrice, match.loserPrice);
+		result.newMatch(verification.predictable, verification.winnerProbability, verification.withPrice, verification.beatingPrice, verification.stake, verification.return_);
+	}
+}
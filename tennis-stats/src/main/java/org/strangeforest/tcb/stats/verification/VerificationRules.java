@@ -0,0 +1,67 @@
+package org.strangeforest.tcb.stats.verification;
+
+// Predictability threshold and betting rules shared by prediction verification and snapshot replay
+public class VerificationRules {
+
+	private final double minPredictability;
+	private final boolean betOnOutsider;
+	private final boolean kellyStake;
+
+	public VerificationRules(double minPredictability, boolean betOnOutsider, boolean kellyStake) {
+		this.minPredictability = minPredictability;
+		this.betOnOutsider = betOnOutsider;
+		this.kellyStake = kellyStake;
+	}
+
+	public MatchVerification verifyMatch(double predictability, double winProbability1, double winProbability2, Double winnerPrice, Double loserPrice) {
+		boolean predictable = false, predicted = false, withPrice = false, beatingPrice = false, profitable = false;
+		double winnerProbability = 0.0, stake = 0.0, return_ = 0.0;
+		if (predictability > minPredictability) {
+			winnerProbability = winProbability1;
+			double loserProbability = winProbability2;
+			predictable = winnerProbability != 0.5;
+			predicted = winnerProbability > 0.5;
+			if (winnerPrice != null || loserPrice != null) {
+				withPrice = true;
+				if ((winnerProbability > 0.5 || betOnOutsider) && winnerPrice != null && winnerProbability > 1.0 / winnerPrice) {
+					beatingPrice = true;
+					profitable = true;
+					stake = stake(winnerProbability, winnerPrice);
+					return_ = stake * winnerPrice;
+				}
+				if ((loserProbability > 0.5 || betOnOutsider) && loserPrice != null && loserProbability > 1.0 / loserPrice) {
+					beatingPrice = true;
+					stake = stake(loserProbability, loserPrice);
+				}
+			}
+		}
+		return new MatchVerification(predictable, predicted, winnerProbability, withPrice, beatingPrice, profitable, stake, return_);
+	}
+
+	private double stake(double probability, double price) {
+		return kellyStake ? (probability * price - 1.0) / (price - 1.0) : 1.0;
+	}
+
+	public static final class MatchVerification {
+
+		public final boolean predictable;
+		public final boolean predicted;
+		public final double winnerProbability; // 0.0 if below predictability threshold
+		public final boolean withPrice;
+		public final boolean beatingPrice;
+		public final boolean profitable;
+		public final double stake;
+		public final double return_;
+
+		private MatchVerification(boolean predictable, boolean predicted, double winnerProbability, boolean withPrice, boolean beatingPrice, boolean profitable, double stake, double return_) {
+			this.predictable = predictable;
+			this.predicted = predicted;
+			this.winnerProbability = winnerProbability;
+			this.withPrice = withPrice;
+			this.beatingPrice = beatingPrice;
+			this.profitable = profitable;
+			this.stake = stake;
+			this.return_ = return_;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package org.strangeforest.tcb.stats.controller;
+
+import java.util.*;
+
+import org.junit.*;
+import org.junit.runner.*;
+import org.mockito.*;
+import org.mockito.junit.*;
+import org.springframework.test.web.servlet.*;
+import org.strangeforest.tcb.stats.model.forecast.*;
+import org.strangeforest.tcb.stats.service.*;
+import org.strangeforest.tcb.stats.util.*;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class InProgressEventsResourceTest {
+
+	@InjectMocks private InProgressEventsResource resource;
+	@Mock private TournamentForecastService forecastService;
+	@Mock private InProgressMatchForecastService inProgressMatchForecastService;
+	@Mock private WhatIfForecaster forecaster;
+
+	private MockMvc mockMvc;
+
+	@Before
+	public void setUp() {
+		mockMvc = standaloneSetup(resource).build();
+	}
+
+	@Test
+	public void whatIfForecastIsReturned() throws Exception {
+		when(forecastService.getInProgressEventWhatIfForecaster(1)).thenReturn(forecaster);
+		when(forecaster.forecast(any())).thenReturn(new WhatIfForecast(1, Collections.singletonList(new WhatIfForecast.PlayerResult(9, "P9", KOResult.SF, 0.5, null))));
+
+		mockMvc.perform(get("/inProgressEventWhatIf").param("inProgressEventId", "1").param("luckyLoser", "8:9").param("winner", "1:QF"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.playerResults[0].name").value("P9"));
+	}
+
+	@Test
+	public void invalidParameterIsBadRequest() throws Exception {
+		mockMvc.perform(get("/inProgressEventWhatIf").param("inProgressEventId", "1").param("winner", "1"))
+			.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/inProgressEventWhatIf").param("inProgressEventId", "1").param("loser", "1:X"))
+			.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/inProgressEventWhatIf").param("inProgressEventId", "1").param("luckyLoser", "8:X"))
+			.andExpect(status().isBadRequest());
+
+		verifyZeroInteractions(forecastService);
+	}
+
+	@Test
+	public void invalidScenarioIsBadRequest() throws Exception {
+		when(forecastService.getInProgressEventWhatIfForecaster(1)).thenReturn(forecaster);
+		when(forecaster.forecast(any())).thenThrow(new InvalidArgumentException("Unknown lucky loser: 10"));
+
+		mockMvc.perform(get("/inProgressEventWhatIf").param("inProgressEventId", "1").param("luckyLoser", "8:10"))
+			.andExpect(status().isBadRequest());
+	}
+}
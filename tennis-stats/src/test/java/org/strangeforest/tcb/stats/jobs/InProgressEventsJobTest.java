@@ -0,0 +1,49 @@
+package org.strangeforest.tcb.stats.jobs;
+
+import java.util.*;
+
+import org.junit.*;
+import org.junit.runner.*;
+import org.mockito.*;
+import org.mockito.junit.*;
+import org.strangeforest.tcb.stats.service.*;
+
+import static java.util.Arrays.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class InProgressEventsJobTest {
+
+	@InjectMocks private InProgressEventsJob job;
+	@Mock private DataLoadCommand dataLoadCommand;
+	@Mock private DataService dataService;
+	@Mock private MatchPredictionService matchPredictionService;
+
+	@Before
+	public void setUp() {
+		when(matchPredictionService.getInProgressPlayerIds()).thenReturn(new HashSet<>(asList(1, 2)), new HashSet<>(asList(2, 3)));
+	}
+
+	@Test
+	public void reloadInvalidatesPlayersBeforeAndAfterReload() {
+		when(dataLoadCommand.execute(eq("ReloadInProgressEvents"), any())).thenReturn(0);
+
+		job.reloadInProgressEvents();
+
+		verify(dataService).evictGlobal("InProgressEvents");
+		verify(dataService).clearCaches("InProgressEvent.*", new HashSet<>(asList(1, 2, 3)));
+		verifyNoMoreInteractions(dataService);
+	}
+
+	@Test
+	public void failedReloadDoesNotInvalidatePlayers() {
+		when(dataLoadCommand.execute(eq("ReloadInProgressEvents"), any())).thenReturn(1);
+
+		job.reloadInProgressEvents();
+
+		verifyZeroInteractions(dataService);
+		verify(matchPredictionService).getInProgressPlayerIds();
+		verifyNoMoreInteractions(matchPredictionService);
+	}
+}
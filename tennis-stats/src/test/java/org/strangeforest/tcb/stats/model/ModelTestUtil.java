@@ -0,0 +1,31 @@
+package org.strangeforest.tcb.stats.model;
+
+import java.util.*;
+
+import org.strangeforest.tcb.stats.model.forecast.KOForecaster.*;
+import org.strangeforest.tcb.stats.model.prediction.RankingIndex.*;
+
+// Shared test fixtures, win probabilities are Elo-like with 10 points scale, so lower player id is the favourite
+public abstract class ModelTestUtil {
+
+	public static final WinProbabilities ELO = (playerId1, playerId2, round) -> 1.0 / (1.0 + Math.pow(10.0, (playerId1 - playerId2) / 10.0));
+
+	public static Map<EloType, Integer> eloRatings(Integer overall, Integer recent, Integer hard, Integer clay, Integer grass, Integer carpet, Integer outdoor, Integer indoor, Integer set) {
+		Map<EloType, Integer> eloRatings = new EnumMap<>(EloType.class);
+		putIfNotNull(eloRatings, EloType.OVERALL, overall);
+		putIfNotNull(eloRatings, EloType.RECENT, recent);
+		putIfNotNull(eloRatings, EloType.HARD, hard);
+		putIfNotNull(eloRatings, EloType.CLAY, clay);
+		putIfNotNull(eloRatings, EloType.GRASS, grass);
+		putIfNotNull(eloRatings, EloType.CARPET, carpet);
+		putIfNotNull(eloRatings, EloType.OUTDOOR, outdoor);
+		putIfNotNull(eloRatings, EloType.INDOOR, indoor);
+		putIfNotNull(eloRatings, EloType.SET, set);
+		return eloRatings;
+	}
+
+	private static void putIfNotNull(Map<EloType, Integer> eloRatings, EloType type, Integer rating) {
+		if (rating != null)
+			eloRatings.put(type, rating);
+	}
+}
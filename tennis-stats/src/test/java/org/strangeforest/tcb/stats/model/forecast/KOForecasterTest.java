@@ -0,0 +1,123 @@
+package org.strangeforest.tcb.stats.model.forecast;
+
+import java.util.*;
+
+import org.assertj.core.data.*;
+import org.junit.*;
+import org.strangeforest.tcb.stats.model.core.*;
+import org.strangeforest.tcb.stats.model.forecast.KOForecaster.*;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.strangeforest.tcb.stats.model.ModelTestUtil.*;
+
+public class KOForecasterTest {
+
+	private static final Offset<Double> OFFSET = Offset.offset(1E-9);
+
+	private static final WinProbabilities EQUAL = (playerId1, playerId2, round) -> playerId1 > 0 && playerId2 > 0 ? 0.5 : 0.25;
+
+	@Test
+	public void simpleTournament() {
+		KOForecaster forecaster = new KOForecaster(KOResult.SF, new int[] {1, 2, 3, 4}, new int[] {1, 0, 0, 2}, false, true, EQUAL);
+		List<PlayerResult> results = forecaster.forecast();
+
+		PlayerResult result = result(results, 1, KOResult.W);
+		assertThat(result.probability).isCloseTo(0.25, OFFSET);
+		assertThat(result.getAvgDrawProbability()).isCloseTo(0.25, OFFSET);
+		assertThat(result.getNoDrawProbability()).isCloseTo(0.25, OFFSET);
+	}
+
+	@Test
+	public void tournamentWithByes() {
+		KOForecaster forecaster = new KOForecaster(KOResult.QF, new int[] {1, 0, 3, 4, 5, 6, 0, 8}, new int[] {1, 0, 0, 0, 0, 0, 0, 2}, false, true, EQUAL);
+		List<PlayerResult> results = forecaster.forecast();
+
+		assertThat(result(results, 1, KOResult.SF).probability).isCloseTo(1.0, OFFSET);
+		assertThat(result(results, 1, KOResult.W).probability).isCloseTo(0.25, OFFSET);
+		assertThat(result(results, 3, KOResult.W).probability).isCloseTo(0.125, OFFSET);
+		assertThat(forecaster.getByeCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void roundProbabilitiesSumToRemainingPlayers() {
+		int[] entries = new int[32];
+		int[] seeds = new int[32];
+		for (int slot = 0; slot < entries.length; slot++) {
+			entries[slot] = slot + 1;
+			if (slot % 4 == 0)
+				seeds[slot] = slot / 4 + 1;
+		}
+		List<PlayerResult> results = new KOForecaster(KOResult.R32, entries, seeds, false, true, ELO).forecast();
+
+		for (KOResult result = KOResult.R16; ; result = result.next()) {
+			KOResult aResult = result;
+			int remaining = 1 << (KOResult.W.ordinal() - result.ordinal());
+			assertThat(results.stream().filter(r -> r.result == aResult).mapToDouble(r -> r.probability).sum()).isCloseTo(remaining, OFFSET);
+			assertThat(results.stream().filter(r -> r.result == aResult).mapToDouble(PlayerResult::getAvgDrawProbability).sum()).isCloseTo(remaining, OFFSET);
+			assertThat(results.stream().filter(r -> r.result == aResult).mapToDouble(PlayerResult::getNoDrawProbability).sum()).isCloseTo(remaining, OFFSET);
+			if (!result.hasNext())
+				break;
+		}
+		assertThat(result(results, 1, KOResult.W).probability).isGreaterThan(result(results, 2, KOResult.W).probability);
+	}
+
+	@Test
+	public void currentForecastAccountsForPlayedMatches() {
+		KOForecaster forecaster = new KOForecaster(KOResult.QF, new int[] {1, 2, 3, 4, 5, 6, 7, -1}, new int[8], true, false, (playerId1, playerId2, round) -> 0.5);
+		forecaster.setMatchResult(1, KOResult.QF, true);
+		forecaster.setMatchResult(2, KOResult.QF, false);
+		forecaster.setMatchResult(3, KOResult.QF, true);
+		forecaster.setMatchResult(4, KOResult.QF, false);
+		forecaster.setMatchResult(1, KOResult.SF, false);
+		forecaster.setMatchResult(3, KOResult.SF, true);
+		List<PlayerResult> results = forecaster.forecast();
+
+		assertThat(result(results, 1, KOResult.SF).probability).isEqualTo(1.0);
+		assertThat(result(results, 2, KOResult.SF).probability).isEqualTo(0.0);
+		assertThat(result(results, 1, KOResult.F).probability).isEqualTo(0.0);
+		assertThat(result(results, 3, KOResult.F).probability).isEqualTo(1.0);
+		assertThat(result(results, 3, KOResult.W).probability).isCloseTo(0.5, OFFSET);
+		assertThat(results.stream().noneMatch(r -> r.playerId == 2 && r.result == KOResult.F)).isTrue();
+		assertThat(results.stream().noneMatch(r -> r.playerId <= 0)).isTrue();
+		assertThat(result(results, 7, KOResult.SF).probability).isCloseTo(0.5, OFFSET);
+	}
+
+	@Test
+	public void incrementalForecastReusesUnchangedSubBrackets() {
+		int[] entries = new int[16];
+		for (int slot = 0; slot < entries.length; slot++)
+			entries[slot] = slot + 1;
+		List<PlayerResult> previous = new KOForecaster(KOResult.R16, entries, new int[16], true, false, ELO).forecast();
+
+		int[] fullCalls = new int[1];
+		KOForecaster full = new KOForecaster(KOResult.R16, entries, new int[16], true, false, (playerId1, playerId2, round) -> {
+			fullCalls[0]++;
+			return ELO.getWinProbability(playerId1, playerId2, round);
+		});
+		full.setMatchResult(1, KOResult.R16, false);
+		full.setMatchResult(2, KOResult.R16, true);
+		List<PlayerResult> expected = full.forecast();
+
+		int[] incrementalCalls = new int[1];
+		KOForecaster incremental = new KOForecaster(KOResult.R16, entries, new int[16], true, false, (playerId1, playerId2, round) -> {
+			incrementalCalls[0]++;
+			return ELO.getWinProbability(playerId1, playerId2, round);
+		});
+		incremental.setMatchResult(1, KOResult.R16, false);
+		incremental.setMatchResult(2, KOResult.R16, true);
+		for (PlayerResult result : previous)
+			incremental.setPreviousProbability(result.playerId, result.result, result.probability);
+		incremental.setChangedMatch(1, KOResult.R16);
+		incremental.setChangedMatch(2, KOResult.R16);
+		List<PlayerResult> actual = incremental.forecast();
+
+		assertThat(actual).hasSameSizeAs(expected);
+		for (PlayerResult result : expected)
+			assertThat(result(actual, result.playerId, result.result).probability).as("%d %s", result.playerId, result.result).isCloseTo(result.probability, OFFSET);
+		assertThat(incrementalCalls[0]).isLessThan(fullCalls[0]);
+	}
+
+	private static PlayerResult result(List<PlayerResult> results, int playerId, KOResult result) {
+		return results.stream().filter(r -> r.playerId == playerId && r.result == result).findFirst().orElseThrow(() -> new AssertionError("No result for " + playerId + " " + result));
+	}
+}
@@ -0,0 +1,101 @@
+package org.strangeforest.tcb.stats.model.forecast;
+
+import java.util.*;
+
+import org.junit.*;
+import org.strangeforest.tcb.stats.model.forecast.KOForecaster.*;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.strangeforest.tcb.stats.model.ModelTestUtil.*;
+
+public class KOSimulatorTest {
+
+	private static final int SIMULATIONS = 200000;
+
+	@Test
+	public void simulationAgreesWithAnalyticForecast() {
+		int[] entries = new int[32];
+		for (int slot = 0; slot < entries.length; slot++)
+			entries[slot] = slot % 8 == 7 ? 0 : slot + 1;
+		KOForecaster forecaster = new KOForecaster(KOResult.R32, entries, new int[32], false, false, ELO);
+		List<PlayerResult> expected = forecaster.forecast();
+		KOSimulation simulation = new KOSimulator(forecaster).simulate(SIMULATIONS, 1L);
+
+		for (PlayerResult result : expected) {
+			double probability = simulation.getProbability(result.playerId, result.result);
+			double standardError = Math.max(simulation.getStandardError(result.playerId, result.result), 1.0 / SIMULATIONS);
+			assertThat(Math.abs(probability - result.probability)).as("%d %s", result.playerId, result.result).isLessThan(4.0 * standardError);
+		}
+		for (KOSimulation.PlayerResult result : simulation.getResults()) {
+			assertThat(result.lowerBound).isBetween(0.0, result.probability);
+			assertThat(result.upperBound).isBetween(result.probability, 1.0);
+		}
+	}
+
+	@Test
+	public void simulationIsDeterministicForSeed() {
+		KOForecaster forecaster = new KOForecaster(KOResult.QF, new int[] {1, 2, 3, 4, 5, 6, 7, 8}, new int[8], false, false, ELO);
+
+		KOSimulation simulation1 = new KOSimulator(forecaster).simulate(50000, 42L);
+		KOSimulation simulation2 = new KOSimulator(forecaster).simulate(50000, 42L);
+
+		for (int playerId = 1; playerId <= 8; playerId++)
+			assertThat(simulation1.getProbability(playerId, KOResult.W)).isEqualTo(simulation2.getProbability(playerId, KOResult.W));
+	}
+
+	@Test
+	public void playedMatchesAndModelAreApplied() {
+		KOForecaster forecaster = new KOForecaster(KOResult.QF, new int[] {1, 2, 3, 4, 5, 6, 7, 8}, new int[8], true, false, (playerId1, playerId2, round) -> 0.5);
+		forecaster.setMatchResult(2, KOResult.QF, true);
+		forecaster.setMatchResult(1, KOResult.QF, false);
+
+		KOSimulation simulation = new KOSimulator(forecaster).simulate(20000, 1L);
+		assertThat(simulation.getProbability(1, KOResult.SF)).isEqualTo(0.0);
+		assertThat(simulation.getProbability(2, KOResult.SF)).isEqualTo(1.0);
+
+		// Player 1 wins while its win count matches the round, which holds only if player state is reset for each simulated draw
+		KOSimulator.MatchModel model = new KOSimulator.MatchModel() {
+			@Override public double winProbability(int round, int player1, int player2, double probability, double[] playerState) {
+				return playerState[player1] == round ? 1.0 : 0.0;
+			}
+			@Override public void matchPlayed(int round, int winner, int loser, double[] playerState) {
+				playerState[winner]++;
+			}
+		};
+		KOForecaster fresh = new KOForecaster(KOResult.QF, new int[] {1, 2, 3, 4, 5, 6, 7, 8}, new int[8], false, false, (playerId1, playerId2, round) -> 0.5);
+		assertThat(new KOSimulator(fresh, model).simulate(20000, 1L).getProbability(1, KOResult.W)).isEqualTo(1.0);
+	}
+
+	@Test
+	public void eliminatedPlayersAreReportedAsInForecast() {
+		KOForecaster forecaster = new KOForecaster(KOResult.QF, new int[] {1, 2, 3, 4, 5, 6, 7, 8}, new int[8], true, false, ELO);
+		forecaster.setMatchResult(2, KOResult.QF, true);
+		forecaster.setMatchResult(1, KOResult.QF, false);
+
+		Set<String> expected = new HashSet<>();
+		for (PlayerResult result : forecaster.forecast())
+			expected.add(result.playerId + ":" + result.result);
+		Set<String> simulated = new HashSet<>();
+		for (KOSimulation.PlayerResult result : new KOSimulator(forecaster).simulate(1000, 1L).getResults())
+			simulated.add(result.playerId + ":" + result.result);
+
+		assertThat(simulated).isEqualTo(expected).contains("1:SF").doesNotContain("1:F");
+	}
+
+	@Test
+	public void decidedPairsAreNotPredicted() {
+		Set<String> predicted = new HashSet<>();
+		KOForecaster forecaster = new KOForecaster(KOResult.QF, new int[] {1, 2, 3, 4, 5, 6, 7, 8}, new int[8], true, false, (playerId1, playerId2, round) -> {
+			predicted.add(playerId1 + ":" + playerId2 + ":" + round);
+			return 0.5;
+		});
+		forecaster.setMatchResult(2, KOResult.QF, true);
+		forecaster.setMatchResult(1, KOResult.QF, false);
+
+		new KOSimulator(forecaster).simulate(1000, 1L);
+
+		assertThat(predicted).noneMatch(pair -> pair.startsWith("1:") || pair.contains(":1:"));
+		assertThat(predicted).noneMatch(pair -> pair.endsWith(":QF") && (pair.startsWith("2:") || pair.contains(":2:")));
+		assertThat(predicted).contains("2:3:SF", "2:4:SF", "3:4:QF");
+	}
+}
@@ -0,0 +1,108 @@
+package org.strangeforest.tcb.stats.model.forecast;
+
+import java.util.*;
+
+import org.assertj.core.data.*;
+import org.junit.*;
+import org.strangeforest.tcb.stats.model.forecast.KOForecaster.*;
+import org.strangeforest.tcb.stats.model.prediction.*;
+import org.strangeforest.tcb.stats.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.strangeforest.tcb.stats.model.ModelTestUtil.*;
+
+public class WhatIfForecasterTest {
+
+	private static final Offset<Double> OFFSET = Offset.offset(1E-9);
+
+	private static final int[] ENTRIES = {1, 2, 3, 4, 5, 6, 7, 8};
+
+	private int fallbackCalls;
+
+	@Test
+	public void emptyScenarioMatchesCurrentForecast() {
+		WhatIfForecaster forecaster = forecaster();
+		forecaster.setMatchResult(1, KOResult.QF, true);
+		forecaster.setMatchResult(2, KOResult.QF, false);
+		prefill(forecaster);
+
+		KOForecaster expected = new KOForecaster(KOResult.QF, ENTRIES, new int[8], true, false, ELO);
+		expected.setMatchResult(1, KOResult.QF, true);
+		expected.setMatchResult(2, KOResult.QF, false);
+		WhatIfForecast forecast = forecaster.forecast(new WhatIfScenario());
+
+		for (PlayerResult result : expected.forecast()) {
+			WhatIfForecast.PlayerResult whatIf = forecast.getPlayerResult(result.playerId, result.result);
+			assertThat(whatIf.getProbability()).isCloseTo(result.probability, OFFSET);
+			assertThat(whatIf.getCurrentProbability()).isCloseTo(result.probability, OFFSET);
+			assertThat(whatIf.getName()).isEqualTo("P" + result.playerId);
+		}
+		assertThat(fallbackCalls).isZero();
+	}
+
+	@Test
+	public void forcedResultsAndWithdrawalsMoveProbabilityToOpponents() {
+		WhatIfForecaster forecaster = forecaster();
+		forecaster.setMatchResult(1, KOResult.QF, true);
+		forecaster.setMatchResult(2, KOResult.QF, false);
+		prefill(forecaster);
+
+		WhatIfForecast forecast = forecaster.forecast(new WhatIfScenario().forceResult(1, KOResult.SF, false).withdraw(5));
+
+		assertThat(forecast.getPlayerResult(1, KOResult.F).getProbability()).isEqualTo(0.0);
+		assertThat(forecast.getPlayerResult(1, KOResult.F).getCurrentProbability()).isGreaterThan(0.0);
+		assertThat(forecast.getPlayerResult(3, KOResult.F).getProbability() + forecast.getPlayerResult(4, KOResult.F).getProbability()).isCloseTo(1.0, OFFSET);
+		assertThat(forecast.getPlayerResult(5, KOResult.SF).getProbability()).isEqualTo(0.0);
+		assertThat(forecast.getPlayerResult(6, KOResult.SF).getProbability()).isCloseTo(1.0, OFFSET);
+		assertThat(forecast.getPlayerResults().stream().filter(r -> r.getResult() == KOResult.W).mapToDouble(WhatIfForecast.PlayerResult::getProbability).sum()).isCloseTo(1.0, OFFSET);
+		assertThat(fallbackCalls).isZero();
+	}
+
+	@Test
+	public void luckyLoserReplacesWithdrawnPlayer() {
+		WhatIfForecaster forecaster = forecaster();
+		prefill(forecaster);
+
+		WhatIfForecast forecast = forecaster.forecast(new WhatIfScenario().substitute(8, 9));
+
+		assertThat(forecast.getPlayerResult(8, KOResult.SF)).isNull();
+		WhatIfForecast.PlayerResult luckyLoser = forecast.getPlayerResult(9, KOResult.SF);
+		assertThat(luckyLoser.getProbability()).isCloseTo(ELO.getWinProbability(9, 7, null), OFFSET);
+		assertThat(luckyLoser.getCurrentProbability()).isNull();
+		assertThat(luckyLoser.getName()).isEqualTo("P9");
+		assertThat(fallbackCalls).isPositive();
+	}
+
+	@Test
+	public void invalidScenariosAreRejected() {
+		WhatIfForecaster forecaster = forecaster();
+		forecaster.setMatchResult(1, KOResult.QF, true);
+		forecaster.setMatchResult(2, KOResult.QF, false);
+		prefill(forecaster);
+
+		assertThatThrownBy(() -> forecaster.forecast(new WhatIfScenario().forceResult(1, KOResult.QF, false))).isInstanceOf(InvalidArgumentException.class);
+		assertThatThrownBy(() -> forecaster.forecast(new WhatIfScenario().withdraw(2))).isInstanceOf(InvalidArgumentException.class);
+		assertThatThrownBy(() -> forecaster.forecast(new WhatIfScenario().substitute(1, 9))).isInstanceOf(InvalidArgumentException.class);
+		assertThatThrownBy(() -> forecaster.forecast(new WhatIfScenario().forceResult(3, KOResult.QF, true).forceResult(4, KOResult.QF, true))).isInstanceOf(InvalidArgumentException.class);
+		assertThatThrownBy(() -> forecaster.forecast(new WhatIfScenario().withdraw(10))).isInstanceOf(InvalidArgumentException.class);
+		assertThatThrownBy(() -> forecaster.forecast(new WhatIfScenario().substitute(8, 10))).isInstanceOf(InvalidArgumentException.class);
+	}
+
+	private WhatIfForecaster forecaster() {
+		String[] names = Arrays.stream(ENTRIES).mapToObj(playerId -> "P" + playerId).toArray(String[]::new);
+		return new WhatIfForecaster(1, KOResult.QF, ENTRIES, new int[8], names, (playerId1, playerId2, round) -> {
+			fallbackCalls++;
+			return ELO.getWinProbability(playerId1, playerId2, round);
+		}, playerId -> playerId <= 9 ? "P" + playerId : null);
+	}
+
+	private static void prefill(WhatIfForecaster forecaster) {
+		for (KOResult result = KOResult.QF; result != KOResult.W; result = result.next()) {
+			List<Matchup> matchups = forecaster.getMatchups(result);
+			MatchupPredictions predictions = new MatchupPredictions(matchups.stream().flatMapToInt(m -> Arrays.stream(new int[] {m.getPlayerId1(), m.getPlayerId2()})).distinct().toArray());
+			for (Matchup matchup : matchups)
+				predictions.setWinProbability(predictions.getPlayerIndex(matchup.getPlayerId1()), predictions.getPlayerIndex(matchup.getPlayerId2()), ELO.getWinProbability(matchup.getPlayerId1(), matchup.getPlayerId2(), null));
+			forecaster.setMatchupPredictions(result, predictions);
+		}
+	}
+}
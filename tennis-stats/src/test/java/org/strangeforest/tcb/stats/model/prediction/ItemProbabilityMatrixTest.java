@@ -0,0 +1,93 @@
+package org.strangeforest.tcb.stats.model.prediction;
+
+import java.util.*;
+
+import org.assertj.core.data.*;
+import org.junit.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ItemProbabilityMatrixTest {
+
+	private static final Offset<Double> OFFSET = Offset.offset(1E-12);
+
+	@Test
+	public void matrixEvaluationMatchesAreaCombination() {
+		Random random = new Random(11L);
+		int rows = 20;
+		PredictionConfig unitConfig = ItemProbabilityMatrix.unitWeights(PredictionConfig.defaultConfig());
+		ItemProbabilityMatrix matrix = new ItemProbabilityMatrix(rows);
+		List<Map<PredictionItem, double[]>> itemData = new ArrayList<>();
+		for (int row = 0; row < rows; row++) {
+			Map<PredictionItem, double[]> data = randomItemData(random);
+			itemData.add(data);
+			matrix.set(row, predict(data, unitConfig), unitConfig);
+		}
+
+		List<PredictionConfig> configs = new ArrayList<>(Arrays.asList(PredictionConfig.defaultConfig(), PredictionConfig.equalWeights(), PredictionConfig.areaEqualWeights(PredictionArea.H2H)));
+		for (int i = 0; i < 10; i++)
+			configs.add(randomConfig(random));
+		for (PredictionConfig config : configs) {
+			double[] itemWeights = ItemProbabilityMatrix.itemWeights(config);
+			for (int row = 0; row < rows; row++) {
+				MatchPrediction prediction = predict(itemData.get(row), config);
+				assertThat(matrix.winProbability1(row, itemWeights)).isCloseTo(prediction.getWinProbability1(), OFFSET);
+				assertThat(matrix.winProbability2(row, itemWeights)).isCloseTo(prediction.getWinProbability2(), OFFSET);
+				assertThat(matrix.weight(row, itemWeights) / config.getTotalAreasWeight()).isCloseTo(prediction.getPredictability1(), OFFSET);
+			}
+		}
+	}
+
+	@Test
+	public void emptyPredictionIsTie() {
+		PredictionConfig config = PredictionConfig.defaultConfig();
+		ItemProbabilityMatrix matrix = new ItemProbabilityMatrix(1);
+		matrix.set(0, new MatchPrediction(config.getTotalAreasWeight()), config);
+
+		double[] itemWeights = ItemProbabilityMatrix.itemWeights(config);
+		assertThat(matrix.winProbability1(0, itemWeights)).isEqualTo(0.5);
+		assertThat(matrix.weight(0, itemWeights)).isEqualTo(0.0);
+	}
+
+	// Mirrors area combination in MatchPredictionUtil, with item weights scaled by data weight as predictors do
+	private static MatchPrediction predict(Map<PredictionItem, double[]> itemData, PredictionConfig config) {
+		MatchPrediction prediction = new MatchPrediction(config.getTotalAreasWeight());
+		for (PredictionArea area : PredictionArea.values()) {
+			if (config.isAreaEnabled(area)) {
+				MatchPrediction areaPrediction = new MatchPrediction(config.getTotalAreasWeight());
+				for (PredictionItem item : area.getItems()) {
+					double[] data = itemData.get(item);
+					if (data != null) {
+						double weight = config.getItemWeight(item) * data[0];
+						areaPrediction.addItemProbability1(item, weight, data[1]);
+						areaPrediction.addItemProbability2(item, weight, data[2]);
+					}
+				}
+				if (!areaPrediction.isEmpty())
+					prediction.addAreaProbabilities(areaPrediction, config.getAreaAdjustedWeight(area));
+			}
+		}
+		return prediction;
+	}
+
+	private static Map<PredictionItem, double[]> randomItemData(Random random) {
+		Map<PredictionItem, double[]> itemData = new HashMap<>();
+		for (PredictionItem item : ItemProbabilityMatrix.ITEMS) {
+			if (random.nextInt(3) > 0) {
+				double p1 = random.nextDouble();
+				itemData.put(item, new double[] {0.1 + random.nextDouble(), p1, random.nextBoolean() ? 1.0 - p1 : random.nextDouble()});
+			}
+		}
+		return itemData;
+	}
+
+	private static PredictionConfig randomConfig(Random random) {
+		PredictionConfig config = PredictionConfig.defaultConfig();
+		for (PredictionArea area : PredictionArea.values()) {
+			config = new PredictionConfig(config, area, random.nextInt(4));
+			for (PredictionItem item : area.getItems())
+				config = new PredictionConfig(config, item, random.nextInt(4));
+		}
+		return config;
+	}
+}
@@ -0,0 +1,42 @@
+package org.strangeforest.tcb.stats.model.prediction;
+
+import org.strangeforest.tcb.stats.model.core.*;
+
+import com.google.common.collect.*;
+
+// Reference filters of the former filter-based match predictors, kept to verify mask-based predictors against
+abstract class MatchHistoryFilters {
+
+	static MatchHistoryFilter isSurface(Surface surface) {
+		return (history, matches) -> matches.and(history.getSurfaceMask(surface));
+	}
+
+	static MatchHistoryFilter isLevel(TournamentLevel level) {
+		return (history, matches) -> matches.and(history.getLevelMask(level));
+	}
+
+	static MatchHistoryFilter isTournament(Integer tournamentId) {
+		return (history, matches) -> {
+			for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+				if (tournamentId == null || history.getTournamentId(i) != tournamentId)
+					matches.clear(i);
+			}
+		};
+	}
+
+	static MatchHistoryFilter isRound(Round round) {
+		return (history, matches) -> matches.and(history.getRoundMask(round));
+	}
+
+	static MatchHistoryFilter isOpponentRankInRange(Range<Integer> rankRange) {
+		return (history, matches) -> matches.and(history.getOpponentRankMask(rankRange));
+	}
+
+	static MatchHistoryFilter isOpponentHand(String hand) {
+		return (history, matches) -> matches.and(history.getOpponentHandMask(hand));
+	}
+
+	static MatchHistoryFilter isOpponentBackhand(String backhand) {
+		return (history, matches) -> matches.and(history.getOpponentBackhandMask(backhand));
+	}
+}
@@ -0,0 +1,105 @@
+package org.strangeforest.tcb.stats.model.prediction;
+
+import java.time.*;
+import java.util.*;
+
+import org.junit.*;
+import org.strangeforest.tcb.stats.model.core.*;
+
+import com.google.common.collect.*;
+
+import static java.util.Arrays.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.strangeforest.tcb.stats.model.core.Round.*;
+import static org.strangeforest.tcb.stats.model.core.Surface.*;
+import static org.strangeforest.tcb.stats.model.core.TournamentLevel.*;
+import static org.strangeforest.tcb.stats.model.prediction.MatchDataUtil.*;
+import static org.strangeforest.tcb.stats.model.prediction.MatchHistoryFilters.*;
+
+public class MatchHistoryTest {
+
+	private static final LocalDate DATE = LocalDate.of(2018, 7, 1);
+
+	private final MatchHistory history = new MatchHistory(asList(
+		match(DATE.minusYears(3), 1, 10, false, GRAND_SLAM, GRASS, R128, 100, 5, "R", null, true),
+		match(DATE.minusYears(1), 2, 20, false, MASTERS, HARD, QF, 101, 60, "L", "Q", false),
+		match(DATE.minusMonths(1), 3, 30, false, ATP_250, CLAY, F, 100, 3, "R", null, true),
+		match(DATE, 4, 40, true, ATP_500, HARD, R32, 102, null, null, null, true),
+		match(DATE, 4, 40, true, ATP_500, HARD, R16, 103, 12, "L", null, false),
+		match(DATE, 5, 50, false, ATP_250, HARD, R32, 104, 8, "R", null, true)
+	));
+
+	@Test
+	public void cutoffIncludesOnlyEarlierRoundsOfSameEvent() {
+		assertThat(indexes(history.before(DATE, 40, true, QF).select(ALWAYS_TRUE))).containsExactly(0, 1, 2, 3, 4);
+		assertThat(indexes(history.before(DATE, 40, true, R16).select(ALWAYS_TRUE))).containsExactly(0, 1, 2, 3);
+		assertThat(indexes(history.before(DATE, 40, false, QF).select(ALWAYS_TRUE))).containsExactly(0, 1, 2);
+		assertThat(indexes(history.before(DATE, null, true, null).select(ALWAYS_TRUE))).containsExactly(0, 1, 2);
+		assertThat(indexes(history.before(DATE.plusDays(1), null, false, null).select(ALWAYS_TRUE))).containsExactly(0, 1, 2, 3, 4, 5);
+		assertThat(indexes(history.before(DATE.minusYears(5), 10, false, F).select(ALWAYS_TRUE))).isEmpty();
+	}
+
+	@Test
+	public void cutoffViewSize() {
+		assertThat(history.before(DATE, 40, true, QF).size()).isEqualTo(5);
+		assertThat(history.before(DATE, 50, false, F).size()).isEqualTo(4);
+		assertThat(history.before(DATE.minusMonths(1), null, false, null).size()).isEqualTo(2);
+		assertThat(history.before(DATE.minusMonths(1).plusDays(1), null, false, null).size()).isEqualTo(3);
+	}
+
+	@Test
+	public void filtersMatchPredicates() {
+		MatchHistoryView view = history.before(DATE.plusDays(1), null, false, null);
+
+		assertThat(indexes(view.select(isSurface(HARD)))).containsExactly(1, 3, 4, 5);
+		assertThat(indexes(view.select(isSurface(null)))).isEmpty();
+		assertThat(indexes(view.select(isLevel(ATP_500)))).containsExactly(2, 3, 4, 5);
+		assertThat(indexes(view.select(isRound(R64)))).containsExactly(0, 3, 4, 5);
+		assertThat(indexes(view.select(isTournament(4)))).containsExactly(3, 4);
+		assertThat(indexes(view.select(isOpponent(100)))).containsExactly(0, 2);
+		assertThat(indexes(view.select(isOpponentRankInRange(Range.closed(1, 5))))).containsExactly(0, 2);
+		assertThat(indexes(view.select(isOpponentHand("L")))).containsExactly(1, 4);
+		assertThat(indexes(view.select(isOpponentBackhand("2")))).containsExactly(0, 2, 3, 5);
+		assertThat(indexes(view.select(isOpponentQualifier()))).containsExactly(1);
+		assertThat(indexes(view.select(isRecent(DATE, Period.ofYears(1))))).containsExactly(1, 2, 3, 4, 5);
+		assertThat(indexes(view.select(isSurface(HARD).and(isRecent(DATE, Period.ofMonths(6)))))).containsExactly(3, 4, 5);
+	}
+
+	@Test
+	public void columnsAreMapped() {
+		assertThat(history.size()).isEqualTo(6);
+		assertThat(history.getDate(1)).isEqualTo(DATE.minusYears(1));
+		assertThat(history.getOpponentId(2)).isEqualTo(100);
+		assertThat(history.getPMatches(0)).isEqualTo(1);
+		assertThat(history.getOMatches(1)).isEqualTo(1);
+		assertThat(history.getPSets(0)).isEqualTo(2);
+		assertThat(history.getOSets(1)).isEqualTo(2);
+		assertThat(history.getSets(1)).isEqualTo(3);
+		assertThat(history.getOpponentEloScore(0)).isEqualTo(300.0);
+		assertThat(history.getOpponentEloScore(1)).isEqualTo(-300.0);
+		assertThat(history.getOpponentEloScore(3)).isEqualTo(0.0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unsortedMatchDataIsRejected() {
+		new MatchHistory(asList(
+			match(DATE, 1, 10, false, MASTERS, HARD, F, 100, 1, "R", null, true),
+			match(DATE.minusDays(1), 1, 10, false, MASTERS, HARD, SF, 101, 2, "R", null, true)
+		));
+	}
+
+	private static MatchData match(LocalDate date, int tournamentId, int tournamentEventId, boolean inProgress, TournamentLevel level, Surface surface, Round round,
+	                               int opponentId, Integer opponentRank, String opponentHand, String opponentEntry, boolean won) {
+		return new MatchData(
+			date, tournamentId, tournamentEventId, inProgress, level, surface, round,
+			opponentId, opponentRank, opponentRank != null ? 1800 : null, opponentHand, "L".equals(opponentHand) ? "1" : "2", opponentEntry,
+			won ? 1 : 0, won ? 0 : 1, won ? 2 : 1, won ? 1 : 2
+		);
+	}
+
+	private static List<Integer> indexes(BitSet matches) {
+		List<Integer> indexes = new ArrayList<>();
+		matches.stream().forEach(indexes::add);
+		return indexes;
+	}
+}
@@ -0,0 +1,267 @@
+package org.strangeforest.tcb.stats.model.prediction;
+
+import java.time.*;
+import java.util.*;
+import java.util.function.*;
+
+import org.assertj.core.data.*;
+import org.junit.*;
+import org.strangeforest.tcb.stats.model.core.*;
+
+import com.google.common.collect.*;
+
+import static java.lang.Math.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.strangeforest.tcb.stats.model.prediction.MatchDataUtil.*;
+import static org.strangeforest.tcb.stats.model.prediction.MatchHistoryFilters.*;
+
+public class MatchPredictorEquivalenceTest {
+
+	private static final int PLAYER_ID_1 = 1;
+	private static final int PLAYER_ID_2 = 2;
+	private static final LocalDate DATE = LocalDate.of(2018, 9, 1);
+	private static final Offset<Double> OFFSET = Offset.offset(1E-12);
+
+	private static final TournamentLevel[] LEVELS = TournamentLevel.values();
+	private static final Surface[] SURFACES = {Surface.HARD, Surface.CLAY, Surface.GRASS, Surface.CARPET, null};
+	private static final Round[] ROUNDS = {Round.R128, Round.R64, Round.R32, Round.R16, Round.QF, Round.SF, Round.F, Round.RR};
+	private static final String[] HANDS = {"R", "L", null};
+	private static final String[] BACKHANDS = {"1", "2", null};
+
+	@Test
+	public void fusedPredictorsMatchPerItemEvaluation() {
+		Random random = new Random(7L);
+		for (int run = 0; run < 50; run++) {
+			MatchHistoryView matchData1 = history(PLAYER_ID_2, random).before(DATE, null, false, null);
+			MatchHistoryView matchData2 = history(PLAYER_ID_1, random).before(DATE, null, false, null);
+			RankingData rankingData1 = rankingData(1 + random.nextInt(200));
+			RankingData rankingData2 = rankingData(1 + random.nextInt(200));
+			PlayerData playerData1 = new PlayerData(HANDS[random.nextInt(2)], BACKHANDS[random.nextInt(2)]);
+			PlayerData playerData2 = new PlayerData(HANDS[random.nextInt(2)], BACKHANDS[random.nextInt(2)]);
+			Surface surface = SURFACES[random.nextInt(SURFACES.length)];
+			TournamentLevel level = LEVELS[random.nextInt(LEVELS.length)];
+			Round round = ROUNDS[random.nextInt(ROUNDS.length)];
+			Integer tournamentId = random.nextBoolean() ? random.nextInt(20) : null;
+			short bestOf = level.getBestOf();
+			for (PredictionConfig config : Arrays.asList(PredictionConfig.defaultConfig(), PredictionConfig.equalWeights())) {
+				assertEquivalent(
+					new WinningPctMatchPredictor(matchData1, matchData2, rankingData1, rankingData2, playerData1, playerData2, DATE, DATE, surface, level, round, tournamentId, bestOf, config).predictMatch(),
+					winningPct(matchData1, matchData2, rankingData1, rankingData2, playerData1, playerData2, surface, level, round, tournamentId, bestOf, config)
+				);
+				assertEquivalent(
+					new H2HMatchPredictor(matchData1, matchData2, PLAYER_ID_1, PLAYER_ID_2, DATE, DATE, surface, level, tournamentId, round, bestOf, config).predictMatch(),
+					h2h(matchData1, matchData2, surface, level, round, tournamentId, bestOf, config)
+				);
+				assertEquivalent(
+					new RecentFormMatchPredictor(matchData1, matchData2, rankingData1, rankingData2, playerData1, playerData2, DATE, DATE, surface, level, round, config).predictMatch(),
+					recentForm(matchData1, matchData2, rankingData1, rankingData2, playerData1, playerData2, surface, level, round, config)
+				);
+				assertEquivalent(
+					new VsQualifierMatchPredictor(matchData1, DATE, surface, level, tournamentId, round, bestOf, config).predictMatch(),
+					vsQualifier(matchData1, surface, level, round, tournamentId, bestOf, config)
+				);
+			}
+		}
+	}
+
+	private static void assertEquivalent(MatchPrediction prediction, MatchPrediction expected) {
+		assertThat(prediction.getItems()).isEqualTo(expected.getItems());
+		assertEquivalent(prediction.getItemProbabilities1(), expected.getItemProbabilities1());
+		assertEquivalent(prediction.getItemProbabilities2(), expected.getItemProbabilities2());
+	}
+
+	private static void assertEquivalent(List<WeightedProbability> probabilities, List<WeightedProbability> expected) {
+		assertThat(probabilities).hasSameSizeAs(expected);
+		for (int i = 0; i < probabilities.size(); i++) {
+			assertThat(probabilities.get(i).getWeight()).isCloseTo(expected.get(i).getWeight(), OFFSET);
+			assertThat(probabilities.get(i).getProbability()).isCloseTo(expected.get(i).getProbability(), OFFSET);
+		}
+	}
+
+
+	// Per-item reference evaluation
+
+	private static MatchPrediction winningPct(MatchHistoryView matchData1, MatchHistoryView matchData2, RankingData rankingData1, RankingData rankingData2, PlayerData playerData1, PlayerData playerData2,
+	                                          Surface surface, TournamentLevel level, Round round, Integer tournamentId, short bestOf, PredictionConfig config) {
+		PredictionArea area = PredictionArea.WINNING_PCT;
+		Period matchRecent = Period.ofYears(config.getMatchRecentPeriod(area, 2));
+		Period setRecent = Period.ofYears(config.getSetRecentPeriod(area, 1));
+		Range<Integer> rankRange1 = rankRange(rankingData1.getRank());
+		Range<Integer> rankRange2 = rankRange(rankingData2.getRank());
+		MatchPrediction prediction = new MatchPrediction(config.getTotalAreasWeight());
+		for (WinningPctPredictionItem item : WinningPctPredictionItem.values()) {
+			double itemWeight = config.getItemWeight(item);
+			if (itemWeight <= 0.0)
+				continue;
+			Period recent = item.isForSet() ? setRecent : matchRecent;
+			String name = item.name().replace("_SET", "");
+			MatchHistoryFilter filter1 = filter(name, surface, level, round, tournamentId, recent, rankRange2, playerData2);
+			MatchHistoryFilter filter2 = filter(name, surface, level, round, tournamentId, recent, rankRange1, playerData1);
+			int[] wonLost1 = wonLost(matchData1, filter1, item.isForSet());
+			int[] wonLost2 = wonLost(matchData2, filter2, item.isForSet());
+			int total1 = wonLost1[0] + wonLost1[1];
+			int total2 = wonLost2[0] + wonLost2[1];
+			if (total1 > 0 && total2 > 0) {
+				double weight = itemWeight * weight(total1, total2);
+				double p1 = 1.0 * wonLost1[0] / total1;
+				double p2 = 1.0 * wonLost2[0] / total2;
+				if (p1 + p2 > 0.0) {
+					p1 = pow(E, 4.0 * p1) - 1.0;
+					p2 = pow(E, 4.0 * p2) - 1.0;
+					DoubleUnaryOperator transformer = probabilityTransformer(item.isForSet(), item.isMixedBestOf(), bestOf);
+					prediction.addItemProbability1(item, weight, transformer.applyAsDouble(p1 / (p1 + p2)));
+					prediction.addItemProbability2(item, weight, transformer.applyAsDouble(p2 / (p1 + p2)));
+				}
+			}
+		}
+		return prediction;
+	}
+
+	private static MatchPrediction h2h(MatchHistoryView matchData1, MatchHistoryView matchData2, Surface surface, TournamentLevel level, Round round, Integer tournamentId, short bestOf, PredictionConfig config) {
+		PredictionArea area = PredictionArea.H2H;
+		Period matchRecent = Period.ofYears(config.getMatchRecentPeriod(area, 3));
+		Period setRecent = Period.ofYears(config.getSetRecentPeriod(area, 2));
+		MatchPrediction prediction = new MatchPrediction(config.getTotalAreasWeight());
+		for (H2HPredictionItem item : H2HPredictionItem.values()) {
+			double itemWeight = config.getItemWeight(item);
+			if (itemWeight <= 0.0)
+				continue;
+			Period recent = item.isForSet() ? setRecent : matchRecent;
+			MatchHistoryFilter filter = filter(item.name().replace("_SET", ""), surface, level, round, tournamentId, recent, null, null);
+			int won1 = wonLost(matchData1, filter.and(isOpponent(PLAYER_ID_2)), item.isForSet())[0];
+			int won2 = wonLost(matchData2, filter.and(isOpponent(PLAYER_ID_1)), item.isForSet())[0];
+			int total = won1 + won2;
+			if (total > 0) {
+				double weight = itemWeight * weight(total);
+				DoubleUnaryOperator transformer = probabilityTransformer(item.isForSet(), item.isMixedBestOf(), bestOf);
+				prediction.addItemProbability1(item, weight, transformer.applyAsDouble(1.0 * won1 / total));
+				prediction.addItemProbability2(item, weight, transformer.applyAsDouble(1.0 * won2 / total));
+			}
+		}
+		return prediction;
+	}
+
+	private static MatchPrediction vsQualifier(MatchHistoryView matchData, Surface surface, TournamentLevel level, Round round, Integer tournamentId, short bestOf, PredictionConfig config) {
+		PredictionArea area = PredictionArea.H2H;
+		Period matchRecent = Period.ofYears(config.getMatchRecentPeriod(area, 3));
+		Period setRecent = Period.ofYears(config.getSetRecentPeriod(area, 2));
+		MatchPrediction prediction = new MatchPrediction(config.getTotalAreasWeight());
+		for (H2HPredictionItem item : H2HPredictionItem.values()) {
+			double itemWeight = config.getItemWeight(item);
+			if (itemWeight <= 0.0)
+				continue;
+			Period recent = item.isForSet() ? setRecent : matchRecent;
+			MatchHistoryFilter filter = filter(item.name().replace("_SET", ""), surface, level, round, tournamentId, recent, null, null);
+			int[] wonLost = wonLost(matchData, filter.and(isOpponentQualifier()), item.isForSet());
+			int total = wonLost[0] + wonLost[1];
+			if (total > 0) {
+				double weight = itemWeight * weight(total);
+				DoubleUnaryOperator transformer = probabilityTransformer(item.isForSet(), item.isMixedBestOf(), bestOf);
+				prediction.addItemProbability1(item, weight, transformer.applyAsDouble(1.0 * wonLost[0] / total));
+				prediction.addItemProbability2(item, weight, transformer.applyAsDouble(1.0 * wonLost[1] / total));
+			}
+		}
+		return prediction;
+	}
+
+	private static MatchPrediction recentForm(MatchHistoryView matchData1, MatchHistoryView matchData2, RankingData rankingData1, RankingData rankingData2, PlayerData playerData1, PlayerData playerData2,
+	                                          Surface surface, TournamentLevel level, Round round, PredictionConfig config) {
+		PredictionArea area = PredictionArea.RECENT_FORM;
+		Period matchRecent = Period.ofYears(config.getMatchRecentPeriod(area, 2));
+		int lastMatches = config.getLastMatchesCount(area, 45);
+		Range<Integer> rankRange1 = rankRange(rankingData1.getRank());
+		Range<Integer> rankRange2 = rankRange(rankingData2.getRank());
+		MatchPrediction prediction = new MatchPrediction(config.getTotalAreasWeight());
+		for (RecentFormPredictionItem item : RecentFormPredictionItem.values()) {
+			double itemWeight = config.getItemWeight(item);
+			if (itemWeight <= 0.0)
+				continue;
+			MatchHistoryFilter filter1 = filter(item.name(), surface, level, round, null, matchRecent, rankRange2, playerData2);
+			MatchHistoryFilter filter2 = filter(item.name(), surface, level, round, null, matchRecent, rankRange1, playerData1);
+			List<Integer> matches1 = last(matchData1.select(filter1.and(isRecent(DATE, matchRecent))), lastMatches);
+			List<Integer> matches2 = last(matchData2.select(filter2.and(isRecent(DATE, matchRecent))), lastMatches);
+			if (!matches1.isEmpty() && !matches2.isEmpty()) {
+				double form1 = form(matchData1.getHistory(), matches1);
+				double form2 = form(matchData2.getHistory(), matches2);
+				double p1 = 1 / (1 + pow(10.0, (form2 - form1) / 350.0));
+				double p2 = 1 / (1 + pow(10.0, (form1 - form2) / 350.0));
+				double weight = itemWeight * weight(matches1.size(), matches2.size());
+				prediction.addItemProbability1(item, weight, p1 / (p1 + p2));
+				prediction.addItemProbability2(item, weight, p2 / (p1 + p2));
+			}
+		}
+		return prediction;
+	}
+
+	private static MatchHistoryFilter filter(String item, Surface surface, TournamentLevel level, Round round, Integer tournamentId, Period recent, Range<Integer> rankRange, PlayerData opponentData) {
+		switch (item) {
+			case "OVERALL": return ALWAYS_TRUE;
+			case "SURFACE": return isSurface(surface);
+			case "LEVEL": return isLevel(level);
+			case "TOURNAMENT": return isTournament(tournamentId);
+			case "ROUND": return isRound(round);
+			case "RECENT": return isRecent(DATE, recent);
+			case "SURFACE_RECENT": return isSurface(surface).and(isRecent(DATE, recent));
+			case "LEVEL_RECENT": return isLevel(level).and(isRecent(DATE, recent));
+			case "ROUND_RECENT": return isRound(round).and(isRecent(DATE, recent));
+			case "VS_RANK": return isOpponentRankInRange(rankRange);
+			case "VS_HAND": return isOpponentHand(opponentData.getHand());
+			case "VS_BACKHAND": return isOpponentBackhand(opponentData.getBackhand());
+			default: throw new IllegalArgumentException(item);
+		}
+	}
+
+	private static int[] wonLost(MatchHistoryView matchData, MatchHistoryFilter filter, boolean forSet) {
+		MatchHistory history = matchData.getHistory();
+		BitSet matches = matchData.select(filter);
+		int[] wonLost = new int[2];
+		matches.stream().forEach(i -> {
+			wonLost[0] += forSet ? history.getPSets(i) : history.getPMatches(i);
+			wonLost[1] += forSet ? history.getOSets(i) : history.getOMatches(i);
+		});
+		return wonLost;
+	}
+
+	private static List<Integer> last(BitSet matches, int count) {
+		List<Integer> indexes = new ArrayList<>();
+		matches.stream().forEach(indexes::add);
+		return indexes.size() > count ? indexes.subList(indexes.size() - count, indexes.size()) : indexes;
+	}
+
+	private static double form(MatchHistory history, List<Integer> matches) {
+		int count = matches.size();
+		double form = 0.0;
+		for (int i = 0; i < count; i++)
+			form += history.getOpponentEloScore(matches.get(i)) / recencyAdjustment(count - i, 30);
+		return form / count;
+	}
+
+
+	// Data
+
+	private static MatchHistory history(int opponentId, Random random) {
+		int matches = random.nextInt(800);
+		List<MatchData> matchData = new ArrayList<>(matches);
+		LocalDate date = DATE.minusYears(8);
+		for (int i = 0; i < matches; i++) {
+			date = date.plusDays(random.nextInt(8));
+			TournamentLevel level = LEVELS[random.nextInt(LEVELS.length)];
+			boolean won = random.nextDouble() < 0.55;
+			int wonSets = level.getBestOf() / 2 + 1;
+			int lostSets = random.nextInt(wonSets);
+			matchData.add(new MatchData(
+				date, random.nextInt(20), i, false, level, SURFACES[random.nextInt(SURFACES.length)], ROUNDS[random.nextInt(ROUNDS.length)],
+				random.nextInt(8) == 0 ? opponentId : 100 + random.nextInt(200), random.nextInt(10) == 0 ? null : 1 + random.nextInt(300),
+				random.nextInt(10) == 0 ? null : 1300 + random.nextInt(1000), HANDS[random.nextInt(HANDS.length)], BACKHANDS[random.nextInt(BACKHANDS.length)],
+				random.nextInt(12) == 0 ? "Q" : null, won ? 1 : 0, won ? 0 : 1, won ? wonSets : lostSets, won ? lostSets : wonSets
+			));
+		}
+		return new MatchHistory(matchData);
+	}
+
+	private static RankingData rankingData(int rank) {
+		RankingData rankingData = new RankingData();
+		rankingData.setRank(rank);
+		return rankingData;
+	}
+}
@@ -0,0 +1,32 @@
+package org.strangeforest.tcb.stats.model.prediction;
+
+import org.junit.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class QualifierRankingsTest {
+
+	private final QualifierRankings rankings = QualifierRankings.builder()
+		.addBaseline(200L * 150, 200, 200L * 700, 200, 200L * 1700, 200)
+		.addBaseline(50L * 250, 50, 50L * 350, 50, 50L * 1600, 40)
+		.addBaseline(150L * 200, 150, 150L * 500, 150, 0L, 0)
+		.build();
+
+	@Test
+	public void overallBaselineIsAverageOfAllQualifierMatches() {
+		RankingData rankingData = rankings.getRankingData();
+
+		assertThat(rankingData.getRank()).isEqualTo((200 * 150 + 50 * 250 + 150 * 200) / 400);
+		assertThat(rankingData.getRankPoints()).isEqualTo((200 * 700 + 50 * 350 + 150 * 500) / 400);
+		assertThat(rankingData.getEloRating()).isEqualTo((200 * 1700 + 50 * 1600) / 240);
+	}
+
+	@Test
+	public void missingRatingsAreNull() {
+		RankingData rankingData = QualifierRankings.builder().addBaseline(150L * 200, 150, 0L, 0, 0L, 0).build().getRankingData();
+
+		assertThat(rankingData.getRank()).isEqualTo(200);
+		assertThat(rankingData.getRankPoints()).isNull();
+		assertThat(rankingData.getEloRating()).isNull();
+	}
+}
@@ -0,0 +1,101 @@
+package org.strangeforest.tcb.stats.model.prediction;
+
+import java.time.*;
+
+import org.junit.*;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.strangeforest.tcb.stats.model.ModelTestUtil.*;
+import static org.strangeforest.tcb.stats.model.core.Surface.*;
+
+public class RankingIndexTest {
+
+	private static final LocalDate DATE = LocalDate.of(2018, 7, 2);
+
+	private final RankingIndex index = RankingIndex.builder()
+		.addRanking(1, DATE.minusWeeks(2), 5, 4000)
+		.addRanking(1, DATE.minusWeeks(1), 4, 4200)
+		.addRanking(1, DATE.plusWeeks(1), 3, 4500)
+		.addRanking(2, DATE.minusYears(2), 120, null)
+		.addEloRatings(1, DATE.minusWeeks(2), eloRatings(2100, 2050, 2150, null, 2000, null, 2120, 2080, 2110))
+		.addEloRatings(1, DATE, eloRatings(2110, 2060, 2160, null, 2010, null, 2130, 2090, 2115))
+		.addEloRatings(2, DATE.minusYears(2), eloRatings(1700, 1690, null, 1720, null, null, 1710, null, 1705))
+		.build();
+
+	@Test
+	public void rankingAsOfDate() {
+		RankingData rankingData = index.getRankingData(1, DATE, null, null);
+
+		assertThat(rankingData.getRank()).isEqualTo(4);
+		assertThat(rankingData.getRankPoints()).isEqualTo(4200);
+		assertThat(index.getRankingData(1, DATE.minusWeeks(2), null, null).getRank()).isEqualTo(5);
+		assertThat(index.getRankingData(1, DATE.minusWeeks(3), null, null).getRank()).isNull();
+		assertThat(index.getRankingData(1, DATE.plusYears(1), null, null).getRank()).isEqualTo(3);
+	}
+
+	@Test
+	public void eloRatingsAsOfDate() {
+		RankingData rankingData = index.getRankingData(1, DATE, HARD, true);
+
+		assertThat(rankingData.getEloRating()).isEqualTo(2110);
+		assertThat(rankingData.getRecentEloRating()).isEqualTo(2060);
+		assertThat(rankingData.getSurfaceEloRating()).isEqualTo(2160);
+		assertThat(rankingData.getInOutEloRating()).isEqualTo(2090);
+		assertThat(rankingData.getSetEloRating()).isEqualTo(2115);
+		assertThat(rankingData.getEloDate()).isEqualTo(DATE);
+
+		RankingData previousData = index.getRankingData(1, DATE.minusDays(1), GRASS, false);
+
+		assertThat(previousData.getEloRating()).isEqualTo(2100);
+		assertThat(previousData.getSurfaceEloRating()).isEqualTo(2000);
+		assertThat(previousData.getInOutEloRating()).isEqualTo(2120);
+		assertThat(previousData.getEloDate()).isEqualTo(DATE.minusWeeks(2));
+	}
+
+	@Test
+	public void unknownRatingsAreNull() {
+		RankingData rankingData = index.getRankingData(1, DATE, CLAY, null);
+
+		assertThat(rankingData.getSurfaceEloRating()).isNull();
+		assertThat(rankingData.getInOutEloRating()).isNull();
+		assertThat(index.getRankingData(2, DATE.minusYears(2), null, null).getRankPoints()).isNull();
+		assertThat(index.getRankingData(3, DATE, null, null).getEloRating()).isNull();
+	}
+
+	@Test
+	public void ratingsOlderThanOneYearAreIgnored() {
+		assertThat(index.getRankingData(2, DATE.minusYears(1).minusDays(1), null, null).getRank()).isEqualTo(120);
+		assertThat(index.getRankingData(2, DATE.minusYears(1).plusDays(1), null, null).getRank()).isNull();
+		assertThat(index.getRankingData(2, DATE.minusYears(1).plusDays(1), null, null).getEloRating()).isNull();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void datesMustBeAscending() {
+		RankingIndex.builder()
+			.addRanking(1, DATE, 5, 4000)
+			.addRanking(1, DATE.minusDays(7), 6, 3900);
+	}
+
+	@Test
+	public void outOfRangeValuesAreSkipped() {
+		RankingIndex.Builder builder = RankingIndex.builder()
+			.addRanking(1, DATE, 40000, 100)
+			.addEloRatings(1, DATE, eloRatings(2100, -5, null, null, null, null, null, null, null));
+		RankingData rankingData = builder.build().getRankingData(1, DATE, null, null);
+
+		assertThat(builder.getSkippedValues()).isEqualTo(2);
+		assertThat(rankingData.getRank()).isNull();
+		assertThat(rankingData.getRankPoints()).isEqualTo(100);
+		assertThat(rankingData.getEloRating()).isEqualTo(2100);
+		assertThat(rankingData.getRecentEloRating()).isNull();
+	}
+
+	@Test
+	public void indexCoversDatesAfterOneYearFromFirstDate() {
+		RankingIndex bounded = RankingIndex.builder().fromDate(DATE).build();
+
+		assertThat(bounded.covers(DATE.plusYears(1))).isTrue();
+		assertThat(bounded.covers(DATE.plusYears(1).minusDays(1))).isFalse();
+		assertThat(index.covers(DATE.minusYears(50))).isTrue();
+	}
+}
@@ -0,0 +1,53 @@
+package org.strangeforest.tcb.stats.service;
+
+import java.util.*;
+
+import org.junit.*;
+import org.junit.runner.*;
+import org.mockito.*;
+import org.mockito.junit.*;
+import org.springframework.cache.*;
+
+import static java.util.Arrays.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DataServiceTest {
+
+	@InjectMocks private DataService dataService;
+	@Mock private CacheManager cacheManager;
+	@Mock private MatchPredictionService matchPredictionService;
+	@Mock private InProgressMatchForecastService inProgressMatchForecastService;
+	@Mock private Cache inProgressEventCache;
+
+	@Before
+	public void setUp() {
+		when(cacheManager.getCacheNames()).thenReturn(asList("InProgressEventForecast", "PlayerProfile"));
+	}
+
+	@Test
+	public void clearingCachesForPlayersInvalidatesOnlyTheirPredictions() {
+		when(cacheManager.getCache("InProgressEventForecast")).thenReturn(inProgressEventCache);
+		List<Integer> playerIds = asList(1, 2);
+
+		int cacheCount = dataService.clearCaches("InProgressEvent.*", playerIds);
+
+		assertThat(cacheCount).isEqualTo(1);
+		verify(inProgressEventCache).clear();
+		verify(matchPredictionService).invalidatePlayers(playerIds);
+		verify(inProgressMatchForecastService).invalidatePlayers(playerIds);
+		verifyNoMoreInteractions(matchPredictionService, inProgressMatchForecastService);
+		verify(cacheManager, never()).getCache("PlayerProfile");
+	}
+
+	@Test
+	public void clearingCachesClearsAllPredictions() {
+		int cacheCount = dataService.clearCaches("Rankings.*");
+
+		assertThat(cacheCount).isZero();
+		verify(matchPredictionService).clearCaches();
+		verify(inProgressMatchForecastService).clearCache();
+		verifyNoMoreInteractions(matchPredictionService, inProgressMatchForecastService);
+	}
+}
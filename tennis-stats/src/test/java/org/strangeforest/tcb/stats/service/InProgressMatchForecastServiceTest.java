@@ -0,0 +1,178 @@
+package org.strangeforest.tcb.stats.service;
+
+import java.lang.reflect.*;
+import java.sql.Array;
+import java.sql.*;
+import java.time.*;
+import java.util.*;
+import java.util.function.*;
+
+import org.junit.*;
+import org.junit.runner.*;
+import org.mockito.*;
+import org.mockito.junit.*;
+import org.springframework.jdbc.core.*;
+import org.springframework.jdbc.core.namedparam.*;
+import org.strangeforest.tcb.stats.model.core.*;
+import org.strangeforest.tcb.stats.model.forecast.*;
+import org.strangeforest.tcb.stats.model.prediction.*;
+
+import static java.util.Arrays.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class InProgressMatchForecastServiceTest {
+
+	private static final long MATCH_ID = 1L;
+	private static final int PLAYER_ID_1 = 11;
+	private static final int PLAYER_ID_2 = 12;
+
+	@InjectMocks private InProgressMatchForecastService service;
+	@Mock private NamedParameterJdbcTemplate jdbcTemplate;
+	@Mock private MatchPredictionService matchPredictionService;
+
+	private Map<String, Object> row;
+
+	@Before
+	public void setUp() {
+		row = new HashMap<>();
+		row.put("in_progress_event_id", 1);
+		row.put("tournament_id", 1);
+		row.put("date", LocalDate.of(2018, 8, 27));
+		row.put("level", "G");
+		row.put("surface", "H");
+		row.put("indoor", false);
+		row.put("round", "R128");
+		row.put("best_of", 5);
+		row.put("player1_id", PLAYER_ID_1);
+		row.put("player2_id", PLAYER_ID_2);
+		row.put("player1_sets", 1);
+		row.put("player2_sets", 1);
+		row.put("player1_games", new Integer[] {6, 3, 6});
+		row.put("player2_games", new Integer[] {4, 6, 6});
+		when(jdbcTemplate.query(anyString(), any(SqlParameterSource.class), ArgumentMatchers.<ResultSetExtractor<InProgressMatchForecast>>any()))
+			.thenAnswer(invocation -> invocation.<ResultSetExtractor<InProgressMatchForecast>>getArgument(2).extractData(resultSet(row)));
+		when(matchPredictionService.predictMatch(anyInt(), anyInt(), any(), any(), any(), anyBoolean(), any(), any(), any(), any(), any()))
+			.thenReturn(MatchPrediction.TIE);
+	}
+
+	@Test
+	public void tieBreakPointsAreScoredAtSixAll() {
+		double noPoints = forecast().getWinProbability1();
+
+		setTieBreakPoints(6, 2);
+		double ahead = forecast().getWinProbability1();
+
+		setTieBreakPoints(2, 6);
+		double behind = forecast().getWinProbability1();
+
+		assertThat(ahead).isGreaterThan(noPoints);
+		assertThat(behind).isLessThan(noPoints);
+		assertThat(ahead + behind).isCloseTo(1.0, offset(1E-6));
+		assertThat(noPoints).isCloseTo(0.5, offset(1E-6));
+	}
+
+	@Test
+	public void tieBreakPointsAreIgnoredBeforeSixAll() {
+		row.put("player2_games", new Integer[] {4, 6, 5});
+		double noPoints = forecast().getWinProbability1();
+
+		setTieBreakPoints(0, 3);
+
+		assertThat(forecast().getWinProbability1()).isEqualTo(noPoints);
+	}
+
+	@Test
+	public void advantageFinalSetHasNoTieBreak() {
+		row.put("player1_sets", 2);
+		row.put("player2_sets", 2);
+		row.put("player1_games", new Integer[] {6, 3, 6, 4, 6});
+		row.put("player2_games", new Integer[] {4, 6, 3, 6, 6});
+		double noPoints = forecast().getWinProbability1();
+
+		row.put("player1_tb_pt", new Integer[] {null, null, null, null, 3});
+		row.put("player2_tb_pt", new Integer[] {null, null, null, null, 0});
+
+		assertThat(forecast().getWinProbability1()).isEqualTo(noPoints);
+	}
+
+	@Test
+	public void finalSetRuleFollowsEvent() {
+		assertThat(InProgressMatchForecastService.finalSetTieBreaker(TournamentLevel.GRAND_SLAM, (short)5)).isFalse();
+		assertThat(InProgressMatchForecastService.finalSetTieBreaker(TournamentLevel.MASTERS, (short)3)).isTrue();
+		assertThat(InProgressMatchForecastService.finalSetTieBreaker(TournamentLevel.OLYMPICS, (short)3)).isFalse();
+	}
+
+	@Test
+	public void unknownIndoorIsPassedAsNull() {
+		row.put("indoor", null);
+
+		forecast();
+
+		verify(matchPredictionService).predictMatch(eq(PLAYER_ID_1), eq(PLAYER_ID_2), any(), any(), any(), anyBoolean(), any(), isNull(), any(), any(), any());
+	}
+
+	@Test
+	public void finishedMatchIsDecided() {
+		row.put("winner", 2);
+
+		assertThat(forecast().getWinProbability1()).isEqualTo(0.0);
+	}
+
+	@Test
+	public void matchModelIsCachedUntilInvalidated() {
+		forecast();
+		forecast();
+		verifyPredictions(1);
+
+		service.invalidatePlayers(asList(13, 14));
+		forecast();
+		verifyPredictions(1);
+
+		service.invalidatePlayers(asList(PLAYER_ID_2));
+		forecast();
+		verifyPredictions(2);
+
+		service.clearCache();
+		forecast();
+		verifyPredictions(3);
+	}
+
+	private InProgressMatchForecast forecast() {
+		return service.getInProgressMatchForecast(MATCH_ID);
+	}
+
+	private void setTieBreakPoints(int points1, int points2) {
+		row.put("player1_tb_pt", new Integer[] {null, null, points1});
+		row.put("player2_tb_pt", new Integer[] {null, null, points2});
+	}
+
+	private void verifyPredictions(int times) {
+		verify(matchPredictionService, times(times)).predictMatch(eq(PLAYER_ID_1), eq(PLAYER_ID_2), any(), any(), any(), anyBoolean(), any(), any(), any(), any(), any());
+	}
+
+	private static ResultSet resultSet(Map<String, Object> row) {
+		boolean[] wasNull = new boolean[1];
+		return proxy(ResultSet.class, (method, args) -> {
+			if (method.equals("next"))
+				return true;
+			if (method.equals("wasNull"))
+				return wasNull[0];
+			Object value = row.get((String)args[0]);
+			wasNull[0] = value == null;
+			switch (method) {
+				case "getInt": return value != null ? ((Number)value).intValue() : 0;
+				case "getBoolean": return value != null && (Boolean)value;
+				case "getString": case "getObject": return value;
+				case "getArray": return value != null ? proxy(Array.class, (arrayMethod, arrayArgs) -> value) : null;
+				default: throw new UnsupportedOperationException(method);
+			}
+		});
+	}
+
+	private static <T> T proxy(Class<T> type, BiFunction<String, Object[], Object> handler) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class[] {type}, (proxy, method, args) -> handler.apply(method.getName(), args)));
+	}
+}
@@ -0,0 +1,93 @@
+package org.strangeforest.tcb.stats.verification;
+
+import java.io.*;
+import java.time.*;
+import java.util.*;
+import java.util.zip.*;
+
+import org.assertj.core.data.*;
+import org.junit.*;
+import org.junit.rules.*;
+import org.strangeforest.tcb.stats.model.core.*;
+import org.strangeforest.tcb.stats.model.prediction.*;
+
+import static java.util.Arrays.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.strangeforest.tcb.stats.model.ModelTestUtil.*;
+
+public class PredictionSnapshotTest {
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final Offset<Double> OFFSET = Offset.offset(1E-12);
+	private static final LocalDate DATE = LocalDate.of(2018, 7, 2);
+	private static final PlayerData PLAYER_DATA1 = new PlayerData("R", "2");
+	private static final PlayerData PLAYER_DATA2 = new PlayerData("L", null);
+	private static final SnapshotMatch MATCH = new SnapshotMatch(1, 2, DATE, 10, 100, TournamentLevel.GRAND_SLAM, (short)5, Surface.GRASS, false, Round.R16, 1.5, null);
+
+	@Test
+	public void snapshotRoundTripPreservesPredictions() throws IOException {
+		List<MatchData> matchData1 = asList(
+			matchData(DATE.minusYears(1L), 2, 1, 0, Surface.GRASS),
+			matchData(DATE.minusMonths(2L), 3, 1, 0, Surface.CLAY),
+			matchData(DATE.minusWeeks(1L), 2, 0, 1, Surface.GRASS)
+		);
+		List<MatchData> matchData2 = asList(
+			matchData(DATE.minusYears(1L), 1, 0, 1, Surface.GRASS),
+			matchData(DATE.minusWeeks(1L), 1, 1, 0, Surface.GRASS)
+		);
+		RankingIndex rankingIndex = RankingIndex.builder()
+			.addRanking(1, DATE.minusWeeks(1L), 3, 6000)
+			.addRanking(2, DATE.minusWeeks(1L), 12, 2500)
+			.addRanking(3, DATE.minusWeeks(1L), 50, 900)
+			.addEloRatings(1, DATE.minusWeeks(1L), eloRatings(2200, null, null, null, 2150, null, null, null, null))
+			.addEloRatings(2, DATE.minusWeeks(1L), eloRatings(2050, null, null, null, 2080, null, null, null, null))
+			.build();
+
+		File file = folder.newFile("snapshot.bin");
+		try (PredictionSnapshot.Writer writer = PredictionSnapshot.writer(file)) {
+			writer.writeHeader(DATE.minusYears(1L), DATE, "B365");
+			writer.writeMatches(Collections.singletonList(MATCH));
+			writer.writePlayerCount(2);
+			writer.writePlayer(1, PLAYER_DATA1, matchData1);
+			writer.writePlayer(2, PLAYER_DATA2, matchData2);
+			writer.writeRankingIndex(rankingIndex, asList(1, 2));
+		}
+		PredictionSnapshot snapshot = PredictionSnapshot.read(file);
+
+		assertThat(snapshot.getFromDate()).isEqualTo(DATE.minusYears(1L));
+		assertThat(snapshot.getPriceSource()).isEqualTo("B365");
+		assertThat(snapshot.getPlayerCount()).isEqualTo(2);
+		SnapshotMatch match = snapshot.getMatches().get(0);
+		assertThat(match.level).isEqualTo(TournamentLevel.GRAND_SLAM);
+		assertThat(match.round).isEqualTo(Round.R16);
+		assertThat(match.winnerPrice).isEqualTo(1.5);
+		assertThat(match.loserPrice).isNull();
+
+		PredictionConfig config = PredictionConfig.defaultConfig();
+		MatchPrediction expected = MatchPredictionUtil.predictMatchBetweenEntries(
+			1, 2, PLAYER_DATA1, PLAYER_DATA2,
+			rankingIndex.getRankingData(1, DATE, Surface.GRASS, false), rankingIndex.getRankingData(2, DATE, Surface.GRASS, false),
+			new MatchHistory(matchData1).before(DATE, 100, false, Round.R16), new MatchHistory(matchData2).before(DATE, 100, false, Round.R16),
+			DATE, DATE, 10, Surface.GRASS, TournamentLevel.GRAND_SLAM, (short)5, Round.R16, config
+		);
+		MatchPrediction actual = snapshot.predictMatch(match, config);
+
+		assertThat(actual.getWinProbability1()).isCloseTo(expected.getWinProbability1(), OFFSET);
+		assertThat(actual.getPredictability1()).isCloseTo(expected.getPredictability1(), OFFSET);
+		assertThat(actual.getRankingData2().getRank()).isEqualTo(12);
+	}
+
+	@Test(expected = IOException.class)
+	public void invalidSnapshotIsRejected() throws IOException {
+		File file = folder.newFile("invalid.bin");
+		try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+			out.write(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+		}
+		PredictionSnapshot.read(file);
+	}
+
+	private static MatchData matchData(LocalDate date, int opponentId, int pMatches, int oMatches, Surface surface) {
+		return new MatchData(date, 10, 1, false, TournamentLevel.GRAND_SLAM, surface, Round.R32, opponentId, 20, 1900, "R", "2", null, pMatches, oMatches, pMatches * 3, oMatches * 3);
+	}
+}
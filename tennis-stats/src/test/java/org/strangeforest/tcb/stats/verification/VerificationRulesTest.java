@@ -0,0 +1,58 @@
+package org.strangeforest.tcb.stats.verification;
+
+import org.assertj.core.data.*;
+import org.junit.*;
+import org.strangeforest.tcb.stats.verification.VerificationRules.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class VerificationRulesTest {
+
+	private static final Offset<Double> OFFSET = Offset.offset(1E-12);
+
+	private final VerificationRules rules = new VerificationRules(0.25, false, true);
+
+	@Test
+	public void unpredictableMatchIsNotBet() {
+		MatchVerification verification = rules.verifyMatch(0.2, 0.7, 0.3, 1.5, 2.5);
+
+		assertThat(verification.predictable).isFalse();
+		assertThat(verification.winnerProbability).isEqualTo(0.0);
+		assertThat(verification.withPrice).isFalse();
+		assertThat(verification.stake).isEqualTo(0.0);
+	}
+
+	@Test
+	public void favoriteBeatingPriceIsBetWithKellyStake() {
+		MatchVerification verification = rules.verifyMatch(0.5, 0.7, 0.3, 1.6, 2.4);
+
+		assertThat(verification.predictable).isTrue();
+		assertThat(verification.predicted).isTrue();
+		assertThat(verification.beatingPrice).isTrue();
+		assertThat(verification.profitable).isTrue();
+		assertThat(verification.stake).isCloseTo((0.7 * 1.6 - 1.0) / 0.6, OFFSET);
+		assertThat(verification.return_).isCloseTo(verification.stake * 1.6, OFFSET);
+	}
+
+	@Test
+	public void losingFavoriteBetHasNoReturn() {
+		MatchVerification verification = rules.verifyMatch(0.5, 0.3, 0.7, 2.4, 1.6);
+
+		assertThat(verification.predicted).isFalse();
+		assertThat(verification.beatingPrice).isTrue();
+		assertThat(verification.profitable).isFalse();
+		assertThat(verification.stake).isCloseTo((0.7 * 1.6 - 1.0) / 0.6, OFFSET);
+		assertThat(verification.return_).isEqualTo(0.0);
+	}
+
+	@Test
+	public void outsiderIsBetOnlyIfEnabled() {
+		assertThat(rules.verifyMatch(0.5, 0.45, 0.55, 3.0, 1.2).beatingPrice).isFalse();
+
+		MatchVerification verification = new VerificationRules(0.25, true, false).verifyMatch(0.5, 0.45, 0.55, 3.0, 1.2);
+
+		assertThat(verification.beatingPrice).isTrue();
+		assertThat(verification.stake).isEqualTo(1.0);
+		assertThat(verification.return_).isEqualTo(3.0);
+	}
+}